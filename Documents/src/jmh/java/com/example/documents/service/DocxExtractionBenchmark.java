@@ -0,0 +1,140 @@
+package com.example.documents.service;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.util.Units;
+import org.apache.poi.wp.usermodel.HeaderFooterType;
+import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
+import org.apache.poi.xwpf.usermodel.Document;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the text of generated .docx files the way uploads used to, through the XWPF object model, and by streaming.
+ * The corpus has a one-page note, a 100-page report with tables, headers and footers, and an imaging report whose
+ * size is mostly embedded pictures. Run with {@code -prof gc} to compare the bytes allocated per extraction.
+ * File sizes and text lengths are printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class DocxExtractionBenchmark {
+
+    private static final String[] SENTENCES = {
+            "Patient admitted for elective coronary angiography via right radial access.",
+            "Left main without significant stenosis; LAD with 70% proximal stenosis treated with a drug-eluting stent.",
+            "Procedure uneventful, no contrast reaction, haemostasis achieved with a compression band.",
+            "Recommend dual antiplatelet therapy for twelve months and follow-up in the outpatient clinic."
+    };
+
+    @Param({"note", "report", "imaging"})
+    private String document;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("benchmark-" + document, ".docx");
+        try (XWPFDocument docx = switch (document) {
+            case "note" -> textDocument(30, 0);
+            case "report" -> textDocument(2500, 20);
+            case "imaging" -> imagingDocument(30, 300 * 1024);
+            default -> throw new IllegalArgumentException(document);
+        }; OutputStream out = Files.newOutputStream(file)) {
+            docx.write(out);
+        }
+        System.out.printf("%n%s: %d KB, %d characters streamed, %d through the object model%n", document,
+                Files.size(file) / 1024, streaming().length(), objectModel().length());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public String objectModel() throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file));
+             XWPFDocument docx = new XWPFDocument(in);
+             XWPFWordExtractor extractor = new XWPFWordExtractor(docx)) {
+            return extractor.getText();
+        }
+    }
+
+    @Benchmark
+    public String streaming() throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            return DocxTextExtractor.extract(in);
+        }
+    }
+
+    private static XWPFDocument textDocument(int paragraphs, int tables) {
+        XWPFDocument docx = new XWPFDocument();
+        docx.createHeader(HeaderFooterType.DEFAULT).createParagraph().createRun()
+                .setText("Cardiology department - patient P-000123");
+        docx.createFooter(HeaderFooterType.DEFAULT).createParagraph().createRun()
+                .setText("Confidential medical record");
+        int tableEvery = tables > 0 ? paragraphs / tables : Integer.MAX_VALUE;
+        for (int i = 0; i < paragraphs; i++) {
+            XWPFParagraph paragraph = docx.createParagraph();
+            XWPFRun run = paragraph.createRun();
+            run.setBold(i % 25 == 0);
+            run.setText(SENTENCES[i % SENTENCES.length]);
+            paragraph.createRun().setText(" Finding " + i + ".");
+            if (i % tableEvery == tableEvery - 1) {
+                XWPFTable table = docx.createTable(10, 4);
+                for (int row = 0; row < 10; row++) {
+                    for (int cell = 0; cell < 4; cell++) {
+                        table.getRow(row).getCell(cell).setText("R" + row + "C" + cell + " 12.5 mg");
+                    }
+                }
+            }
+        }
+        return docx;
+    }
+
+    private static XWPFDocument imagingDocument(int images, int imageBytes) throws IOException {
+        XWPFDocument docx = textDocument(40, 0);
+        // Compressed image data does not shrink in the package, like real scans
+        Random random = new Random(42);
+        byte[] image = new byte[imageBytes];
+        for (int i = 0; i < images; i++) {
+            random.nextBytes(image);
+            XWPFRun run = docx.createParagraph().createRun();
+            try {
+                run.addPicture(new ByteArrayInputStream(image), Document.PICTURE_TYPE_JPEG, "scan" + i + ".jpg",
+                        Units.toEMU(400), Units.toEMU(300));
+            } catch (InvalidFormatException e) {
+                throw new IOException(e);
+            }
+            run.setText("Figure " + i + ": angiographic view.");
+        }
+        return docx;
+    }
+}
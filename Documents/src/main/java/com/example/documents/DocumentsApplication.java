@@ -1,11 +1,15 @@
 package com.example.documents;
 
+import com.example.messaging.MessagingConfig;
+import com.example.sqlite.SqliteDataSourceConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.kafka.annotation.EnableKafka;
 
 @SpringBootApplication
+@Import({SqliteDataSourceConfig.class, MessagingConfig.class})
 @EnableJpaRepositories
 @EnableKafka
 public class DocumentsApplication {
@@ -0,0 +1,31 @@
+package com.example.documents.config;
+
+import com.example.documents.service.DocumentAggregateService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Fills the dashboard counters for documents that predate them.
+ * Starting the service with {@code --rebuild-aggregates} recounts everything, e.g. after restoring a backup.
+ */
+@Component
+@Order(4)
+@RequiredArgsConstructor
+public class DocumentAggregateBackfill implements CommandLineRunner {
+    private static final String REBUILD_ARGUMENT = "--rebuild-aggregates";
+
+    private final DocumentAggregateService documentAggregateService;
+
+    @Override
+    public void run(String... args) {
+        if (Arrays.asList(args).contains(REBUILD_ARGUMENT)) {
+            documentAggregateService.rebuild();
+        } else {
+            documentAggregateService.rebuildIfEmpty();
+        }
+    }
+}
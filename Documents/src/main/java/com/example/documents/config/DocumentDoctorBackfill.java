@@ -0,0 +1,23 @@
+package com.example.documents.config;
+
+import com.example.documents.service.DocumentDoctorService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the document_doctors table for documents that predate it.
+ * Runs after {@link DocumentSeeder} so seeded documents are covered too.
+ */
+@Component
+@Order(2)
+@RequiredArgsConstructor
+public class DocumentDoctorBackfill implements CommandLineRunner {
+    private final DocumentDoctorService documentDoctorService;
+
+    @Override
+    public void run(String... args) {
+        documentDoctorService.backfillIfEmpty();
+    }
+}
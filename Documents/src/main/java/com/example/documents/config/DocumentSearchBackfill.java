@@ -0,0 +1,23 @@
+package com.example.documents.config;
+
+import com.example.documents.service.DocumentSearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the full-text index for documents that predate it.
+ * Runs after {@link DocumentSeeder} so seeded documents are searchable too.
+ */
+@Component
+@Order(3)
+@RequiredArgsConstructor
+public class DocumentSearchBackfill implements CommandLineRunner {
+    private final DocumentSearchService documentSearchService;
+
+    @Override
+    public void run(String... args) {
+        documentSearchService.rebuildIfEmpty();
+    }
+}
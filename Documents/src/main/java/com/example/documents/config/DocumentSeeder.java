@@ -1,16 +1,18 @@
 package com.example.documents.config;
 
 import com.example.documents.model.Document;
-import com.example.documents.model.DocumentStatus;
 import com.example.documents.repository.DocumentRepository;
+import com.example.events.DocumentStatus;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 
 @Component
+@Order(1)
 @RequiredArgsConstructor
 public class DocumentSeeder implements CommandLineRunner {
     private final DocumentRepository documentRepository;
@@ -22,7 +24,7 @@ public class DocumentSeeder implements CommandLineRunner {
                     .title("Cardiology Report")
                     .patientId("PATIENT-001")
                     .doctorIds("DR-101,DR-102")
-                    .diagnosis("CARDIOLOGY_REPORT")
+                    .documentType("CARDIOLOGY_REPORT")
                     .description("Patient has a mild arrhythmia. Further monitoring advised.")
                     .procedureDate(LocalDateTime.now().minusDays(10))
                     .status(DocumentStatus.PENDING)
@@ -33,7 +35,7 @@ public class DocumentSeeder implements CommandLineRunner {
                     .title("Medical Record - Diabetes")
                     .patientId("PATIENT-002")
                     .doctorIds("DR-103")
-                    .diagnosis("MEDICAL_RECORD")
+                    .documentType("MEDICAL_RECORD")
                     .description("Patient diagnosed with Type 2 Diabetes. Medication prescribed.")
                     .procedureDate(LocalDateTime.now().minusDays(20))
                     .status(DocumentStatus.VALIDATED)
@@ -44,7 +46,7 @@ public class DocumentSeeder implements CommandLineRunner {
                     .title("Annual Physical Exam")
                     .patientId("PATIENT-003")
                     .doctorIds("DR-104")
-                    .diagnosis("PHYSICAL_EXAM")
+                    .documentType("PHYSICAL_EXAM")
                     .description("All vitals normal. No concerns.")
                     .procedureDate(LocalDateTime.now().minusDays(30))
                     .status(DocumentStatus.REJECTED)
@@ -0,0 +1,26 @@
+package com.example.documents.config;
+
+import com.example.documents.service.DocumentService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves document types out of the diagnosis column for documents stored before document_type existed.
+ * Only rows without a type, or with the type still in diagnosis, are touched, so it does nothing once every
+ * document has been migrated. Runs after {@link DocumentSearchBackfill} and {@link DocumentAggregateBackfill} so it
+ * corrects the index entries and counters they built from the old values. Changed documents get a new updatedAt and a
+ * document-updated event, so their ETags change and every instance evicts them from its cache.
+ */
+@Component
+@Order(5)
+@RequiredArgsConstructor
+public class DocumentTypeBackfill implements CommandLineRunner {
+    private final DocumentService documentService;
+
+    @Override
+    public void run(String... args) {
+        documentService.backfillDocumentTypes();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.documents.config;
+
+import com.example.documents.service.ExtractionResultService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves extraction results that older versions appended to document descriptions into extraction_results.
+ * Runs once: completion is recorded in data_migrations, and later boots skip the scan.
+ * Runs after {@link DocumentSearchBackfill}, which would otherwise find the index already started by the documents
+ * re-indexed here and leave every other document out of it.
+ */
+@Component
+@Order(6)
+@RequiredArgsConstructor
+public class ExtractionResultBackfill implements CommandLineRunner {
+    private final ExtractionResultService extractionResultService;
+
+    @Override
+    public void run(String... args) {
+        extractionResultService.migrateDescriptions();
+    }
+}
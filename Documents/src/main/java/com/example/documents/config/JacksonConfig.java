@@ -0,0 +1,30 @@
+package com.example.documents.config;
+
+import com.example.documents.dto.DocumentDTO;
+import com.example.documents.dto.DocumentField;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Lets responses for a fields selection write only the selected document properties.
+ * The filter is attached to {@link DocumentDTO} in the application's mapper only, and writes every property unless a
+ * response supplies {@link DocumentField#filter}; event and other mappers are unaffected.
+ */
+@Configuration
+public class JacksonConfig {
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer documentFieldsFilter() {
+        return builder -> builder
+                .mixIn(DocumentDTO.class, FilteredDocument.class)
+                .filters(new SimpleFilterProvider().setDefaultFilter(SimpleBeanPropertyFilter.serializeAll()));
+    }
+
+    @JsonFilter(DocumentField.FILTER)
+    private interface FilteredDocument {
+    }
+}
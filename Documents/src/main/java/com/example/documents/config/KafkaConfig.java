@@ -1,30 +1,52 @@
 package com.example.documents.config;
 
-import com.example.documents.dto.workflow.DocumentStatusEvent;
-import com.example.documents.dto.workflow.WorkflowEventDTO;
+import com.example.messaging.idempotency.ProcessedEventStore;
+import com.example.messaging.listener.IdempotentMessageListener;
+import com.example.messaging.listener.KeyOrderedExecutor;
+import com.example.messaging.listener.KeyOrderedMessageListener;
+import com.example.messaging.retry.RetryTopicDelayListener;
+import com.example.messaging.retry.RetryTopicRecoverer;
+import com.example.messaging.retry.RetryTopics;
+import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.KafkaException;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
-import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.ListenerContainerPauseService;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.backoff.FixedBackOff;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 @Configuration
+@RequiredArgsConstructor
 public class KafkaConfig {
 
     @Value("${spring.kafka.bootstrap-servers}")
@@ -33,11 +55,76 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
     
+    // Events are keyed by document ID, so raising the partition count spreads documents over more partitions
+    // while each document's events stay on one. Existing topics are grown to this count, never shrunk.
+    @Value("${documents.kafka.partitions:3}")
+    private int partitions;
+    
+    // Consumer threads per listener; each partition is consumed by one thread, so per-document order holds
+    @Value("${documents.kafka.consumer-concurrency:1}")
+    private int concurrency;
+    
+    // Worker lanes shared by all listeners; 0 handles records on the consumer threads
+    @Value("${documents.kafka.listener.lanes:0}")
+    private int lanes;
+    
+    @Value("${documents.kafka.listener.lane-capacity:100}")
+    private int laneCapacity;
+    
+    @Value("${documents.kafka.listener.max-attempts:3}")
+    private int maxAttempts;
+    
+    @Value("${documents.kafka.listener.retry-backoff:200ms}")
+    private Duration retryBackoff;
+    
+    @Value("${documents.kafka.listener.drain-timeout:10s}")
+    private Duration drainTimeout;
+    
+    // Skip records whose event ID header names an event that was already processed
+    @Value("${idempotency.enabled:true}")
+    private boolean idempotencyEnabled;
+    
+    private final ProcessedEventStore processedEventStore;
+    
+    // Most records a status batch listener gets per poll
+    @Value("${documents.kafka.listener.status-batch-size:500}")
+    private int statusBatchSize;
+    
+    // Topics consumed by the service's group; records failing on them move through retry topics to a dead-letter topic
+    private static final List<String> RETRIED_TOPICS = List.of("extraction_response", "document-fields-update",
+            "document-fields-extracted", "document-validated", "document-rejected", "document-published");
+    
+    
+    // Number of retry topics per topic, and the delay of the first; each further one waits multiplier times longer
+    @Value("${documents.kafka.retry.topics:3}")
+    private int retryTopicCount;
+    
+    @Value("${documents.kafka.retry.delay:5s}")
+    private Duration retryDelay;
+    
+    @Value("${documents.kafka.retry.multiplier:4}")
+    private double retryMultiplier;
+    
+    @Value("${documents.kafka.retry.max-delay:10m}")
+    private Duration retryMaxDelay;
+    
+    @Bean
+    public RetryTopics retryTopics() {
+        return new RetryTopics(RETRIED_TOPICS, retryTopicCount, retryDelay, retryMultiplier, retryMaxDelay);
+    }
+    
+    @Bean
+    public KafkaAdmin.NewTopics retryTopicDeclarations() {
+        return new KafkaAdmin.NewTopics(retryTopics().topology().stream()
+                .map(topic -> TopicBuilder.name(topic).partitions(partitions).replicas(1).build())
+                .toArray(NewTopic[]::new));
+    }
+    
     // Document event topics
     @Bean
     public NewTopic documentCreatedTopic() {
         return TopicBuilder.name("document-created")
-                .partitions(3)
+                .partitions(partitions)
                 .replicas(1)
                 .build();
     }
@@ -45,7 +132,7 @@ public class KafkaConfig {
     @Bean
     public NewTopic documentUpdatedTopic() {
         return TopicBuilder.name("document-updated")
-                .partitions(3)
+                .partitions(partitions)
                 .replicas(1)
                 .build();
     }
@@ -53,7 +140,7 @@ public class KafkaConfig {
     @Bean
     public NewTopic documentDeletedTopic() {
         return TopicBuilder.name("document-deleted")
-                .partitions(3)
+                .partitions(partitions)
                 .replicas(1)
                 .build();
     }
@@ -61,7 +148,7 @@ public class KafkaConfig {
     @Bean
     public NewTopic documentUploadedTopic() {
         return TopicBuilder.name("document-uploaded")
-                .partitions(3)
+                .partitions(partitions)
                 .replicas(1)
                 .build();
     }
@@ -70,7 +157,7 @@ public class KafkaConfig {
     @Bean
     public NewTopic medicalDocumentForExtractionTopic() {
         return TopicBuilder.name("medical-document-for-extraction")
-                .partitions(3)
+                .partitions(partitions)
                 .replicas(1)
                 .build();
     }
@@ -79,16 +166,25 @@ public class KafkaConfig {
     @Bean
     public NewTopic extractionResponseTopic() {
         return TopicBuilder.name("extraction-response")
-                .partitions(3)
+                .partitions(partitions)
                 .replicas(1)
                 .build();
     }
     
-    // Workflow event topics - only need to define these for the service to consume them
+    // Notification that extracted fields were applied to a document, for other services to react to
     @Bean
     public NewTopic documentFieldsExtractedTopic() {
         return TopicBuilder.name("document-fields-extracted")
-                .partitions(3)
+                .partitions(partitions)
+                .replicas(1)
+                .build();
+    }
+    
+    // Workflow command and event topics - only need to define these for the service to consume them
+    @Bean
+    public NewTopic documentFieldsUpdateTopic() {
+        return TopicBuilder.name("document-fields-update")
+                .partitions(partitions)
                 .replicas(1)
                 .build();
     }
@@ -96,7 +192,7 @@ public class KafkaConfig {
     @Bean
     public NewTopic documentValidatedTopic() {
         return TopicBuilder.name("document-validated")
-                .partitions(3)
+                .partitions(partitions)
                 .replicas(1)
                 .build();
     }
@@ -104,7 +200,7 @@ public class KafkaConfig {
     @Bean
     public NewTopic documentRejectedTopic() {
         return TopicBuilder.name("document-rejected")
-                .partitions(3)
+                .partitions(partitions)
                 .replicas(1)
                 .build();
     }
@@ -112,83 +208,149 @@ public class KafkaConfig {
     @Bean
     public NewTopic documentPublishedTopic() {
         return TopicBuilder.name("document-published")
-                .partitions(3)
+                .partitions(partitions)
                 .replicas(1)
                 .build();
     }
     
-    // Consumer configurations for general use
+    // Consumer configuration: values stay bytes and are read by EventReader, from JSON or the binary form of the
+    // shared event codecs, so a value that cannot be read reaches the listener and is dead-lettered from there
     @Bean
-    public ConsumerFactory<String, Object> consumerFactory() {
+    public ConsumerFactory<String, byte[]> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
-        props.put(ErrorHandlingDeserializer.KEY_DESERIALIZER_CLASS, StringDeserializer.class);
-        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
-        props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
-        props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
-        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "com.example.documents.dto.workflow.WorkflowEventDTO");
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
         return new DefaultKafkaConsumerFactory<>(props);
     }
     
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> kafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        configureListeners(factory);
         return factory;
     }
 
-    // Consumer configurations for workflow events (using specific type)
+    // Batch listeners for the status topics: a whole poll is applied in one transaction on the consumer thread.
+    // Records are never handed to the lanes; a failed batch is retried as a whole, then each of its records moves to
+    // its first retry topic, which a record listener consumes.
     @Bean
-    public ConsumerFactory<String, WorkflowEventDTO> workflowEventConsumerFactory() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
-        props.put(ErrorHandlingDeserializer.KEY_DESERIALIZER_CLASS, StringDeserializer.class);
-        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
-        
-        JsonDeserializer<WorkflowEventDTO> deserializer = new JsonDeserializer<>(WorkflowEventDTO.class);
-        deserializer.addTrustedPackages("*");
-        deserializer.setUseTypeHeaders(false);
-        
-        return new DefaultKafkaConsumerFactory<>(props, 
-                                               new StringDeserializer(), 
-                                               deserializer);
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> statusBatchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(concurrency);
+        factory.setBatchListener(true);
+        Properties consumerProperties = new Properties();
+        consumerProperties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(statusBatchSize));
+        factory.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(retryTopicRecoverer(),
+                new FixedBackOff(retryBackoff.toMillis(), Math.max(0, maxAttempts - 1))));
+        factory.setContainerCustomizer(this::skipProcessedEvents);
+        return factory;
     }
 
+    // Per-instance cache invalidation: records are read but never acknowledged, so the instance's consumer group holds
+    // no offsets and Kafka drops it once the instance stops. Each start begins at the latest offsets; a record that
+    // fails is logged and skipped, and the cache expiry covers the entry it would have evicted.
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, WorkflowEventDTO> workflowKafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, WorkflowEventDTO> factory =
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> cacheInvalidationKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(workflowEventConsumerFactory());
+        factory.setConsumerFactory(consumerFactory());
+        Properties consumerProperties = new Properties();
+        consumerProperties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        consumerProperties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        factory.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // The container would otherwise commit the initial position of each newly assigned partition
+        factory.getContainerProperties().setAssignmentCommitOption(ContainerProperties.AssignmentCommitOption.NEVER);
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(new FixedBackOff(0, 0));
+        errorHandler.setAckAfterHandle(false);
+        factory.setCommonErrorHandler(errorHandler);
         return factory;
     }
 
-    // Consumer configurations for DocumentStatusEvent
-    @Bean
-    public ConsumerFactory<String, DocumentStatusEvent> documentStatusEventConsumerFactory() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
-        props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
-        props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
-        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "com.example.documents.dto.workflow.DocumentStatusEvent");
-        
-        return new DefaultKafkaConsumerFactory<>(props);
+    @Bean(destroyMethod = "close")
+    public KeyOrderedExecutor listenerLanes() {
+        return new KeyOrderedExecutor("kafka-lane", lanes, laneCapacity);
     }
 
+    /**
+     * Consumer threads and, with lanes configured, key ordered processing for the listeners of a factory.
+     * Records then run on the lanes and offsets are acknowledged by {@link KeyOrderedMessageListener}.
+     * Records that fail {@code max-attempts} times move on to a retry topic in the service's group, and are logged
+     * and skipped in other groups.
+     */
+    private void configureListeners(ConcurrentKafkaListenerContainerFactory<String, ?> factory) {
+        factory.setConcurrency(concurrency);
+        if (lanes > 0) {
+            factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        }
+        factory.setContainerCustomizer(container -> {
+            boolean serviceGroup = groupId.equals(container.getGroupId());
+            ConsumerRecordRecoverer recoverer = serviceGroup ? retryTopicRecoverer() : null;
+            DefaultErrorHandler errorHandler = new DefaultErrorHandler(recoverer,
+                    new FixedBackOff(retryBackoff.toMillis(), Math.max(0, maxAttempts - 1)));
+            // Records the error handler skips must not commit past records still running on the lanes
+            errorHandler.setAckAfterHandle(lanes <= 0);
+            container.setCommonErrorHandler(errorHandler);
+            skipProcessedEvents(container);
+            if (lanes > 0) {
+                KeyOrderedMessageListener.install(container, listenerLanes(), maxAttempts, retryBackoff,
+                        drainTimeout, RetryTopicRecoverer::isRetryable, recoverer);
+            }
+            if (serviceGroup) {
+                // Records held back on retry topics come back through the error handler; failures are logged on moves
+                errorHandler.setLogLevel(KafkaException.Level.DEBUG);
+                RetryTopicDelayListener.install(container, retryTopics(), retryTopicPauses());
+            }
+        });
+    }
+    
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, DocumentStatusEvent> documentStatusKafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, DocumentStatusEvent> factory =
-                new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(documentStatusEventConsumerFactory());
-        return factory;
+    public RetryTopicRecoverer retryTopicRecoverer() {
+        return new RetryTopicRecoverer(retryKafkaTemplate(), retryTopics());
+    }
+    
+    // Resumes retry topic partitions once their records are due
+    @Bean
+    public ListenerContainerPauseService retryTopicPauses() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("retry-topic-resume-");
+        scheduler.setDaemon(true);
+        scheduler.initialize();
+        return new ListenerContainerPauseService(null, scheduler);
+    }
+    
+    // Republishes failed records as they were consumed: raw bytes of event values, strings, or objects as JSON
+    @Bean
+    public KafkaTemplate<Object, Object> retryKafkaTemplate() {
+        Map<Class<?>, Serializer<?>> serializers = new LinkedHashMap<>();
+        serializers.put(byte[].class, new ByteArraySerializer());
+        serializers.put(String.class, new StringSerializer());
+        JsonSerializer<Object> jsonSerializer = new JsonSerializer<>();
+        jsonSerializer.setAddTypeInfo(false);
+        serializers.put(Object.class, jsonSerializer);
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(configProps,
+                new DelegatingByTypeSerializer(serializers, true), new DelegatingByTypeSerializer(serializers, true)));
+    }
+
+    /**
+     * Skip redelivered events in listeners of the service's consumer group. Listeners with a group of their own,
+     * like the per-instance cache invalidation, must see every event and are left alone.
+     */
+    private void skipProcessedEvents(AbstractMessageListenerContainer<String, ?> container) {
+        if (idempotencyEnabled && groupId.equals(container.getGroupId())) {
+            IdempotentMessageListener.install(container, processedEventStore);
+        }
     }
 
     // Producer configurations
@@ -205,4 +367,28 @@ public class KafkaConfig {
     public KafkaTemplate<String, Object> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
+
+    // Producer for the outbox relay: values are already serialized, sent in large compressed batches.
+    // Idempotence keeps retried batches from being written twice or out of order.
+    @Bean
+    public ProducerFactory<String, byte[]> outboxProducerFactory(
+            @Value("${outbox.producer.linger:10ms}") Duration linger,
+            @Value("${outbox.producer.batch-size:65536}") int batchSize,
+            @Value("${outbox.producer.compression:lz4}") String compression) {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, (int) linger.toMillis());
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compression);
+        return new DefaultKafkaProducerFactory<>(configProps);
+    }
+
+    @Bean
+    public KafkaTemplate<String, byte[]> outboxKafkaTemplate(ProducerFactory<String, byte[]> outboxProducerFactory) {
+        return new KafkaTemplate<>(outboxProducerFactory);
+    }
 }
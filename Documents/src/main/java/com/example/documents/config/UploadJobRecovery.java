@@ -0,0 +1,23 @@
+package com.example.documents.config;
+
+import com.example.documents.service.UploadJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Queues the uploads that were accepted but not stored before the service last stopped.
+ * Runs after the backfills, so resumed uploads are stored into migrated tables.
+ */
+@Component
+@Order(7)
+@RequiredArgsConstructor
+public class UploadJobRecovery implements CommandLineRunner {
+    private final UploadJobService uploadJobService;
+
+    @Override
+    public void run(String... args) {
+        uploadJobService.resume();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.documents.controller;
+
+import com.example.documents.dto.response.ApiResponse;
+import com.example.messaging.retry.DeadLetterDTO;
+import com.example.messaging.retry.DeadLetterService;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/dead-letters")
+@RequiredArgsConstructor
+public class DeadLetterController {
+
+    private final DeadLetterService deadLetterService;
+
+    /**
+     * Records of a consumed topic that failed every retry and were not replayed yet, oldest first
+     */
+    @GetMapping("/{topic}")
+    //@PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<DeadLetterDTO>>> getDeadLetters(
+            @PathVariable String topic,
+            @RequestParam(defaultValue = "100") int limit) {
+        checkDeadLetterTopic(topic);
+        return ResponseEntity.ok(ApiResponse.success("Dead letters retrieved successfully",
+                deadLetterService.list(topic, limit)));
+    }
+
+    /**
+     * Publish the oldest dead letters of a topic to the topic again, e.g. once the cause of their failure is fixed
+     */
+    @PostMapping("/{topic}/replay")
+    //@PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Map<String, Integer>>> replayDeadLetters(
+            @PathVariable String topic,
+            @RequestParam(defaultValue = "1000") int limit) {
+        checkDeadLetterTopic(topic);
+        int replayed = deadLetterService.replay(topic, limit);
+        return ResponseEntity.ok(ApiResponse.success("Dead letters replayed successfully",
+                Map.of("replayed", replayed)));
+    }
+
+    // Answered with 404, as Workflow does for topics without a dead-letter topic
+    private void checkDeadLetterTopic(String topic) {
+        if (!deadLetterService.hasDeadLetterTopic(topic)) {
+            throw new EntityNotFoundException("No dead-letter topic for " + topic);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.documents.controller;
+
+import com.example.documents.dto.AggregateDimension;
+import com.example.documents.dto.DocumentAggregate;
+import com.example.documents.dto.response.ApiResponse;
+import com.example.documents.service.DocumentAggregateService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/documents/aggregates")
+@RequiredArgsConstructor
+public class DocumentAggregateController {
+
+    private static final String DEFAULT_PAGE_SIZE = "100";
+
+    private final DocumentAggregateService documentAggregateService;
+
+    /**
+     * Document counts per status for every value of a dimension (status, doctor, patient, diagnosis or day)
+     */
+    @GetMapping("/{dimension}")
+    //@PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<ApiResponse<List<DocumentAggregate>>> getAggregates(
+            @PathVariable String dimension,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+        List<DocumentAggregate> aggregates = documentAggregateService.getAggregates(
+                AggregateDimension.fromKey(dimension), from, to, limit);
+        return ResponseEntity.ok(ApiResponse.success("Document aggregates retrieved successfully", aggregates));
+    }
+
+    /**
+     * Document counts per status for a single value, e.g. {@code /doctor/{doctorId}} or {@code /day/2024-05-01}
+     */
+    @GetMapping("/{dimension}/{key}")
+    //@PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<ApiResponse<DocumentAggregate>> getAggregate(
+            @PathVariable String dimension,
+            @PathVariable String key) {
+        DocumentAggregate aggregate = documentAggregateService.getAggregate(AggregateDimension.fromKey(dimension), key);
+        return ResponseEntity.ok(ApiResponse.success("Document aggregate retrieved successfully", aggregate));
+    }
+
+    /**
+     * Recount every document, e.g. after the counters were changed outside the service
+     */
+    @PostMapping("/rebuild")
+    //@PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Map<String, Long>>> rebuildAggregates() {
+        long documents = documentAggregateService.rebuild();
+        return ResponseEntity.ok(ApiResponse.success("Document aggregates rebuilt successfully",
+                Map.of("documents", documents)));
+    }
+}
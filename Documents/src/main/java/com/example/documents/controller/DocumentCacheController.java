@@ -0,0 +1,28 @@
+package com.example.documents.controller;
+
+import com.example.documents.dto.response.ApiResponse;
+import com.example.documents.service.DocumentCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/documents/cache")
+@RequiredArgsConstructor
+public class DocumentCacheController {
+
+    private final DocumentCache documentCache;
+
+    /**
+     * Hit, miss and eviction statistics of the document cache on this instance
+     */
+    @GetMapping("/stats")
+    //@PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getCacheStats() {
+        return ResponseEntity.ok(ApiResponse.success("Cache statistics retrieved successfully", documentCache.stats()));
+    }
+}
@@ -1,25 +1,50 @@
 package com.example.documents.controller;
 
+import com.example.documents.dto.BulkDocumentRequest;
+import com.example.documents.dto.BulkStatusUpdateRequest;
 import com.example.documents.dto.DocumentDTO;
+import com.example.documents.dto.DocumentExportFilter;
+import com.example.documents.dto.DocumentField;
+import com.example.documents.dto.DocumentSearchHit;
 import com.example.documents.dto.DocumentRequest;
+import com.example.documents.dto.ExtractionResultDTO;
 import com.example.documents.dto.response.ApiResponse;
-import com.example.documents.model.DocumentStatus;
+import com.example.documents.dto.response.CursorPage;
+import com.example.documents.service.DocumentSearchService;
 import com.example.documents.service.DocumentService;
+import com.example.documents.service.ExtractionResultService;
 import com.example.documents.security.JwtTokenProvider;
+import com.example.events.DocumentStatus;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/v1/documents")
@@ -27,20 +52,169 @@ import java.util.UUID;
 public class DocumentController {
     
     private final DocumentService documentService;
+    private final DocumentSearchService documentSearchService;
+    private final ExtractionResultService extractionResultService;
     private final JwtTokenProvider jwtTokenProvider;
+    private final ObjectMapper objectMapper;
+    
+    private static final String DEFAULT_PAGE_SIZE = "50";
+    private static final String DEFAULT_SEARCH_PAGE_SIZE = "20";
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+    // Fields read for the content endpoint
+    private static final Set<DocumentField> CONTENT = DocumentField.parse(DocumentField.DESCRIPTION.attribute(), DocumentField.ALL);
     
     @GetMapping
     //@PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    public ResponseEntity<ApiResponse<List<DocumentDTO>>> getAllDocuments() {
-        List<DocumentDTO> documents = documentService.getAllDocuments();
-        return ResponseEntity.ok(ApiResponse.success("Documents retrieved successfully", documents));
+    public ResponseEntity<MappingJacksonValue> getAllDocuments(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String fields) {
+        Set<DocumentField> selected = DocumentField.parse(fields, DocumentField.SUMMARY);
+        CursorPage<DocumentDTO> documents = documentService.getAllDocuments(cursor, limit, selected);
+        return ResponseEntity.ok(withFields(
+                ApiResponse.success("Documents retrieved successfully", documents), selected));
+    }
+    
+    /**
+     * Full-text search over title, diagnosis and document text, most relevant first.
+     * Snippets are HTML-escaped with matched terms wrapped in {@code <mark>}.
+     */
+    @GetMapping("/search")
+    //@PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<ApiResponse<CursorPage<DocumentSearchHit>>> searchDocuments(
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = DEFAULT_SEARCH_PAGE_SIZE) int limit) {
+        CursorPage<DocumentSearchHit> hits = documentSearchService.search(q, cursor, limit);
+        return ResponseEntity.ok(ApiResponse.success("Search results retrieved successfully", hits));
+    }
+    
+    /**
+     * Stream every document as a JSON array.
+     * Rows are written to the response as they are read, so memory use does not grow with the table.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    //@PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<StreamingResponseBody> streamAllDocuments() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.writeStartArray();
+                documentService.streamAllDocuments(document -> {
+                    try {
+                        generator.writeObject(document);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+    
+    /**
+     * Export documents as newline-delimited JSON, one document per line.
+     * Rows go from a database cursor straight to the response, so heap use stays flat however large the export is.
+     */
+    @GetMapping(value = "/export", produces = NDJSON_MEDIA_TYPE)
+    //@PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportDocuments(
+            @RequestParam(name = "patientId", required = false) List<String> patientIds,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) DocumentStatus status,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        DocumentExportFilter filter = DocumentExportFilter.builder()
+                .patientIds(patientIds)
+                .createdFrom(from)
+                .createdTo(to)
+                .status(status)
+                .build();
+        
+        StreamingResponseBody body = outputStream -> {
+            OutputStream target = gzip ? new GZIPOutputStream(outputStream, EXPORT_BUFFER_SIZE) : outputStream;
+            try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(target)) {
+                long exported = documentService.exportDocuments(filter, document -> {
+                    try {
+                        writer.write(document);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (exported > 0) {
+                    // Terminate the last record too, as NDJSON expects
+                    writer.flush();
+                    target.write('\n');
+                }
+            }
+        };
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON_MEDIA_TYPE))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"documents.ndjson\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
     
     @GetMapping("/{id}")
     //@PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    public ResponseEntity<ApiResponse<DocumentDTO>> getDocumentById(@PathVariable UUID id) {
-        DocumentDTO document = documentService.getDocumentById(id);
-        return ResponseEntity.ok(ApiResponse.success("Document retrieved successfully", document));
+    public ResponseEntity<MappingJacksonValue> getDocumentById(
+            @PathVariable UUID id,
+            @RequestParam(required = false) String fields,
+            WebRequest webRequest) {
+        Set<DocumentField> selected = DocumentField.parse(fields, DocumentField.ALL);
+        
+        // Answer polling clients from the version columns alone when nothing has changed
+        String eTag = documentService.getDocumentETag(id, selected);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        
+        DocumentDTO document = documentService.getDocumentById(id, selected);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                // Let browsers keep the body but revalidate it on every use
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(withFields(ApiResponse.success("Document retrieved successfully", document), selected));
+    }
+    
+    /**
+     * The content of a document (its description) as is, for consumers of document events, which only reference it.
+     * Only the description column is read.
+     */
+    @GetMapping(value = "/{id}/content", produces = MediaType.TEXT_HTML_VALUE + ";charset=UTF-8")
+    //@PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<String> getDocumentContent(@PathVariable UUID id, WebRequest webRequest) {
+        String eTag = documentService.getDocumentETag(id, CONTENT);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
+        String content = documentService.getDocumentById(id, CONTENT).getDescription();
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(content != null ? content : "");
+    }
+
+    /**
+     * Every extraction run of a document, newest first
+     */
+    @GetMapping("/{id}/extractions")
+    //@PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<ApiResponse<List<ExtractionResultDTO>>> getExtractionResults(@PathVariable UUID id) {
+        List<ExtractionResultDTO> results = extractionResultService.getResults(id);
+        return ResponseEntity.ok(ApiResponse.success("Extraction results retrieved successfully", results));
+    }
+    
+    @GetMapping("/{id}/extractions/latest")
+    //@PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<ApiResponse<ExtractionResultDTO>> getLatestExtractionResult(@PathVariable UUID id) {
+        ExtractionResultDTO result = extractionResultService.getLatestResult(id);
+        return ResponseEntity.ok(ApiResponse.success("Extraction result retrieved successfully", result));
     }
     
     @PostMapping
@@ -56,6 +230,22 @@ public class DocumentController {
                 .body(ApiResponse.success("Document created successfully and sent for processing", createdDocument));
     }
     
+    /**
+     * Create up to 1000 documents in a single transaction, e.g. when migrating records from another system
+     */
+    @PostMapping("/batch")
+    //@PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<ApiResponse<List<UUID>>> createDocuments(
+            @Valid @RequestBody BulkDocumentRequest bulkRequest,
+            HttpServletRequest request) {
+        String token = jwtTokenProvider.extractTokenFromHeader(request.getHeader("Authorization"));
+        String userId = jwtTokenProvider.extractUserIdFromToken(token);
+        
+        List<UUID> ids = documentService.createDocuments(bulkRequest.getDocuments(), userId);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(ApiResponse.success(String.format("%d documents created successfully", ids.size()), ids));
+    }
+    
     @PutMapping("/{id}")
     //@PreAuthorize("hasAnyRole('USER', 'ADMIN')")
     public ResponseEntity<ApiResponse<DocumentDTO>> updateDocument(
@@ -78,34 +268,56 @@ public class DocumentController {
     
     @GetMapping("/patient/{patientId}")
     //@PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    public ResponseEntity<ApiResponse<List<DocumentDTO>>> getDocumentsByPatientId(
-            @PathVariable String patientId) {
-        List<DocumentDTO> documents = documentService.getDocumentsByPatientId(patientId);
-        return ResponseEntity.ok(ApiResponse.success("Patient documents retrieved successfully", documents));
+    public ResponseEntity<MappingJacksonValue> getDocumentsByPatientId(
+            @PathVariable String patientId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String fields) {
+        Set<DocumentField> selected = DocumentField.parse(fields, DocumentField.SUMMARY);
+        CursorPage<DocumentDTO> documents = documentService.getDocumentsByPatientId(patientId, cursor, limit, selected);
+        return ResponseEntity.ok(withFields(
+                ApiResponse.success("Patient documents retrieved successfully", documents), selected));
     }
     
     @GetMapping("/User/{UserId}")
     //@PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    public ResponseEntity<ApiResponse<List<DocumentDTO>>> getDocumentsByUserId(
-            @PathVariable String UserId) {
-        List<DocumentDTO> documents = documentService.getDocumentsByDoctorId(UserId);
-        return ResponseEntity.ok(ApiResponse.success("User's documents retrieved successfully", documents));
+    public ResponseEntity<MappingJacksonValue> getDocumentsByUserId(
+            @PathVariable String UserId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String fields) {
+        Set<DocumentField> selected = DocumentField.parse(fields, DocumentField.SUMMARY);
+        CursorPage<DocumentDTO> documents = documentService.getDocumentsByDoctorId(UserId, cursor, limit, selected);
+        return ResponseEntity.ok(withFields(
+                ApiResponse.success("User's documents retrieved successfully", documents), selected));
     }
     
     @GetMapping("/type/{type}")
     //@PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    public ResponseEntity<ApiResponse<List<DocumentDTO>>> getDocumentsByType(
-            @PathVariable String type) {
-        List<DocumentDTO> documents = documentService.getDocumentsByType(type);
-        return ResponseEntity.ok(ApiResponse.success("Documents by type retrieved successfully", documents));
+    public ResponseEntity<MappingJacksonValue> getDocumentsByType(
+            @PathVariable String type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String fields) {
+        Set<DocumentField> selected = DocumentField.parse(fields, DocumentField.SUMMARY);
+        CursorPage<DocumentDTO> documents = documentService.getDocumentsByType(type, cursor, limit, selected);
+        return ResponseEntity.ok(withFields(
+                ApiResponse.success("Documents by type retrieved successfully", documents), selected));
     }
     
     @GetMapping("/department/{department}")
     //@PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    public ResponseEntity<ApiResponse<List<DocumentDTO>>> getDocumentsByDepartment(
-            @PathVariable String department) {
-        List<DocumentDTO> documents = documentService.getDocumentsByDepartment(department);
-        return ResponseEntity.ok(ApiResponse.success("Department documents retrieved successfully", documents));
+    public ResponseEntity<MappingJacksonValue> getDocumentsByDepartment(
+            @PathVariable String department,
+            @RequestParam(required = false) DocumentStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String fields) {
+        Set<DocumentField> selected = DocumentField.parse(fields, DocumentField.SUMMARY);
+        CursorPage<DocumentDTO> documents = documentService.getDocumentsByDepartment(department, status, cursor, limit,
+                selected);
+        return ResponseEntity.ok(withFields(
+                ApiResponse.success("Department documents retrieved successfully", documents), selected));
     }
     
     /**
@@ -113,11 +325,15 @@ public class DocumentController {
      */
     @GetMapping("/status/{status}")
     //@PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    public ResponseEntity<ApiResponse<List<DocumentDTO>>> getDocumentsByStatus(
-            @PathVariable DocumentStatus status) {
-        List<DocumentDTO> documents = documentService.getDocumentsByStatus(status);
-        return ResponseEntity.ok(ApiResponse.success(
-            String.format("Documents with status %s retrieved successfully", status), documents));
+    public ResponseEntity<MappingJacksonValue> getDocumentsByStatus(
+            @PathVariable DocumentStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String fields) {
+        Set<DocumentField> selected = DocumentField.parse(fields, DocumentField.SUMMARY);
+        CursorPage<DocumentDTO> documents = documentService.getDocumentsByStatus(status, cursor, limit, selected);
+        return ResponseEntity.ok(withFields(ApiResponse.success(
+            String.format("Documents with status %s retrieved successfully", status), documents), selected));
     }
     
     /**
@@ -135,6 +351,28 @@ public class DocumentController {
             String.format("Document status updated to %s successfully", status), updatedDocument));
     }
     
+    /**
+     * Change the status of up to 1000 documents at once (Administrative function).
+     * The batch is rejected as a whole with 409 if any document is missing or cannot make its transition.
+     */
+    @PutMapping("/batch/status")
+    //@PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Map<String, Integer>>> updateDocumentStatuses(
+            @Valid @RequestBody BulkStatusUpdateRequest bulkRequest) {
+        int updated = documentService.updateDocumentStatuses(bulkRequest.getUpdates());
+        return ResponseEntity.ok(ApiResponse.success("Document statuses updated successfully",
+                Map.of("updated", updated, "unchanged", bulkRequest.getUpdates().size() - updated)));
+    }
+    
+    /**
+     * Write exactly the selected document properties, including null ones, and leave the others out
+     */
+    private static MappingJacksonValue withFields(Object body, Set<DocumentField> fields) {
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        value.setFilters(DocumentField.filter(fields));
+        return value;
+    }
+    
     @GetMapping("/current-user")
     //@PreAuthorize("hasAnyRole('USER', 'ADMIN')")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getCurrentUser(HttpServletRequest request) {
@@ -1,9 +1,11 @@
 package com.example.documents.controller;
 
 import com.example.documents.dto.DocumentDTO;
+import com.example.documents.dto.UploadJobDTO;
 import com.example.documents.dto.response.ApiResponse;
 import com.example.documents.security.JwtTokenProvider;
 import com.example.documents.service.DocumentService;
+import com.example.documents.service.UploadJobService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,6 +17,8 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.net.URI;
+import java.util.UUID;
 
 /**
  * Controller for handling medical document uploads and processing
@@ -26,6 +30,7 @@ import java.io.IOException;
 public class MedicalDocumentController {
 
     private final DocumentService documentService;
+    private final UploadJobService uploadJobService;
     private final JwtTokenProvider jwtTokenProvider;
     
     /**
@@ -75,4 +80,42 @@ public class MedicalDocumentController {
                     .body(ApiResponse.error(500, "An unexpected error occurred"));
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Accept a medical Word document for processing in the background.
+     * The file is only spooled before the response; its text is read, stored and sent for extraction by a
+     * bounded pool of workers, see {@link UploadJobService}.
+     * 
+     * @param file The Word document file
+     * @param patientId The ID of the patient this document is for
+     * @param documentType The type of medical document (e.g., CARDIOLOGY_REPORT)
+     * @param request HttpServletRequest for extracting the authenticated user
+     * @return 202 with the upload job, whose stage is at the Location URL; 503 if too many uploads are waiting
+     */
+    @PostMapping(value = "/uploads", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<ApiResponse<UploadJobDTO>> submitMedicalDocument(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("patientId") String patientId,
+            @RequestParam("documentType") String documentType,
+            HttpServletRequest request) throws IOException {
+        String token = jwtTokenProvider.extractTokenFromHeader(request.getHeader("Authorization"));
+        String doctorId = jwtTokenProvider.extractUserIdFromToken(token);
+        
+        UploadJobDTO job = uploadJobService.submit(file, patientId, doctorId, documentType);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/medical-documents/uploads/" + job.getJobId()))
+                .body(ApiResponse.success("Medical document accepted for processing", job));
+    }
+    
+    /**
+     * The stage of an upload accepted by {@link #submitMedicalDocument}: QUEUED, PARSING, EXTRACTING, VALIDATING,
+     * then VALIDATED or REJECTED, or FAILED with an error
+     */
+    @GetMapping("/uploads/{jobId}")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<ApiResponse<UploadJobDTO>> getUploadJob(@PathVariable UUID jobId) {
+        return ResponseEntity.ok(ApiResponse.success("Upload job retrieved successfully",
+                uploadJobService.getJob(jobId)));
+    }
+}
@@ -2,9 +2,9 @@ package com.example.documents.controller;
 
 import com.example.documents.dto.DocumentDTO;
 import com.example.documents.dto.response.ApiResponse;
-import com.example.documents.model.DocumentStatus;
 import com.example.documents.security.JwtTokenProvider;
 import com.example.documents.service.DocumentService;
+import com.example.events.DocumentStatus;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -55,13 +55,8 @@ public class MedicalRecordController {
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
     public ResponseEntity<ApiResponse<List<DocumentDTO>>> getMedicalRecordsByPatientId(
             @PathVariable String patientId) {
-        List<DocumentDTO> documents = documentService.getDocumentsByPatientId(patientId);
-        // Filter to include only medical records
-        List<DocumentDTO> medicalRecords = documents.stream()
-                .filter(doc -> doc.getDiagnosis() != null && 
-                              ("MEDICAL_RECORD".equals(doc.getDiagnosis()) || 
-                               "CARDIOLOGY_REPORT".equals(doc.getDiagnosis())))
-                .toList();
+        List<DocumentDTO> medicalRecords = documentService.getDocumentsByPatientIdAndTypes(
+                patientId, DocumentService.MEDICAL_RECORD_TYPES);
         return ResponseEntity.ok(ApiResponse.success("Patient medical records retrieved successfully", medicalRecords));
     }
     
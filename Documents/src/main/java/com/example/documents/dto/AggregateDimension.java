@@ -0,0 +1,40 @@
+package com.example.documents.dto;
+
+import com.example.documents.exception.BadRequestException;
+
+import java.util.Arrays;
+
+/**
+ * Ways the dashboard document counters are broken down
+ */
+public enum AggregateDimension {
+    STATUS("status"),
+    DOCTOR("doctor"),
+    PATIENT("patient"),
+    DIAGNOSIS("diagnosis"),
+    // Day the document was created, as an ISO date
+    DAY("day");
+
+    private final String key;
+
+    AggregateDimension(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Name used in the URL and stored in the aggregates table
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * @throws BadRequestException If the name is not a known dimension
+     */
+    public static AggregateDimension fromKey(String key) {
+        return Arrays.stream(values())
+                .filter(dimension -> dimension.key.equalsIgnoreCase(key))
+                .findFirst()
+                .orElseThrow(() -> new BadRequestException("Unknown aggregate dimension: " + key));
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.documents.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Request DTO for creating many documents in one transaction
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkDocumentRequest {
+
+    public static final int MAX_DOCUMENTS = 1000;
+
+    @NotEmpty(message = "At least one document is required")
+    @Size(max = MAX_DOCUMENTS, message = "At most " + MAX_DOCUMENTS + " documents per request")
+    private List<@Valid DocumentRequest> documents;
+}
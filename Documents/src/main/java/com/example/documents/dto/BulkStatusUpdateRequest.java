@@ -0,0 +1,40 @@
+package com.example.documents.dto;
+
+import com.example.events.DocumentStatus;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Request DTO for changing the status of many documents in one transaction
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusUpdateRequest {
+
+    @NotEmpty(message = "At least one status update is required")
+    @Size(max = BulkDocumentRequest.MAX_DOCUMENTS, message = "At most " + BulkDocumentRequest.MAX_DOCUMENTS + " updates per request")
+    private List<@Valid StatusUpdate> updates;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StatusUpdate {
+        @NotNull(message = "Document ID is required")
+        private UUID id;
+
+        @NotNull(message = "Status is required")
+        private DocumentStatus status;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.documents.dto;
+
+import com.example.events.DocumentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Document counts per status for one value of an aggregate dimension, e.g. one doctor or one day
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentAggregate {
+    private String dimension;
+    private String key;
+    private Map<DocumentStatus, Long> counts;
+    private long total;
+}
@@ -0,0 +1,47 @@
+package com.example.documents.dto;
+
+import com.example.documents.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque keyset cursor over the (createdAt, id) ordering used by document listings.
+ * Encoded as URL-safe Base64 so it can be passed around as a query parameter.
+ */
+public record DocumentCursor(LocalDateTime createdAt, UUID id) {
+
+    private static final String SEPARATOR = "|";
+
+    public static DocumentCursor of(DocumentDTO document) {
+        return new DocumentCursor(document.getCreatedAt(), document.getId());
+    }
+
+    public String encode() {
+        String raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor produced by {@link #encode()}
+     * @param cursor The encoded cursor, may be null or blank for the first page
+     * @return The decoded cursor or null if none was given
+     * @throws BadRequestException If the cursor is malformed
+     */
+    public static DocumentCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            return new DocumentCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid pagination cursor: " + cursor, e);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.documents.dto;
 
-import com.example.documents.model.DocumentStatus;
+import com.example.events.DocumentStatus;
+import com.example.events.KafkaEvent;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -10,17 +11,21 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 /**
- * Data Transfer Object for Document entity
+ * Data Transfer Object for Document entity.
+ * Responses for a fields selection write only the selected properties, see {@link DocumentField#filter}.
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
+@KafkaEvent(type = "Document")
 public class DocumentDTO {
     private UUID id;
     private String title;
     private String patientId;
     private String diagnosis;
+    private String documentType;
+    private String department;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private LocalDateTime statusUpdatedAt;
@@ -0,0 +1,11 @@
+package com.example.documents.dto;
+
+import java.util.UUID;
+
+/**
+ * Projection of the doctors listed on a document, as stored in doctor_ids
+ */
+public interface DocumentDoctorsView {
+    UUID getId();
+    String getDoctorIds();
+}
@@ -0,0 +1,24 @@
+package com.example.documents.dto;
+
+import com.example.events.DocumentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Criteria for a bulk document export; null or empty criteria are not applied
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentExportFilter {
+    private List<String> patientIds; // Patient cohort to export
+    private LocalDateTime createdFrom; // Inclusive
+    private LocalDateTime createdTo; // Exclusive
+    private DocumentStatus status;
+}
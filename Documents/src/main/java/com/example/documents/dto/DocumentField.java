@@ -0,0 +1,109 @@
+package com.example.documents.dto;
+
+import com.example.documents.exception.BadRequestException;
+import com.example.events.DocumentStatus;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Document attributes a client can ask for through the {@code fields} query parameter.
+ * Only the requested columns are selected from the database and copied into the {@link DocumentDTO}.
+ */
+public enum DocumentField {
+
+    ID("id", (dto, value) -> dto.setId((UUID) value)),
+    TITLE("title", (dto, value) -> dto.setTitle((String) value)),
+    PATIENT_ID("patientId", (dto, value) -> dto.setPatientId((String) value)),
+    DIAGNOSIS("diagnosis", (dto, value) -> dto.setDiagnosis((String) value)),
+    DOCUMENT_TYPE("documentType", (dto, value) -> dto.setDocumentType((String) value)),
+    DEPARTMENT("department", (dto, value) -> dto.setDepartment((String) value)),
+    CREATED_AT("createdAt", (dto, value) -> dto.setCreatedAt((LocalDateTime) value)),
+    UPDATED_AT("updatedAt", (dto, value) -> dto.setUpdatedAt((LocalDateTime) value)),
+    STATUS_UPDATED_AT("statusUpdatedAt", (dto, value) -> dto.setStatusUpdatedAt((LocalDateTime) value)),
+    PROCEDURE_DATE("procedureDate", (dto, value) -> dto.setProcedureDate((LocalDateTime) value)),
+    DOCTOR_IDS("doctorIds", (dto, value) -> dto.setDoctorIds((String) value)),
+    DESCRIPTION("description", (dto, value) -> dto.setDescription((String) value)),
+    STATUS("status", (dto, value) -> dto.setStatus((DocumentStatus) value));
+
+    /**
+     * Returned when no fields are requested: everything except the potentially large description
+     */
+    public static final Set<DocumentField> SUMMARY = Collections.unmodifiableSet(
+            EnumSet.complementOf(EnumSet.of(DESCRIPTION)));
+
+    public static final Set<DocumentField> ALL = Collections.unmodifiableSet(EnumSet.allOf(DocumentField.class));
+
+    /**
+     * Id of the Jackson filter on {@link DocumentDTO} responses, which writes every property unless {@link #filter} is
+     * used
+     */
+    public static final String FILTER = "documentFields";
+
+    // Always selected because the keyset cursor is built from them
+    private static final Set<DocumentField> REQUIRED = EnumSet.of(ID, CREATED_AT);
+
+    private final String attribute;
+    private final BiConsumer<DocumentDTO, Object> setter;
+
+    DocumentField(String attribute, BiConsumer<DocumentDTO, Object> setter) {
+        this.attribute = attribute;
+        this.setter = setter;
+    }
+
+    /**
+     * Name of the entity attribute and of the JSON property
+     */
+    public String attribute() {
+        return attribute;
+    }
+
+    public void apply(DocumentDTO dto, Object value) {
+        setter.accept(dto, value);
+    }
+
+    /**
+     * Parse a comma-separated field list such as {@code title,status}.
+     * @param fields The requested fields, or null/blank for the default
+     * @param defaults Fields to use when none are requested
+     * @return The requested fields plus the id and createdAt needed for paging
+     * @throws BadRequestException If an unknown field is requested
+     */
+    public static Set<DocumentField> parse(String fields, Set<DocumentField> defaults) {
+        if (fields == null || fields.isBlank()) {
+            return defaults;
+        }
+        Set<DocumentField> selected = EnumSet.copyOf(REQUIRED);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (!trimmed.isEmpty()) {
+                selected.add(fromAttribute(trimmed));
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Filters a response down to exactly the given fields of its documents, null or not
+     */
+    public static FilterProvider filter(Set<DocumentField> fields) {
+        return new SimpleFilterProvider().addFilter(FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(
+                fields.stream().map(DocumentField::attribute).collect(Collectors.toSet())));
+    }
+
+    private static DocumentField fromAttribute(String name) {
+        return Arrays.stream(values())
+                .filter(field -> field.attribute.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new BadRequestException("Unknown document field: " + name));
+    }
+}
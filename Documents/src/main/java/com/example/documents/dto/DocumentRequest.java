@@ -1,6 +1,6 @@
 package com.example.documents.dto;
 
-import com.example.documents.model.DocumentStatus;
+import com.example.events.DocumentStatus;
 import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -25,6 +25,10 @@ public class DocumentRequest {
     
     private String diagnosis;
     
+    private String documentType; // e.g. MEDICAL_RECORD or CARDIOLOGY_REPORT
+    
+    private String department;
+    
     private LocalDateTime procedureDate;
     
     private String doctorIds; // Comma-separated list of doctor IDs
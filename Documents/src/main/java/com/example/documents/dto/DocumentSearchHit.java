@@ -0,0 +1,28 @@
+package com.example.documents.dto;
+
+import com.example.events.DocumentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One full-text search result: a document summary plus the best matching fragment
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentSearchHit {
+    private UUID id;
+    private String title;
+    private String patientId;
+    private String diagnosis;
+    private DocumentStatus status;
+    private LocalDateTime createdAt;
+    private String snippet; // HTML-escaped text with matched terms wrapped in <mark>
+    private double score; // bm25 rank, lower is more relevant
+}
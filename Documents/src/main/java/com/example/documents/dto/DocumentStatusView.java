@@ -0,0 +1,18 @@
+package com.example.documents.dto;
+
+
+import com.example.events.DocumentStatus;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Projection of the columns a status change depends on: the status itself and the dashboard aggregate keys
+ */
+public interface DocumentStatusView {
+    UUID getId();
+    DocumentStatus getStatus();
+    String getPatientId();
+    String getDiagnosis();
+    String getDoctorIds();
+    LocalDateTime getCreatedAt();
+}
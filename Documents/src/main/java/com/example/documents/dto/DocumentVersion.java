@@ -0,0 +1,11 @@
+package com.example.documents.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of the columns that change whenever a document does; used to answer conditional requests
+ */
+public interface DocumentVersion {
+    LocalDateTime getUpdatedAt();
+    LocalDateTime getStatusUpdatedAt();
+}
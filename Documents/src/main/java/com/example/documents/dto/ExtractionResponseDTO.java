@@ -0,0 +1,22 @@
+package com.example.documents.dto;
+
+import com.example.events.KafkaEvent;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Response of the extractor service: the document content reformatted as a JSON string
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@KafkaEvent(type = "ExtractionResponse")
+public class ExtractionResponseDTO {
+    @JsonProperty("document_id")
+    private UUID documentId;
+    private String formatted;
+}
@@ -0,0 +1,32 @@
+package com.example.documents.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One extraction run of a document: the typed fields plus the extracted JSON as received
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExtractionResultDTO {
+    private UUID id;
+    private UUID documentId;
+    private int run;
+    private String source;
+    private LocalDateTime extractedAt;
+    private LocalDate procedureDate;
+    private String patientId;
+    private List<String> operators;
+    private String diagnosis;
+    private JsonNode payload; // Null if the stored payload is not valid JSON
+}
@@ -0,0 +1,26 @@
+package com.example.documents.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An upload accepted for background processing and how far it got
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadJobDTO {
+    private UUID jobId;
+    private UploadStage stage;
+    private String filename;
+    private UUID documentId; // Set from EXTRACTING on
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt; // Last stored change; later stages are read from the document
+}
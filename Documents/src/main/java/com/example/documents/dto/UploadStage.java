@@ -0,0 +1,21 @@
+package com.example.documents.dto;
+
+/**
+ * Where an upload accepted for background processing is, in the order uploads go through them
+ */
+public enum UploadStage {
+    // Spooled, waiting for a worker
+    QUEUED,
+    // A worker is reading the text out of the file
+    PARSING,
+    // Stored as a document and sent to the extractor
+    EXTRACTING,
+    // Extracted fields applied, waiting for a reviewer
+    VALIDATING,
+    VALIDATED,
+    REJECTED,
+    // The file could not be read or stored, see the job's error
+    FAILED,
+    // The document was deleted after it was stored
+    DELETED
+}
@@ -0,0 +1,15 @@
+package com.example.documents.exception;
+
+/**
+ * Thrown when a request parameter is malformed, e.g. a cursor that was not issued by this service; answered with 400
+ */
+public class BadRequestException extends RuntimeException {
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+
+    public BadRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
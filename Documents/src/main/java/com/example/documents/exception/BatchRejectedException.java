@@ -0,0 +1,24 @@
+package com.example.documents.exception;
+
+import java.util.Map;
+
+/**
+ * Thrown when a batch request cannot be applied as a whole; nothing from the batch is written
+ */
+public class BatchRejectedException extends RuntimeException {
+
+    private final Map<String, String> errors;
+
+    /**
+     * @param message Summary of why the batch was rejected
+     * @param errors Problem per item, keyed by document ID
+     */
+    public BatchRejectedException(String message, Map<String, String> errors) {
+        super(message);
+        this.errors = errors;
+    }
+
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+}
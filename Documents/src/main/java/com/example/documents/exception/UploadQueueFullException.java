@@ -0,0 +1,23 @@
+package com.example.documents.exception;
+
+import java.time.Duration;
+
+/**
+ * Thrown when an upload cannot be accepted because the background upload queue is full; nothing is stored
+ */
+public class UploadQueueFullException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    /**
+     * @param retryAfter How long the client should wait before trying again
+     */
+    public UploadQueueFullException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
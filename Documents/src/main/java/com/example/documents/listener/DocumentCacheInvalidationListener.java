@@ -0,0 +1,68 @@
+package com.example.documents.listener;
+
+import com.example.documents.service.DocumentCache;
+import com.example.documents.service.EventReader;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Keeps the document cache of every Documents instance coherent.
+ * Each instance joins its own consumer group, so every instance sees every change event,
+ * including changes applied by another instance. The group never commits offsets, so it leaves nothing behind
+ * once the instance stops.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentCacheInvalidationListener {
+
+    private final DocumentCache documentCache;
+    private final EventReader eventReader;
+
+    @KafkaListener(
+        topics = {
+            "document-updated",
+            "document-deleted",
+            "document-fields-update",
+            "document-fields-extracted",
+            "document-validated",
+            "document-rejected",
+            "document-published"
+        },
+        groupId = "${spring.kafka.consumer.group-id}-cache-${random.uuid}",
+        // Only changes made from now on matter to a freshly started cache, and none are acknowledged
+        containerFactory = "cacheInvalidationKafkaListenerContainerFactory"
+    )
+    public void handleDocumentChanged(ConsumerRecord<String, byte[]> record) {
+        UUID documentId = extractDocumentId(record);
+        if (documentId == null) {
+            log.warn("Could not find a document ID in {} event, clearing the document cache", record.topic());
+            documentCache.clear();
+            return;
+        }
+        documentCache.evict(documentId);
+        log.debug("Evicted document {} from cache after {} event", documentId, record.topic());
+    }
+
+    /**
+     * Change events are keyed by document ID; only unkeyed ones need their value read
+     */
+    private UUID extractDocumentId(ConsumerRecord<String, byte[]> record) {
+        UUID documentId = EventReader.documentKey(record.key());
+        if (documentId != null) {
+            return documentId;
+        }
+        try {
+            Object event = eventReader.read(record);
+            return event != null ? eventReader.documentId(record, event) : null;
+        } catch (MessageConversionException e) {
+            return null;
+        }
+    }
+}
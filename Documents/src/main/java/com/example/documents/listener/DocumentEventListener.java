@@ -1,19 +1,33 @@
 package com.example.documents.listener;
 
-import com.example.documents.dto.workflow.WorkflowEventDTO;
-import com.example.documents.dto.workflow.DocumentStatusEvent;
-import com.example.documents.model.Document;
-import com.example.documents.model.DocumentStatus;
-import com.example.documents.repository.DocumentRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.documents.service.DocumentService;
+import com.example.documents.service.EventReader;
+import com.example.documents.service.ExtractionResultService;
+import com.example.events.DocumentEvent;
+import com.example.events.DocumentFieldsEvent;
+import com.example.events.DocumentStatus;
+import com.example.messaging.EventEnvelope;
+import com.example.messaging.idempotency.ProcessedEventStore;
+import com.example.messaging.retry.RetryTopicRecoverer;
+import com.example.messaging.retry.RetryTopics;
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.messaging.converter.MessageConversionException;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Component
@@ -21,199 +35,156 @@ import java.util.UUID;
 @Slf4j
 public class DocumentEventListener {
 
+    private static final String TOPIC_DOCUMENT_FIELDS_UPDATE = "document-fields-update";
+    // Workflow sent its field updates here before they had a topic of their own; the service's own extraction
+    // notifications share the topic and are skipped
     private static final String TOPIC_DOCUMENT_FIELDS_EXTRACTED = "document-fields-extracted";
     private static final String TOPIC_DOCUMENT_VALIDATED = "document-validated";
     private static final String TOPIC_DOCUMENT_REJECTED = "document-rejected";
+    private static final String TOPIC_DOCUMENT_PUBLISHED = "document-published";
     
-    private final DocumentRepository documentRepository;
-    private final ObjectMapper objectMapper;
+    private final DocumentService documentService;
+    private final ExtractionResultService extractionResultService;
+    private final EventReader eventReader;
+    private final RetryTopicRecoverer retryTopicRecoverer;
+    private final ProcessedEventStore processedEventStore;
+    
+    @Value("${spring.application.name}")
+    private String origin;
     
     /**
-     * Helper method to extract document ID from a Kafka consumer record
-     * 
-     * @param eventObj Kafka consumer record
-     * @return UUID of the document or null if it couldn't be extracted
+     * Handle the status events of a poll together.
+     * Events are folded per document into its final status, so a burst of extraction, validation and publication
+     * events costs one status read and one write per distinct transition for the whole poll.
+     * Records that cannot be read are moved to the dead-letter topic once the rest of the poll is committed.
+     * Events this service published itself were applied when they were published, so they are skipped.
      */
-    private UUID extractDocumentId(ConsumerRecord<String, String> eventObj) {
-        try {
-            // First try to get the ID from the key
-            if (eventObj.key() != null) {
-                try {
-                    // Try to parse directly as UUID (for direct UUID strings)
-                    UUID id = UUID.fromString(eventObj.key());
-                    log.info("Extracted document ID as UUID from key: {}", id);
-                    return id;
-                } catch (IllegalArgumentException e) {
-                    log.error("Key is not a valid UUID: {}", eventObj.key());
-                }
+    @KafkaListener(
+        topics = {TOPIC_DOCUMENT_FIELDS_UPDATE, TOPIC_DOCUMENT_FIELDS_EXTRACTED, TOPIC_DOCUMENT_VALIDATED,
+                TOPIC_DOCUMENT_REJECTED, TOPIC_DOCUMENT_PUBLISHED},
+        groupId = "${spring.kafka.consumer.group-id}",
+        containerFactory = "statusBatchKafkaListenerContainerFactory"
+    )
+    @Transactional
+    public void handleStatusEvents(List<ConsumerRecord<String, byte[]>> records) {
+        log.info("Received {} document status events", records.size());
+        
+        Map<UUID, List<DocumentService.StatusChange>> changes = new LinkedHashMap<>();
+        Map<UUID, List<JsonNode>> extractedFields = new LinkedHashMap<>();
+        List<DeadLetter> deadLetters = new ArrayList<>();
+        // A poll lists records partition by partition; timestamps restore the order across topics
+        List<ConsumerRecord<String, byte[]>> ordered = records.stream()
+                .sorted(Comparator.comparingLong(ConsumerRecord::timestamp))
+                .toList();
+        int skipped = 0;
+        for (ConsumerRecord<String, byte[]> eventObj : ordered) {
+            if (EventEnvelope.isFrom(eventObj, origin)) {
+                skipped++;
+                continue;
             }
-            
-            // If key is null or invalid, try to parse from value
+            Object event;
             try {
-                // Try to parse as DocumentStatusEvent
-                DocumentStatusEvent event = objectMapper.readValue(eventObj.value(), DocumentStatusEvent.class);
-                
-                UUID documentId = event.getDocumentId();
-                if (documentId != null) {
-                    log.info("Processed as DocumentStatusEvent with UUID: {}", documentId);
-                    return documentId;
-                } else {
-                    log.error("DocumentStatusEvent has null documentId");
-                }
-                
-            } catch (Exception e) {
-                try {
-                    // Try to parse as WorkflowEventDTO
-                    WorkflowEventDTO event = objectMapper.readValue(eventObj.value(), WorkflowEventDTO.class);
-                    try {
-                        UUID documentId = event.getDocumentId();
-                        
-                        log.info("Processed as WorkflowEventDTO with ID: {} (converted to UUID: {})", documentId);
-                        return documentId;
-                    } catch (Exception ex) {
-                        log.error("Failed to convert WorkflowEventDTO ID to UUID", ex);
-                    }
-                } catch (Exception ex) {
-                    log.error("Could not parse document ID from event value", ex);
-                }
+                event = eventReader.read(eventObj);
+            } catch (MessageConversionException e) {
+                deadLetters.add(deadLetter(eventObj, e));
+                continue;
+            }
+            if (event == null) {
+                continue;
+            }
+            // Extraction notifications published before the origin header existed
+            if (event instanceof DocumentEvent) {
+                skipped++;
+                continue;
             }
+            final UUID documentId = eventReader.documentId(eventObj, event);
+            if (documentId == null) {
+                deadLetters.add(deadLetter(eventObj, new MessageConversionException(
+                        "No document ID in " + eventObj.topic() + " event")));
+                continue;
+            }
+            changes.computeIfAbsent(documentId, id -> new ArrayList<>())
+                    .add(toStatusChange(RetryTopics.baseTopic(eventObj.topic())));
             
-            return null;
-        } catch (Exception e) {
-            log.error("Error extracting document ID", e);
-            return null;
+            if (event instanceof DocumentFieldsEvent fieldsEvent) {
+                JsonNode fields = extractionResultService.parseExtractedFields(fieldsEvent.getExtractedFields());
+                if (fields != null) {
+                    extractedFields.computeIfAbsent(documentId, id -> new ArrayList<>()).add(fields);
+                }
+            }
         }
+        
+        Set<UUID> updated = documentService.applyStatusChanges(changes);
+        extractedFields.keySet().retainAll(updated);
+        extractionResultService.recordAll(TOPIC_DOCUMENT_FIELDS_UPDATE, extractedFields);
+        sendAfterCommit(deadLetters);
+        log.info("Applied {} status events to {} of {} documents, skipped {} of this service",
+                changes.values().stream().mapToInt(List::size).sum(), updated.size(), changes.size(), skipped);
     }
     
     /**
-     * Handle document field extraction events
+     * Take a record out of the poll; the poll's transaction must not claim its event ID, which would keep its copy out
      */
-    @KafkaListener(topics = TOPIC_DOCUMENT_FIELDS_EXTRACTED, groupId = "${spring.kafka.consumer.group-id}")
-    @Transactional
-    public void handleDocumentFieldsExtracted(ConsumerRecord<String, String> eventObj) {
-        log.info("Received document fields extraction event type: {}", eventObj.getClass().getName());
-        
-        try {
-            final UUID documentId = extractDocumentId(eventObj);
-            if (documentId == null) {
-                log.error("Could not extract document ID from event");
-                return;
-            }
-            
-            final String extractedData = eventObj.value();
-            
-            documentRepository.findById(documentId).ifPresentOrElse(
-                document -> {
-                    document.setStatus(DocumentStatus.PENDING); // Use PENDING instead of PROCESSING
-                    
-                    // Store extracted data in description field since Document model doesn't have extractedMetadata field
-                    String currentDescription = document.getDescription() != null ? document.getDescription() : "";
-                    String newDescription = currentDescription + "\n\n--- EXTRACTED DATA ---\n" + extractedData;
-                    document.setDescription(newDescription);
-                    
-                    document.setStatusUpdatedAt(LocalDateTime.now());
-                    documentRepository.save(document);
-                    log.info("Updated document {} with extracted fields", documentId);
-                },
-                () -> log.error("Document with ID {} not found", documentId)
-            );
-        } catch (Exception e) {
-            log.error("Error processing document fields extraction event", e);
-        }
+    private DeadLetter deadLetter(ConsumerRecord<String, byte[]> record, RuntimeException e) {
+        processedEventStore.release(EventEnvelope.header(record, EventEnvelope.EVENT_ID_HEADER));
+        return new DeadLetter(record, e);
     }
     
     /**
-     * Handle document validation events
+     * Publish the records taken out of the poll once its transaction commits, so a rollback redelivers them with
+     * the rest of the poll instead of leaving copies on the dead-letter topic. A failed send throws to the
+     * container, which redelivers the poll; its applied events are skipped as processed.
      */
-    @KafkaListener(
-        topics = TOPIC_DOCUMENT_VALIDATED, 
-        groupId = "${spring.kafka.consumer.group-id}", 
-        containerFactory = "documentStatusKafkaListenerContainerFactory"
-    )
-    @Transactional
-    public void handleDocumentValidated(DocumentStatusEvent event) {
-        log.info("Received document validated event for document ID: {}", event.getDocumentId());
-        
-        try {
-            // Use the UUID document ID directly
-            final UUID documentId = event.getDocumentId();
-            log.info("Processing document with UUID: {}", documentId);
-            
-            // Update document status in repository
-            documentRepository.findById(documentId).ifPresentOrElse(
-                document -> {
-                    document.setStatus(DocumentStatus.VALIDATED);
-                    document.setStatusUpdatedAt(LocalDateTime.now());
-                    
-                    documentRepository.save(document);
-                    log.info("Updated document {} status to VALIDATED", documentId);
-                },
-                () -> log.error("Document with ID {} not found", documentId)
-            );
-        } catch (Exception e) {
-            log.error("Error processing document validated event", e);
+    private void sendAfterCommit(List<DeadLetter> deadLetters) {
+        if (deadLetters.isEmpty()) {
+            return;
         }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deadLetters.forEach(this::send);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deadLetters.forEach(DocumentEventListener.this::send);
+            }
+        });
+    }
+    
+    private void send(DeadLetter deadLetter) {
+        retryTopicRecoverer.accept(deadLetter.record(), deadLetter.exception());
+    }
+    
+    private record DeadLetter(ConsumerRecord<String, byte[]> record, RuntimeException exception) {
     }
     
     /**
-     * Handle document rejection events
+     * Handle a status event that failed before, once the delay of its retry topic has passed.
+     * Retries are rare, so they are consumed one at a time on the record listener lanes.
      */
     @KafkaListener(
-        topics = TOPIC_DOCUMENT_REJECTED, 
+        topics = "#{@retryTopics.retryTopicsOf('" + TOPIC_DOCUMENT_FIELDS_UPDATE + "', '" + TOPIC_DOCUMENT_FIELDS_EXTRACTED
+                + "', '" + TOPIC_DOCUMENT_VALIDATED + "', '" + TOPIC_DOCUMENT_REJECTED + "', '"
+                + TOPIC_DOCUMENT_PUBLISHED + "')}",
         groupId = "${spring.kafka.consumer.group-id}",
-        containerFactory = "documentStatusKafkaListenerContainerFactory"
+        containerFactory = "kafkaListenerContainerFactory"
     )
     @Transactional
-    public void handleDocumentRejected(DocumentStatusEvent event) {
-        log.info("Received document rejected event for document ID: {}", event.getDocumentId());
-        
-        try {
-            // Use the UUID document ID directly
-            final UUID documentId = event.getDocumentId();
-            log.info("Processing document with UUID: {}", documentId);
-            
-            documentRepository.findById(documentId).ifPresentOrElse(
-                document -> {
-                    document.setStatus(DocumentStatus.REJECTED);
-                    document.setStatusUpdatedAt(LocalDateTime.now());
-                    documentRepository.save(document);
-                    log.info("Updated document {} status to REJECTED", documentId);
-                },
-                () -> log.error("Document with ID {} not found", documentId)
-            );
-        } catch (Exception e) {
-            log.error("Error processing document rejected event", e);
-        }
+    public void handleRetriedStatusEvent(ConsumerRecord<String, byte[]> record) {
+        handleStatusEvents(List.of(record));
     }
     
     /**
-     * Additional listener for document publication event from workflow
+     * The status change an event asks for.
+     * New extracted fields put the document back to PENDING for review whatever its status; a published event
+     * confirms the validation, as there is no PUBLISHED status.
      */
-    @KafkaListener(
-        topics = "document-published", 
-        groupId = "${spring.kafka.consumer.group-id}",
-        containerFactory = "documentStatusKafkaListenerContainerFactory"
-    )
-    @Transactional
-    public void handleDocumentPublished(DocumentStatusEvent event) {
-        log.info("Received document published event for document ID: {}", event.getDocumentId());
-        
-        try {
-            // Use the UUID document ID directly
-            final UUID documentId = event.getDocumentId();
-            log.info("Processing document with UUID: {}", documentId);
-            
-            documentRepository.findById(documentId).ifPresentOrElse(
-                document -> {
-                    document.setStatus(DocumentStatus.VALIDATED); // Use VALIDATED instead of PUBLISHED
-                    document.setStatusUpdatedAt(LocalDateTime.now());
-                    documentRepository.save(document);
-                    log.info("Updated document {} status to VALIDATED (from publish event)", documentId);
-                },
-                () -> log.error("Document with ID {} (UUID: {}) not found", documentId)
-            );
-        } catch (Exception e) {
-            log.error("Error processing document published event", e);
-        }
+    private static DocumentService.StatusChange toStatusChange(String topic) {
+        return switch (topic) {
+            case TOPIC_DOCUMENT_FIELDS_UPDATE, TOPIC_DOCUMENT_FIELDS_EXTRACTED ->
+                    new DocumentService.StatusChange(DocumentStatus.PENDING, true);
+            case TOPIC_DOCUMENT_REJECTED -> new DocumentService.StatusChange(DocumentStatus.REJECTED, false);
+            default -> new DocumentService.StatusChange(DocumentStatus.VALIDATED, false);
+        };
     }
-}
\ No newline at end of file
+}
@@ -1,16 +1,25 @@
 package com.example.documents.listener;
 
-import com.example.documents.dto.DocumentDTO;
+import com.example.documents.dto.ExtractionResponseDTO;
 import com.example.documents.model.Document;
-import com.example.documents.model.DocumentStatus;
 import com.example.documents.repository.DocumentRepository;
+import com.example.documents.service.DocumentAggregateService;
+import com.example.documents.service.DocumentCache;
+import com.example.documents.service.DocumentDoctorService;
+import com.example.documents.service.DocumentEvents;
+import com.example.documents.service.DocumentSearchService;
+import com.example.documents.service.EventReader;
+import com.example.documents.service.ExtractionResultService;
+import com.example.events.DocumentStatus;
+import com.example.messaging.outbox.OutboxService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.messaging.converter.MessageConversionException;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -32,138 +41,130 @@ import java.util.UUID;
 public class ExtractionListener {
 
     private final DocumentRepository documentRepository;
+    private final DocumentDoctorService documentDoctorService;
+    private final DocumentSearchService documentSearchService;
+    private final DocumentCache documentCache;
+    private final DocumentAggregateService documentAggregateService;
+    private final ExtractionResultService extractionResultService;
     private final ObjectMapper objectMapper;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OutboxService outboxService;
+    private final EventReader eventReader;
     
+    private static final String TOPIC_EXTRACTION_RESPONSE = "extraction_response";
     private static final String TOPIC_DOCUMENT_FIELDS_EXTRACTED = "document-fields-extracted";
 
     /**
-     * Listen for extraction responses from the extractor service
+     * Listen for extraction responses from the extractor service, and for responses that failed before once the
+     * delay of their retry topic has passed
      */
-    @KafkaListener(topics = "extraction_response", groupId = "${spring.kafka.consumer.group-id}")
+    @KafkaListener(
+        topics = {TOPIC_EXTRACTION_RESPONSE, "#{@retryTopics.retryTopicsOf('" + TOPIC_EXTRACTION_RESPONSE + "')}"},
+        groupId = "${spring.kafka.consumer.group-id}",
+        containerFactory = "kafkaListenerContainerFactory"
+    )
     @Transactional
-    public void handleExtractionResponse(String message) {
-        log.info("Received extraction response: {}", message);
+    public void handleExtractionResponse(ConsumerRecord<String, byte[]> record) {
+        log.info("Received extraction response for key {} at {}@{}", record.key(), record.topic(), record.offset());
         
+        Object event = eventReader.read(record);
+        if (!(event instanceof ExtractionResponseDTO response)) {
+            throw new MessageConversionException("No extraction response at " + record.topic() + "@" + record.offset());
+        }
+        UUID documentId = eventReader.documentId(record, event);
+        if (documentId == null) {
+            throw new MessageConversionException("Extraction response without a document ID at " + record.topic()
+                    + "@" + record.offset());
+        }
+        
+        // Get the formatted extraction result
+        String formattedContent = response.getFormatted();
+        
+        log.info("Processing extraction for document ID: {}", documentId);
+        
+        // Retrieve the document from the database; it may have been deleted while it was being extracted
+        Document document = documentRepository.findById(documentId).orElse(null);
+        if (document == null) {
+            log.error("Document with ID {} not found", documentId);
+            return;
+        }
+        
+        // Parse the formatted content
+        JsonNode extractedData;
         try {
-            // Parse the message
-            JsonNode responseJson = objectMapper.readTree(message);
-            String documentIdStr = responseJson.get("document_id").asText();
-            UUID documentId = UUID.fromString(documentIdStr);
-            
-            // Get the formatted extraction result
-            String formattedContent = responseJson.get("formatted").asText();
-            
-            log.info("Processing extraction for document ID: {}", documentId);
-            
-            // Retrieve the document from the database
-            documentRepository.findById(documentId).ifPresentOrElse(
-                document -> {
-                    try {
-                        // Parse the formatted content
-                        JsonNode extractedData = objectMapper.readTree(formattedContent);
-                        
-                        // Apply extracted data to document
-                        updateDocumentWithExtractedData(document, extractedData);
-                        
-                        // Save the document with extracted data
-                        Document savedDocument = documentRepository.save(document);
-                        
-                        // Notify workflow service that fields were extracted
-                        notifyFieldsExtracted(savedDocument);
-                        
-                        log.info("Document {} updated with extracted data", documentId);
-                    } catch (JsonProcessingException e) {
-                        log.error("Error parsing extraction response for document {}: {}", documentId, e.getMessage(), e);
-                    }
-                },
-                () -> log.error("Document with ID {} not found", documentId)
-            );
-        } catch (Exception e) {
-            log.error("Error processing extraction response: {}", e.getMessage(), e);
+            extractedData = objectMapper.readTree(formattedContent);
+        } catch (JsonProcessingException e) {
+            throw new MessageConversionException("Unreadable extraction for document " + documentId, e);
         }
+        
+        DocumentAggregateService.Snapshot before = DocumentAggregateService.Snapshot.of(document);
+        
+        // Apply extracted data to document
+        updateDocumentWithExtractedData(document, extractedData);
+        
+        // Save the document with extracted data and keep the full result as a new extraction run
+        Document savedDocument = documentRepository.save(document);
+        extractionResultService.record(documentId, TOPIC_EXTRACTION_RESPONSE, extractedData);
+        documentSearchService.index(savedDocument);
+        documentAggregateService.apply(before, DocumentAggregateService.Snapshot.of(savedDocument));
+        documentCache.evictAfterCommit(documentId);
+        
+        // Notify other services that fields were extracted
+        notifyFieldsExtracted(savedDocument);
+        
+        log.info("Document {} updated with extracted data", documentId);
     }
     
     /**
      * Update document with extracted data from medical document
      */
     private void updateDocumentWithExtractedData(Document document, JsonNode extractedData) {
-        try {
-            // Since Document model doesn't have extractedMetadata field, we'll store relevant data in the description
-            StringBuilder enhancedDescription = new StringBuilder(document.getDescription() != null ? document.getDescription() : "");
-            enhancedDescription.append("\n\n--- EXTRACTED DATA ---\n");
-            enhancedDescription.append(extractedData.toString());
-            document.setDescription(enhancedDescription.toString());
-            
-            // Process procedure date
-            if (extractedData.has("date") && !extractedData.get("date").isNull()) {
-                String dateStr = extractedData.get("date").asText();
-                try {
-                    LocalDate date = LocalDate.parse(dateStr);
-                    document.setProcedureDate(date.atStartOfDay());
-                } catch (DateTimeParseException e) {
-                    log.warn("Invalid date format in extraction: {}", dateStr);
-                }
+        // Process procedure date
+        if (extractedData.has("date") && !extractedData.get("date").isNull()) {
+            String dateStr = extractedData.get("date").asText();
+            try {
+                LocalDate date = LocalDate.parse(dateStr);
+                document.setProcedureDate(date.atStartOfDay());
+            } catch (DateTimeParseException e) {
+                log.warn("Invalid date format in extraction: {}", dateStr);
             }
-            
-            // Process patient ID
-            if (extractedData.has("patientId") && !extractedData.get("patientId").isNull()) {
-                // Update patient ID only if it wasn't already set
-                if (document.getPatientId() == null || document.getPatientId().trim().isEmpty()) {
-                    String patientId = extractedData.get("patientId").asText();
-                    document.setPatientId(patientId);
-                }
-            }
-            
-            // Process doctor IDs
-            if (extractedData.has("operators") && extractedData.get("operators").isArray()) {
-                JsonNode operators = extractedData.get("operators");
-                List<String> operatorsList = new ArrayList<>();
-                operators.forEach(operator -> operatorsList.add(operator.asText()));
-                // Store operators as comma-separated list in doctorIds field
-                document.setDoctorIds(String.join(",", operatorsList));
-            }
-            
-            // Process diagnosis if available
-            if (extractedData.has("diagnosis") && !extractedData.get("diagnosis").isNull()) {
-                String diagnosis = extractedData.get("diagnosis").asText();
-                document.setDiagnosis(diagnosis);
+        }
+        
+        // Process patient ID
+        if (extractedData.has("patientId") && !extractedData.get("patientId").isNull()) {
+            // Update patient ID only if it wasn't already set
+            if (document.getPatientId() == null || document.getPatientId().trim().isEmpty()) {
+                String patientId = extractedData.get("patientId").asText();
+                document.setPatientId(patientId);
             }
-            
-            // Update document status
-            document.setStatus(DocumentStatus.PENDING); // Keep as PENDING during processing
-            document.setStatusUpdatedAt(LocalDateTime.now());
-            
-        } catch (Exception e) {
-            log.error("Error updating document with extracted data: {}", e.getMessage(), e);
         }
+        
+        // Process doctor IDs
+        if (extractedData.has("operators") && extractedData.get("operators").isArray()) {
+            JsonNode operators = extractedData.get("operators");
+            List<String> operatorsList = new ArrayList<>();
+            operators.forEach(operator -> operatorsList.add(operator.asText()));
+            // Store operators as comma-separated list in doctorIds field
+            document.setDoctorIds(String.join(",", operatorsList));
+            documentDoctorService.assignDoctors(document.getId(), document.getDoctorIds());
+        }
+        
+        // Process diagnosis if available
+        if (extractedData.has("diagnosis") && !extractedData.get("diagnosis").isNull()) {
+            String diagnosis = extractedData.get("diagnosis").asText();
+            document.setDiagnosis(diagnosis);
+        }
+        
+        // Update document status
+        document.setStatus(DocumentStatus.PENDING); // Keep as PENDING during processing
+        document.setStatusUpdatedAt(LocalDateTime.now());
     }
     
     /**
-     * Notify the workflow service that fields were extracted
+     * Notify other services that fields were extracted.
+     * The notification is not a command: the fields are already applied, and this service skips it by its origin.
      */
     private void notifyFieldsExtracted(Document document) {
-        DocumentDTO documentDTO = mapToDTO(document);
-        kafkaTemplate.send(TOPIC_DOCUMENT_FIELDS_EXTRACTED, documentDTO);
+        outboxService.publish(TOPIC_DOCUMENT_FIELDS_EXTRACTED, document.getId().toString(), DocumentEvents.of(document));
         log.info("Sent document fields extracted event for document ID: {}", document.getId());
     }
-    
-    /**
-     * Map Document entity to DocumentDTO
-     */
-    private DocumentDTO mapToDTO(Document document) {
-        return DocumentDTO.builder()
-                .id(document.getId())
-                .title(document.getTitle())
-                .patientId(document.getPatientId())
-                .diagnosis(document.getDiagnosis())
-                .createdAt(document.getCreatedAt())
-                .updatedAt(document.getUpdatedAt())
-                .statusUpdatedAt(document.getStatusUpdatedAt())
-                .procedureDate(document.getProcedureDate())
-                .doctorIds(document.getDoctorIds())
-                .description(document.getDescription())
-                .status(document.getStatus())
-                .build();
-    }
-}
\ No newline at end of file
+}
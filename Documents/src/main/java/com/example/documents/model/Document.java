@@ -1,19 +1,33 @@
 package com.example.documents.model;
 
+import com.example.events.DocumentStatus;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 /**
- * Document entity representing medical documents in the system
+ * Document entity representing medical documents in the system.
+ * Updates only write the changed columns, so status changes leave the description alone.
  */
 @Entity
-@Table(name = "documents")
+@DynamicUpdate
+@Table(
+    name = "documents",
+    indexes = {
+        // Trailing created_at, id columns let filtered keyset pages read in index order without sorting
+        @Index(name = "idx_documents_patient_type", columnList = "patient_id, document_type, created_at, id"),
+        @Index(name = "idx_documents_patient", columnList = "patient_id, created_at, id"),
+        @Index(name = "idx_documents_type", columnList = "document_type, created_at, id"),
+        @Index(name = "idx_documents_department_status", columnList = "department, status, created_at, id"),
+        @Index(name = "idx_documents_status", columnList = "status, created_at, id")
+    }
+)
 @Data
 @Builder
 @NoArgsConstructor
@@ -33,6 +47,12 @@ public class Document {
     @Column(columnDefinition = "TEXT")
     private String diagnosis;
     
+    @Column(name = "document_type")
+    private String documentType; // e.g. MEDICAL_RECORD or CARDIOLOGY_REPORT
+    
+    @Column
+    private String department;
+    
     @Column(name = "created_at")
     @Builder.Default
     private LocalDateTime createdAt = LocalDateTime.now();
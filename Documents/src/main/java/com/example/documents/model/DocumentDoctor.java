@@ -0,0 +1,42 @@
+package com.example.documents.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Normalized doctor-to-document assignment.
+ * Mirrors the comma-separated {@code Document.doctorIds} column so doctor lookups can use an index.
+ */
+@Entity
+@Table(
+    name = "document_doctors",
+    indexes = {
+        @Index(name = "idx_document_doctors_doctor_id", columnList = "doctor_id, document_id"),
+        @Index(name = "idx_document_doctors_document_id", columnList = "document_id")
+    },
+    uniqueConstraints = @UniqueConstraint(name = "uk_document_doctors", columnNames = {"document_id", "doctor_id"})
+)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentDoctor {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private UUID id;
+
+    @Column(name = "document_id", nullable = false)
+    private UUID documentId;
+
+    @Column(name = "doctor_id", nullable = false)
+    private String doctorId;
+
+    @Column(nullable = false)
+    private int position; // Keeps the order in which doctors were listed on the document
+}
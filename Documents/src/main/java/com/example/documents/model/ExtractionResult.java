@@ -0,0 +1,64 @@
+package com.example.documents.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Fields extracted from a document by one extraction run.
+ * Kept out of the documents table so reprocessing adds a row instead of growing {@code Document.description}.
+ */
+@Entity
+@Table(
+    name = "extraction_results",
+    indexes = {
+        @Index(name = "idx_extraction_results_patient_id", columnList = "patient_id, document_id"),
+        @Index(name = "idx_extraction_results_diagnosis", columnList = "diagnosis, document_id"),
+        @Index(name = "idx_extraction_results_procedure_date", columnList = "procedure_date, document_id")
+    },
+    uniqueConstraints = @UniqueConstraint(name = "uk_extraction_results_run", columnNames = {"document_id", "run"})
+)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExtractionResult {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private UUID id;
+
+    @Column(name = "document_id", nullable = false)
+    private UUID documentId;
+
+    @Column(nullable = false)
+    private int run; // 1 for the first extraction of a document, incremented on each reprocessing
+
+    @Column(nullable = false)
+    private String source; // Kafka topic the result arrived on, or "description" when migrated
+
+    @Column(name = "extracted_at", nullable = false)
+    private LocalDateTime extractedAt;
+
+    @Column(name = "procedure_date")
+    private LocalDate procedureDate;
+
+    @Column(name = "patient_id")
+    private String patientId;
+
+    // Comma-separated, in the same format as Document.doctorIds
+    @Column(columnDefinition = "TEXT")
+    private String operators;
+
+    @Column(columnDefinition = "TEXT")
+    private String diagnosis;
+
+    @Column(columnDefinition = "TEXT")
+    private String payload; // The extracted JSON as received
+}
@@ -0,0 +1,9 @@
+package com.example.documents.repository;
+
+import com.example.documents.model.DataMigration;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DataMigrationRepository extends JpaRepository<DataMigration, String> {
+}
@@ -0,0 +1,141 @@
+package com.example.documents.repository;
+
+import com.example.documents.dto.AggregateDimension;
+import com.example.documents.model.Document;
+import com.example.events.DocumentStatus;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Dashboard counters: number of documents per status for each doctor, patient, diagnosis and creation day.
+ * Rows are adjusted with upserts in the same transaction as the document change, so reads are a primary key lookup.
+ */
+@Repository
+@RequiredArgsConstructor
+public class DocumentAggregateRepository {
+
+    private static final String UPSERT = "INSERT INTO document_aggregates(dimension, dim_key, status, doc_count) "
+            + "VALUES (?, ?, ?, ?) "
+            + "ON CONFLICT(dimension, dim_key, status) DO UPDATE SET doc_count = doc_count + excluded.doc_count";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * One counter of the aggregates table
+     */
+    public record AggregateKey(AggregateDimension dimension, String key, DocumentStatus status) {
+    }
+
+    /**
+     * A counter value as read back from the table
+     */
+    public record AggregateRow(String key, DocumentStatus status, long count) {
+    }
+
+    @PostConstruct
+    public void createSchema() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS document_aggregates ("
+                + "dimension TEXT NOT NULL, dim_key TEXT NOT NULL, status TEXT NOT NULL, doc_count INTEGER NOT NULL, "
+                + "PRIMARY KEY (dimension, dim_key, status)) WITHOUT ROWID");
+    }
+
+    public boolean isEmpty() {
+        return jdbcTemplate.queryForList("SELECT 1 FROM document_aggregates LIMIT 1").isEmpty();
+    }
+
+    /**
+     * Add each delta to its counter, creating counters that do not exist yet
+     */
+    public void add(Map<AggregateKey, Long> deltas) {
+        List<Object[]> upserts = new ArrayList<>(deltas.size());
+        List<Object[]> decremented = new ArrayList<>();
+        deltas.forEach((key, delta) -> {
+            Object[] args = {key.dimension().key(), key.key(), key.status().name()};
+            upserts.add(new Object[] {args[0], args[1], args[2], delta});
+            if (delta < 0) {
+                decremented.add(args);
+            }
+        });
+        jdbcTemplate.batchUpdate(UPSERT, upserts);
+        // Drop counters that reached zero so values with no documents left disappear from listings
+        jdbcTemplate.batchUpdate("DELETE FROM document_aggregates "
+                + "WHERE dimension = ? AND dim_key = ? AND status = ? AND doc_count <= 0", decremented);
+    }
+
+    /**
+     * Replace every counter, e.g. after recounting all documents
+     */
+    public void replaceAll(Map<AggregateKey, Long> counts) {
+        jdbcTemplate.update("DELETE FROM document_aggregates");
+        add(counts);
+    }
+
+    /**
+     * Counters of a single dimension value
+     */
+    public List<AggregateRow> find(AggregateDimension dimension, String key) {
+        return jdbcTemplate.query(
+                "SELECT dim_key, status, doc_count FROM document_aggregates WHERE dimension = ? AND dim_key = ?",
+                (rs, rowNum) -> new AggregateRow(rs.getString("dim_key"),
+                        DocumentStatus.valueOf(rs.getString("status")), rs.getLong("doc_count")),
+                dimension.key(), key);
+    }
+
+    /**
+     * Counters of the first {@code limit} dimension values in key order, optionally restricted to a key range
+     * @param from Smallest key to include, or null
+     * @param to Largest key to include, or null
+     */
+    public List<AggregateRow> findRange(AggregateDimension dimension, String from, String to, int limit) {
+        String keyFilter = "dimension = ?"
+                + (from != null ? " AND dim_key >= ?" : "")
+                + (to != null ? " AND dim_key <= ?" : "");
+        List<Object> args = new ArrayList<>();
+        args.add(dimension.key());
+        if (from != null) {
+            args.add(from);
+        }
+        if (to != null) {
+            args.add(to);
+        }
+        // The outer query needs the same filter again because it runs on the same table
+        List<Object> allArgs = new ArrayList<>(args);
+        allArgs.addAll(args);
+        allArgs.add(limit);
+        return jdbcTemplate.query(
+                "SELECT dim_key, status, doc_count FROM document_aggregates "
+                        + "WHERE " + keyFilter + " AND dim_key IN ("
+                        + "SELECT DISTINCT dim_key FROM document_aggregates WHERE " + keyFilter
+                        + " ORDER BY dim_key LIMIT ?) "
+                        + "ORDER BY dim_key, status",
+                (rs, rowNum) -> new AggregateRow(rs.getString("dim_key"),
+                        DocumentStatus.valueOf(rs.getString("status")), rs.getLong("doc_count")),
+                allArgs.toArray());
+    }
+
+    /**
+     * Read the counted columns of every document, without the description.
+     * The documents passed to the consumer are not managed by JPA.
+     */
+    public void forEachDocument(Consumer<Document> consumer) {
+        jdbcTemplate.query("SELECT status, patient_id, diagnosis, doctor_ids, created_at FROM documents", rs -> {
+            String status = rs.getString("status");
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            consumer.accept(Document.builder()
+                    .status(status != null ? DocumentStatus.valueOf(status) : null)
+                    .patientId(rs.getString("patient_id"))
+                    .diagnosis(rs.getString("diagnosis"))
+                    .doctorIds(rs.getString("doctor_ids"))
+                    .createdAt(createdAt != null ? createdAt.toLocalDateTime() : null)
+                    .build());
+        });
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.documents.repository;
+
+import com.example.documents.model.DocumentDoctor;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface DocumentDoctorRepository extends JpaRepository<DocumentDoctor, UUID> {
+
+    // Doctor IDs of a document in the order they were assigned
+    @Query("SELECT dd.doctorId FROM DocumentDoctor dd WHERE dd.documentId = :documentId ORDER BY dd.position")
+    List<String> findDoctorIdsByDocumentId(UUID documentId);
+
+    // Remove every doctor assignment of a document
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM DocumentDoctor dd WHERE dd.documentId = :documentId")
+    void deleteByDocumentId(UUID documentId);
+}
@@ -1,15 +1,27 @@
 package com.example.documents.repository;
 
+import com.example.documents.dto.DocumentDoctorsView;
+import com.example.documents.dto.DocumentStatusView;
+import com.example.documents.dto.DocumentVersion;
 import com.example.documents.model.Document;
-import com.example.documents.model.DocumentStatus;
+import com.example.events.DocumentStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface DocumentRepository extends JpaRepository<Document, UUID> {
+public interface DocumentRepository extends JpaRepository<Document, UUID>, JpaSpecificationExecutor<Document>,
+        DocumentRepositoryCustom {
     
     // Find documents by patient ID
     List<Document> findByPatientId(String patientId);
@@ -22,4 +34,81 @@ public interface DocumentRepository extends JpaRepository<Document, UUID> {
     
     // Find documents by diagnosis
     List<Document> findByDiagnosis(String diagnosis);
-}
\ No newline at end of file
+    
+    // Find documents by type, served by idx_documents_type
+    List<Document> findByDocumentTypeOrderByCreatedAtAscIdAsc(String documentType);
+    
+    // Find a patient's documents of the given types, served by idx_documents_patient_type
+    List<Document> findByPatientIdAndDocumentTypeInOrderByCreatedAtAscIdAsc(String patientId, Collection<String> documentTypes);
+    
+    // Documents created before document_type existed, whose type the upload endpoint stored in diagnosis
+    @Query("select d.id from Document d where d.documentType is null "
+            + "and (d.title like 'Medical Document - %' or d.diagnosis in :documentTypes)")
+    List<UUID> findIdsWithTypeOnlyInDiagnosis(@Param("documentTypes") Collection<String> documentTypes);
+    
+    /**
+     * Fill document_type for documents created before the column existed.
+     * The upload endpoint used to store the document type in diagnosis; a bulk update does not set updatedAt by
+     * itself, so it is passed in.
+     */
+    @Modifying
+    @Query("update Document d set d.documentType = d.diagnosis, d.updatedAt = :updatedAt where d.documentType is null "
+            + "and (d.title like 'Medical Document - %' or d.diagnosis in :documentTypes)")
+    int backfillDocumentTypes(@Param("documentTypes") Collection<String> documentTypes,
+                              @Param("updatedAt") LocalDateTime updatedAt);
+    
+    // Documents whose diagnosis only repeats their type, as the upload endpoint used to store it
+    @Query("select d.id as id, d.status as status, d.patientId as patientId, d.diagnosis as diagnosis, "
+            + "d.doctorIds as doctorIds, d.createdAt as createdAt from Document d where d.diagnosis = d.documentType")
+    List<DocumentStatusView> findStatusViewsWithTypeAsDiagnosis();
+    
+    // Clear those diagnoses; a bulk update does not set updatedAt by itself, so it is passed in
+    @Modifying
+    @Query("update Document d set d.diagnosis = null, d.updatedAt = :updatedAt where d.diagnosis = d.documentType")
+    int clearTypeDiagnoses(@Param("updatedAt") LocalDateTime updatedAt);
+    
+    // Replace the description of a document that is only available read-only, e.g. from streamBy
+    @Modifying
+    @Query("update Document d set d.description = :description, d.updatedAt = :updatedAt where d.id = :id")
+    int updateDescription(@Param("id") UUID id, @Param("description") String description,
+                          @Param("updatedAt") LocalDateTime updatedAt);
+    
+    // Read only what a status change needs, leaving the description unloaded
+    @Query("select d.id as id, d.status as status, d.patientId as patientId, d.diagnosis as diagnosis, "
+            + "d.doctorIds as doctorIds, d.createdAt as createdAt from Document d where d.id = :id")
+    Optional<DocumentStatusView> findStatusViewById(@Param("id") UUID id);
+    
+    @Query("select d.id as id, d.status as status, d.patientId as patientId, d.diagnosis as diagnosis, "
+            + "d.doctorIds as doctorIds, d.createdAt as createdAt from Document d where d.id in :ids")
+    List<DocumentStatusView> findStatusViewsByIdIn(@Param("ids") Collection<UUID> ids);
+    
+    /**
+     * Move a document to a new status if its current status is one of the allowed sources.
+     * Writes only the two status columns; a bulk update leaves updatedAt untouched.
+     * @return 1 if the transition applied, 0 if the document is missing or not in an allowed source status
+     */
+    @Modifying
+    @Query("update Document d set d.status = :status, d.statusUpdatedAt = :statusUpdatedAt "
+            + "where d.id = :id and d.status in :sources")
+    int transitionStatus(@Param("id") UUID id, @Param("sources") Collection<DocumentStatus> sources,
+                         @Param("status") DocumentStatus status, @Param("statusUpdatedAt") LocalDateTime statusUpdatedAt);
+    
+    /**
+     * Move many documents from one status to another in a single statement, as {@link #transitionStatus} does for one.
+     * Documents no longer in the expected status are left alone.
+     * @return Number of documents moved
+     */
+    @Modifying
+    @Query("update Document d set d.status = :status, d.statusUpdatedAt = :statusUpdatedAt "
+            + "where d.id in :ids and (d.status = :current or (d.status is null and :current is null))")
+    int transitionStatuses(@Param("ids") Collection<UUID> ids, @Param("current") DocumentStatus current,
+                           @Param("status") DocumentStatus status, @Param("statusUpdatedAt") LocalDateTime statusUpdatedAt);
+    
+    // Read the doctors of every document that lists any, leaving the rest of the row unloaded
+    @Query("select d.id as id, d.doctorIds as doctorIds from Document d where d.doctorIds is not null")
+    Stream<DocumentDoctorsView> streamDoctorIds();
+    
+    // Read only the modification timestamps, for ETag checks
+    @Query("select d.updatedAt as updatedAt, d.statusUpdatedAt as statusUpdatedAt from Document d where d.id = :id")
+    Optional<DocumentVersion> findVersionById(@Param("id") UUID id);
+}
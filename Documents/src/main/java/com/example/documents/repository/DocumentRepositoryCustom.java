@@ -0,0 +1,37 @@
+package com.example.documents.repository;
+
+import com.example.documents.dto.DocumentDTO;
+import com.example.documents.dto.DocumentField;
+import com.example.documents.model.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Queries that select only some document columns
+ */
+public interface DocumentRepositoryCustom {
+
+    /**
+     * Select the given fields of the documents matching the specification.
+     * Columns that were not requested are never read, so large TEXT values stay in the database.
+     * @param spec Filter to apply, may be null
+     * @param fields Columns to select
+     * @param sort Ordering of the results
+     * @param limit Maximum number of rows to return
+     * @return Partially populated DTOs; fields that were not selected are null
+     */
+    List<DocumentDTO> findProjected(Specification<Document> spec, Set<DocumentField> fields, Sort sort, int limit);
+
+    /**
+     * Stream the documents matching the specification in keyset order.
+     * Rows are pulled from a database cursor in bounded batches, so the result set is never held in memory.
+     * Must be consumed inside a transaction and closed; callers should detach entities once processed.
+     * @param spec Filter to apply, may be null
+     * @return Open stream over the matching documents
+     */
+    Stream<Document> streamBy(Specification<Document> spec);
+}
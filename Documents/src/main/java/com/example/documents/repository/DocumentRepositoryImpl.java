@@ -0,0 +1,86 @@
+package com.example.documents.repository;
+
+import com.example.documents.dto.DocumentDTO;
+import com.example.documents.dto.DocumentField;
+import com.example.documents.model.Document;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class DocumentRepositoryImpl implements DocumentRepositoryCustom {
+
+    // Rows fetched per round trip when streaming; bounds the driver-side buffer
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<DocumentDTO> findProjected(Specification<Document> spec, Set<DocumentField> fields, Sort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Document> root = query.from(Document.class);
+        
+        List<Selection<?>> selections = fields.stream()
+                .<Selection<?>>map(field -> root.get(field.attribute()).alias(field.attribute()))
+                .collect(Collectors.toList());
+        query.multiselect(selections);
+        
+        applySpecification(spec, root, query, cb);
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultStream()
+                .map(tuple -> toDTO(tuple, fields))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Document> streamBy(Specification<Document> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Document> query = cb.createQuery(Document.class);
+        Root<Document> root = query.from(Document.class);
+        
+        applySpecification(spec, root, query, cb);
+        query.orderBy(QueryUtils.toOrders(DocumentSpecifications.KEYSET_SORT, root, cb));
+        
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private void applySpecification(Specification<Document> spec, Root<Document> root,
+                                    CriteriaQuery<?> query, CriteriaBuilder cb) {
+        if (spec == null) {
+            return;
+        }
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+
+    private DocumentDTO toDTO(Tuple tuple, Set<DocumentField> fields) {
+        DocumentDTO dto = new DocumentDTO();
+        for (DocumentField field : fields) {
+            field.apply(dto, tuple.get(field.attribute()));
+        }
+        return dto;
+    }
+}
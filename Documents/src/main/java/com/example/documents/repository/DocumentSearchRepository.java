@@ -0,0 +1,135 @@
+package com.example.documents.repository;
+
+import com.example.documents.dto.DocumentSearchHit;
+import com.example.events.DocumentStatus;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * SQLite FTS5 index over document title, diagnosis and text.
+ * FTS5 tables need integer rowids, so document_search_keys maps each document UUID to a stable one.
+ */
+@Repository
+@RequiredArgsConstructor
+public class DocumentSearchRepository {
+
+    // Markers placed around matches by snippet(); replaced once the snippet has been HTML-escaped
+    public static final String MATCH_START = "\u0002";
+    public static final String MATCH_END = "\u0003";
+
+    private static final int SNIPPET_TOKENS = 24;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Text of one document as it is stored in the index
+     */
+    public record DocumentText(UUID documentId, String title, String diagnosis, String content) {
+    }
+
+    private final RowMapper<DocumentSearchHit> hitMapper = (rs, rowNum) -> {
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        String status = rs.getString("status");
+        return DocumentSearchHit.builder()
+                .id(fromBytes(rs.getBytes("id")))
+                .title(rs.getString("title"))
+                .patientId(rs.getString("patient_id"))
+                .diagnosis(rs.getString("diagnosis"))
+                .status(status != null ? DocumentStatus.valueOf(status) : null)
+                .createdAt(createdAt != null ? createdAt.toLocalDateTime() : null)
+                .snippet(rs.getString("snippet"))
+                .score(rs.getDouble("score"))
+                .build();
+    };
+
+    @PostConstruct
+    public void createSchema() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS document_search_keys ("
+                + "id INTEGER PRIMARY KEY, document_id BLOB NOT NULL UNIQUE)");
+        jdbcTemplate.execute("CREATE VIRTUAL TABLE IF NOT EXISTS documents_fts USING fts5("
+                + "title, diagnosis, content, tokenize = 'porter unicode61 remove_diacritics 2', prefix = '2 3')");
+        // Rank title matches above diagnosis matches above body text matches
+        jdbcTemplate.update("INSERT INTO documents_fts(documents_fts, rank) VALUES ('rank', 'bm25(10.0, 5.0, 1.0)')");
+    }
+
+    public boolean isEmpty() {
+        return jdbcTemplate.queryForList("SELECT 1 FROM document_search_keys LIMIT 1").isEmpty();
+    }
+
+    /**
+     * Insert or replace the indexed text of a document
+     */
+    public void upsert(UUID documentId, String title, String diagnosis, String content) {
+        byte[] key = toBytes(documentId);
+        jdbcTemplate.update("INSERT OR IGNORE INTO document_search_keys(document_id) VALUES (?)", key);
+        Long rowId = jdbcTemplate.queryForObject(
+                "SELECT id FROM document_search_keys WHERE document_id = ?", Long.class, key);
+        jdbcTemplate.update("DELETE FROM documents_fts WHERE rowid = ?", rowId);
+        jdbcTemplate.update("INSERT INTO documents_fts(rowid, title, diagnosis, content) VALUES (?, ?, ?, ?)",
+                rowId, title, diagnosis, content);
+    }
+
+    /**
+     * Index documents that are not in the index yet, using one batched statement per table
+     */
+    public void insertAll(List<DocumentText> documents) {
+        jdbcTemplate.batchUpdate("INSERT INTO document_search_keys(document_id) VALUES (?)",
+                documents, documents.size(), (ps, document) -> ps.setBytes(1, toBytes(document.documentId())));
+        jdbcTemplate.batchUpdate("INSERT INTO documents_fts(rowid, title, diagnosis, content) "
+                        + "SELECT id, ?, ?, ? FROM document_search_keys WHERE document_id = ?",
+                documents, documents.size(), (ps, document) -> {
+                    ps.setString(1, document.title());
+                    ps.setString(2, document.diagnosis());
+                    ps.setString(3, document.content());
+                    ps.setBytes(4, toBytes(document.documentId()));
+                });
+    }
+
+    public void delete(UUID documentId) {
+        byte[] key = toBytes(documentId);
+        jdbcTemplate.update("DELETE FROM documents_fts WHERE rowid = "
+                + "(SELECT id FROM document_search_keys WHERE document_id = ?)", key);
+        jdbcTemplate.update("DELETE FROM document_search_keys WHERE document_id = ?", key);
+    }
+
+    /**
+     * Run an FTS5 MATCH query ordered by rank
+     * @param matchQuery Query in FTS5 syntax
+     * @param offset Number of hits to skip
+     * @param limit Maximum number of hits to return
+     * @return Hits with raw snippets delimited by {@link #MATCH_START} and {@link #MATCH_END}
+     */
+    public List<DocumentSearchHit> search(String matchQuery, int offset, int limit) {
+        return jdbcTemplate.query(
+                "SELECT d.id, d.title, d.patient_id, d.diagnosis, d.status, d.created_at, "
+                        + "snippet(documents_fts, -1, ?, ?, '…', ?) AS snippet, documents_fts.rank AS score "
+                        + "FROM documents_fts "
+                        + "JOIN document_search_keys k ON k.id = documents_fts.rowid "
+                        + "JOIN documents d ON d.id = k.document_id "
+                        + "WHERE documents_fts MATCH ? "
+                        + "ORDER BY documents_fts.rank "
+                        + "LIMIT ? OFFSET ?",
+                hitMapper, MATCH_START, MATCH_END, SNIPPET_TOKENS, matchQuery, limit, offset);
+    }
+
+    // Same 16-byte big-endian layout Hibernate uses for UUID columns
+    private static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+
+    private static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
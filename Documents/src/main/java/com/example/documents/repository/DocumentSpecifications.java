@@ -0,0 +1,95 @@
+package com.example.documents.repository;
+
+import com.example.documents.dto.DocumentCursor;
+import com.example.documents.model.Document;
+import com.example.documents.model.DocumentDoctor;
+import com.example.events.DocumentStatus;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Reusable query predicates for document listings
+ */
+public final class DocumentSpecifications {
+
+    /**
+     * Stable ordering used for keyset pagination; id breaks ties between equal timestamps
+     */
+    public static final Sort KEYSET_SORT = Sort.by(Sort.Order.asc("createdAt"), Sort.Order.asc("id"));
+
+    private DocumentSpecifications() {
+    }
+
+    /**
+     * Rows strictly after the given cursor in {@link #KEYSET_SORT} order, or every row if the cursor is null
+     */
+    public static Specification<Document> after(DocumentCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.or(
+                cb.greaterThan(root.<LocalDateTime>get("createdAt"), cursor.createdAt()),
+                cb.and(
+                        cb.equal(root.get("createdAt"), cursor.createdAt()),
+                        cb.greaterThan(root.<UUID>get("id"), cursor.id())));
+    }
+
+    public static Specification<Document> hasId(UUID id) {
+        return (root, query, cb) -> cb.equal(root.get("id"), id);
+    }
+
+    public static Specification<Document> hasPatientId(String patientId) {
+        return (root, query, cb) -> cb.equal(root.get("patientId"), patientId);
+    }
+
+    public static Specification<Document> hasPatientIdIn(Collection<String> patientIds) {
+        return (root, query, cb) -> root.get("patientId").in(patientIds);
+    }
+
+    public static Specification<Document> createdFrom(LocalDateTime from) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.<LocalDateTime>get("createdAt"), from);
+    }
+
+    public static Specification<Document> createdBefore(LocalDateTime to) {
+        return (root, query, cb) -> cb.lessThan(root.<LocalDateTime>get("createdAt"), to);
+    }
+
+    public static Specification<Document> hasStatus(DocumentStatus status) {
+        return (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<Document> hasDiagnosis(String diagnosis) {
+        return (root, query, cb) -> cb.equal(root.get("diagnosis"), diagnosis);
+    }
+
+    public static Specification<Document> hasDocumentType(String documentType) {
+        return (root, query, cb) -> cb.equal(root.get("documentType"), documentType);
+    }
+
+    public static Specification<Document> hasDepartment(String department) {
+        return (root, query, cb) -> cb.equal(root.get("department"), department);
+    }
+
+    public static Specification<Document> descriptionContains(String text) {
+        return (root, query, cb) -> cb.like(root.get("description"), "%" + text + "%");
+    }
+
+    /**
+     * Documents assigned to the doctor, resolved through the indexed document_doctors table
+     */
+    public static Specification<Document> hasDoctor(String doctorId) {
+        return (root, query, cb) -> {
+            Subquery<UUID> assigned = query.subquery(UUID.class);
+            Root<DocumentDoctor> assignment = assigned.from(DocumentDoctor.class);
+            assigned.select(assignment.get("documentId"))
+                    .where(cb.equal(assignment.get("doctorId"), doctorId));
+            return root.get("id").in(assigned);
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.documents.repository;
+
+import com.example.documents.model.ExtractionResult;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ExtractionResultRepository extends JpaRepository<ExtractionResult, UUID> {
+
+    // Extraction runs of a document, newest first, served by uk_extraction_results_run
+    List<ExtractionResult> findByDocumentIdOrderByRunDesc(UUID documentId);
+
+    Optional<ExtractionResult> findFirstByDocumentIdOrderByRunDesc(UUID documentId);
+
+    // Highest run number of a document, 0 if it was never extracted
+    @Query("SELECT COALESCE(MAX(er.run), 0) FROM ExtractionResult er WHERE er.documentId = :documentId")
+    int findLastRun(UUID documentId);
+
+    // Highest run number of each of the documents that was extracted before, as [documentId, run] rows
+    @Query("SELECT er.documentId, MAX(er.run) FROM ExtractionResult er WHERE er.documentId IN :documentIds GROUP BY er.documentId")
+    List<Object[]> findLastRuns(Collection<UUID> documentIds);
+
+    // Remove every extraction run of a document
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM ExtractionResult er WHERE er.documentId = :documentId")
+    void deleteByDocumentId(UUID documentId);
+}
@@ -0,0 +1,105 @@
+package com.example.documents.repository;
+
+import com.example.documents.dto.UploadStage;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Uploads accepted for processing in the background, from the spooled file to the stored document.
+ * Only the stages up to {@link UploadStage#EXTRACTING} are stored; later ones follow from the document.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UploadJobRepository {
+
+    private static final String SELECT = "SELECT id, stage, filename, patient_id, doctor_id, document_type, "
+            + "spool_path, document_id, error, attempts, created_at, updated_at FROM upload_jobs";
+
+    private static final RowMapper<UploadJob> ROW_MAPPER = (rs, rowNum) -> new UploadJob(
+            UUID.fromString(rs.getString("id")), UploadStage.valueOf(rs.getString("stage")),
+            rs.getString("filename"), rs.getString("patient_id"), rs.getString("doctor_id"),
+            rs.getString("document_type"), rs.getString("spool_path"),
+            rs.getString("document_id") != null ? UUID.fromString(rs.getString("document_id")) : null,
+            rs.getString("error"), rs.getInt("attempts"), rs.getLong("created_at"), rs.getLong("updated_at"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * An upload as stored; the spool path is cleared once the file is no longer needed.
+     * Attempts counts the times a worker started parsing the file.
+     */
+    public record UploadJob(UUID id, UploadStage stage, String filename, String patientId, String doctorId,
+            String documentType, String spoolPath, UUID documentId, String error, int attempts, long createdAt,
+            long updatedAt) {
+    }
+
+    @PostConstruct
+    public void createSchema() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS upload_jobs ("
+                + "id TEXT PRIMARY KEY, stage TEXT NOT NULL, filename TEXT NOT NULL, patient_id TEXT, doctor_id TEXT, "
+                + "document_type TEXT, spool_path TEXT, document_id TEXT, error TEXT, "
+                + "attempts INTEGER NOT NULL DEFAULT 0, created_at INTEGER NOT NULL, updated_at INTEGER NOT NULL) "
+                + "WITHOUT ROWID");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_upload_jobs_stage ON upload_jobs(stage, created_at)");
+    }
+
+    @Transactional
+    public void insert(UploadJob job) {
+        jdbcTemplate.update("INSERT INTO upload_jobs(id, stage, filename, patient_id, doctor_id, document_type, "
+                        + "spool_path, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                job.id().toString(), job.stage().name(), job.filename(), job.patientId(), job.doctorId(),
+                job.documentType(), job.spoolPath(), job.createdAt(), job.updatedAt());
+    }
+
+    /**
+     * Move a job to PARSING and count the attempt, before the file is read
+     */
+    @Transactional
+    public void startParsing(UUID id) {
+        jdbcTemplate.update("UPDATE upload_jobs SET stage = ?, attempts = attempts + 1, updated_at = ? WHERE id = ?",
+                UploadStage.PARSING.name(), System.currentTimeMillis(), id.toString());
+    }
+
+    /**
+     * Record the stored document in the caller's transaction, which stores the document as well
+     */
+    public void markStored(UUID id, UUID documentId) {
+        jdbcTemplate.update("UPDATE upload_jobs SET stage = ?, document_id = ?, spool_path = NULL, updated_at = ? "
+                        + "WHERE id = ?",
+                UploadStage.EXTRACTING.name(), documentId.toString(), System.currentTimeMillis(), id.toString());
+    }
+
+    @Transactional
+    public void markFailed(UUID id, String error) {
+        jdbcTemplate.update("UPDATE upload_jobs SET stage = ?, error = ?, spool_path = NULL, updated_at = ? "
+                        + "WHERE id = ?",
+                UploadStage.FAILED.name(), error, System.currentTimeMillis(), id.toString());
+    }
+
+    @Transactional
+    public void delete(UUID id) {
+        jdbcTemplate.update("DELETE FROM upload_jobs WHERE id = ?", id.toString());
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<UploadJob> findById(UUID id) {
+        return jdbcTemplate.query(SELECT + " WHERE id = ?", ROW_MAPPER, id.toString()).stream().findFirst();
+    }
+
+    /**
+     * Uploads accepted but not stored yet, oldest first, e.g. those interrupted by a restart
+     */
+    @Transactional(readOnly = true)
+    public List<UploadJob> findUnfinished() {
+        return jdbcTemplate.query(SELECT + " WHERE stage IN (?, ?) ORDER BY created_at", ROW_MAPPER,
+                UploadStage.QUEUED.name(), UploadStage.PARSING.name());
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.documents.service;
+
+import com.example.documents.dto.AggregateDimension;
+import com.example.documents.dto.DocumentAggregate;
+import com.example.documents.dto.DocumentStatusView;
+import com.example.documents.exception.BadRequestException;
+import com.example.documents.model.Document;
+import com.example.documents.repository.DocumentAggregateRepository;
+import com.example.documents.repository.DocumentAggregateRepository.AggregateKey;
+import com.example.documents.repository.DocumentAggregateRepository.AggregateRow;
+import com.example.events.DocumentStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the dashboard document counters up to date as documents are created, changed and deleted
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentAggregateService {
+
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final DocumentAggregateRepository documentAggregateRepository;
+
+    /**
+     * The values a document is counted under.
+     * Take one before changing a document and one after saving it, then pass both to {@link #apply}.
+     */
+    public record Snapshot(List<AggregateKey> keys) {
+
+        public static Snapshot of(Document document) {
+            return of(document.getStatus(), document.getDoctorIds(), document.getPatientId(), document.getDiagnosis(),
+                    document.getCreatedAt());
+        }
+
+        /**
+         * Snapshot of a document read through a projection, as it is or will be in the given status
+         */
+        public static Snapshot of(DocumentStatusView view, DocumentStatus status) {
+            return of(status, view.getDoctorIds(), view.getPatientId(), view.getDiagnosis(), view.getCreatedAt());
+        }
+
+        private static Snapshot of(DocumentStatus status, String doctorIds, String patientId, String diagnosis,
+                                   LocalDateTime createdAt) {
+            List<AggregateKey> keys = new ArrayList<>();
+            if (status == null) {
+                return new Snapshot(keys);
+            }
+            keys.add(new AggregateKey(AggregateDimension.STATUS, status.name(), status));
+            for (String doctorId : DocumentDoctorService.parseDoctorIds(doctorIds)) {
+                keys.add(new AggregateKey(AggregateDimension.DOCTOR, doctorId, status));
+            }
+            if (patientId != null && !patientId.isBlank()) {
+                keys.add(new AggregateKey(AggregateDimension.PATIENT, patientId, status));
+            }
+            if (diagnosis != null && !diagnosis.isBlank()) {
+                keys.add(new AggregateKey(AggregateDimension.DIAGNOSIS, diagnosis, status));
+            }
+            if (createdAt != null) {
+                keys.add(new AggregateKey(AggregateDimension.DAY, createdAt.toLocalDate().toString(), status));
+            }
+            return new Snapshot(keys);
+        }
+    }
+
+    /**
+     * Move a document's counts from its old values to its new ones.
+     * Runs in the caller's transaction so the counters commit together with the document.
+     * @param before Snapshot taken before the change, or null for a new document
+     * @param after Snapshot taken after the change, or null for a deleted document
+     */
+    @Transactional
+    public void apply(Snapshot before, Snapshot after) {
+        apply(before != null ? List.of(before) : List.of(), after != null ? List.of(after) : List.of());
+    }
+
+    /**
+     * Apply the changes of many documents with one upsert per affected counter
+     * @param before Snapshots taken before the changes; empty for new documents
+     * @param after Snapshots taken after the changes; empty for deleted documents
+     */
+    @Transactional
+    public void apply(Collection<Snapshot> before, Collection<Snapshot> after) {
+        Map<AggregateKey, Long> deltas = new HashMap<>();
+        before.forEach(snapshot -> snapshot.keys().forEach(key -> deltas.merge(key, -1L, Long::sum)));
+        after.forEach(snapshot -> snapshot.keys().forEach(key -> deltas.merge(key, 1L, Long::sum)));
+        // Values that did not change cancel out, so edits that leave counted fields alone write nothing
+        deltas.values().removeIf(delta -> delta == 0);
+        if (!deltas.isEmpty()) {
+            documentAggregateRepository.add(deltas);
+        }
+    }
+
+    /**
+     * Recount every document from scratch, replacing whatever the counters currently hold
+     * @return Number of documents counted
+     */
+    @Transactional
+    public long rebuild() {
+        Map<AggregateKey, Long> counts = new HashMap<>();
+        long[] documents = {0};
+        documentAggregateRepository.forEachDocument(document -> {
+            Snapshot.of(document).keys().forEach(key -> counts.merge(key, 1L, Long::sum));
+            documents[0]++;
+        });
+        documentAggregateRepository.replaceAll(counts);
+        log.info("Rebuilt document aggregates from {} documents ({} counters)", documents[0], counts.size());
+        return documents[0];
+    }
+
+    /**
+     * Count every document when the counters have never been filled, e.g. for databases created before they existed
+     */
+    @Transactional
+    public void rebuildIfEmpty() {
+        if (documentAggregateRepository.isEmpty()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Counts for one dimension value, e.g. a single doctor or day
+     */
+    @Transactional(readOnly = true)
+    public DocumentAggregate getAggregate(AggregateDimension dimension, String key) {
+        DocumentAggregate aggregate = toAggregate(dimension, key);
+        documentAggregateRepository.find(dimension, key)
+                .forEach(row -> addCount(aggregate, row));
+        return aggregate;
+    }
+
+    /**
+     * Counts for the values of a dimension in key order
+     * @param from Smallest key to include, or null
+     * @param to Largest key to include, or null
+     * @param limit Maximum number of values to return
+     */
+    @Transactional(readOnly = true)
+    public List<DocumentAggregate> getAggregates(AggregateDimension dimension, String from, String to, int limit) {
+        if (limit < 1) {
+            throw new BadRequestException("limit must be at least 1");
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        Map<String, DocumentAggregate> aggregates = new LinkedHashMap<>();
+        for (AggregateRow row : documentAggregateRepository.findRange(dimension, from, to, pageSize)) {
+            addCount(aggregates.computeIfAbsent(row.key(), key -> toAggregate(dimension, key)), row);
+        }
+        return new ArrayList<>(aggregates.values());
+    }
+
+    private static DocumentAggregate toAggregate(AggregateDimension dimension, String key) {
+        Map<DocumentStatus, Long> counts = new EnumMap<>(DocumentStatus.class);
+        for (DocumentStatus status : DocumentStatus.values()) {
+            counts.put(status, 0L);
+        }
+        return DocumentAggregate.builder()
+                .dimension(dimension.key())
+                .key(key)
+                .counts(counts)
+                .build();
+    }
+
+    private static void addCount(DocumentAggregate aggregate, AggregateRow row) {
+        aggregate.getCounts().put(row.status(), row.count());
+        aggregate.setTotal(aggregate.getTotal() + row.count());
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.documents.service;
+
+import com.example.documents.dto.DocumentDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * In-process read-through cache for single-document reads.
+ * Bounded by the estimated size of the cached documents rather than their count, with Caffeine's
+ * W-TinyLFU eviction. Concurrent misses on the same ID share one load.
+ * The doctors assigned to a document are cached alongside it and evicted with it.
+ */
+@Component
+public class DocumentCache {
+
+    // Rough fixed cost of a cached DTO and its map entry, on top of its strings
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    private final Cache<UUID, DocumentDTO> cache;
+    private final Cache<UUID, List<String>> doctorIds;
+
+    public DocumentCache(
+            @Value("${documents.cache.max-weight-bytes:67108864}") long maxWeightBytes,
+            @Value("${documents.cache.max-doctor-lists:100000}") long maxDoctorLists,
+            @Value("${documents.cache.expire-after-write:PT10M}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((UUID id, DocumentDTO document) -> weigh(document))
+                // Safety net in case an invalidation event is missed
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.doctorIds = Caffeine.newBuilder()
+                .maximumSize(maxDoctorLists)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    /**
+     * Return the cached document or load it, caching the result.
+     * Callers get their own copy, so changing it does not affect the cached entry.
+     * @param id Document ID
+     * @param loader Loads the document on a miss; exceptions propagate and nothing is cached
+     */
+    public DocumentDTO get(UUID id, Function<UUID, DocumentDTO> loader) {
+        return cache.get(id, loader).toBuilder().build();
+    }
+
+    /**
+     * Return the cached doctor IDs of a document or load them, caching the result
+     * @param loader Loads the IDs on a miss; exceptions propagate and nothing is cached
+     */
+    public List<String> getDoctorIds(UUID id, Function<UUID, List<String>> loader) {
+        return doctorIds.get(id, key -> List.copyOf(loader.apply(key)));
+    }
+
+    public void evict(UUID id) {
+        cache.invalidate(id);
+        doctorIds.invalidate(id);
+    }
+
+    /**
+     * Evict now and again once the surrounding transaction commits, so a read that races with the
+     * write cannot put the old row back into the cache
+     */
+    public void evictAfterCommit(UUID id) {
+        evict(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(id);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+        doctorIds.invalidateAll();
+    }
+
+    /**
+     * Hit, miss, load and eviction counters since startup, plus the current size
+     */
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("loadSuccessCount", stats.loadSuccessCount());
+        result.put("loadFailureCount", stats.loadFailureCount());
+        result.put("averageLoadPenaltyMillis", stats.averageLoadPenalty() / 1_000_000.0);
+        result.put("evictionCount", stats.evictionCount());
+        result.put("evictionWeightBytes", stats.evictionWeight());
+        result.put("estimatedSize", cache.estimatedSize());
+        cache.policy().eviction().ifPresent(eviction -> {
+            eviction.weightedSize().ifPresent(weight -> result.put("weightedSizeBytes", weight));
+            result.put("maximumWeightBytes", eviction.getMaximum());
+        });
+        return result;
+    }
+
+    private static int weigh(DocumentDTO document) {
+        long chars = length(document.getTitle()) + length(document.getPatientId())
+                + length(document.getDiagnosis()) + length(document.getDocumentType())
+                + length(document.getDepartment()) + length(document.getDoctorIds())
+                + length(document.getDescription());
+        return (int) Math.min(Integer.MAX_VALUE, ENTRY_OVERHEAD_BYTES + 2 * chars);
+    }
+
+    private static long length(String value) {
+        return value != null ? value.length() : 0;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.documents.service;
+
+import com.example.documents.dto.DocumentDoctorsView;
+import com.example.documents.model.DataMigration;
+import com.example.documents.model.Document;
+import com.example.documents.model.DocumentDoctor;
+import com.example.documents.repository.DataMigrationRepository;
+import com.example.documents.repository.DocumentDoctorRepository;
+import com.example.documents.repository.DocumentRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the document_doctors join table in sync with the doctors listed on each document
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentDoctorService {
+
+    private final DocumentDoctorRepository documentDoctorRepository;
+    private final DocumentRepository documentRepository;
+    private final DataMigrationRepository dataMigrationRepository;
+    private final EntityManager entityManager;
+    
+    private static final int BACKFILL_BATCH_SIZE = 500;
+    // Recorded in data_migrations once the join table has been filled
+    private static final String DOCTOR_MIGRATION = "document-doctors-from-doctor-ids";
+
+    /**
+     * Replace the doctor assignments of a document.
+     * Runs in the caller's transaction so the join table commits together with the document.
+     * @param documentId The document ID
+     * @param doctorIds Comma-separated doctor IDs as stored on the document, may be null
+     */
+    @Transactional
+    public void assignDoctors(UUID documentId, String doctorIds) {
+        documentDoctorRepository.deleteByDocumentId(documentId);
+        documentDoctorRepository.saveAll(buildAssignments(documentId, doctorIds));
+    }
+
+    /**
+     * Add the doctor assignments of documents that were just created, in one batch.
+     * New documents have no assignments yet, so nothing is deleted first.
+     */
+    @Transactional
+    public void assignDoctors(Collection<Document> newDocuments) {
+        List<DocumentDoctor> assignments = new ArrayList<>();
+        for (Document document : newDocuments) {
+            assignments.addAll(buildAssignments(document.getId(), document.getDoctorIds()));
+        }
+        documentDoctorRepository.saveAll(assignments);
+    }
+
+    /**
+     * Remove every doctor assignment of a deleted document
+     */
+    @Transactional
+    public void removeDoctors(UUID documentId) {
+        documentDoctorRepository.deleteByDocumentId(documentId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<String> getDoctorIds(UUID documentId) {
+        return documentDoctorRepository.findDoctorIdsByDocumentId(documentId);
+    }
+
+    /**
+     * Populate the join table from the doctor_ids column when it has never been filled,
+     * e.g. for databases created before the table existed.
+     * Only the ID and doctor_ids of documents that list doctors are read. Completion is recorded in
+     * data_migrations, so later boots skip the check even if no document has doctors.
+     */
+    @Transactional
+    public void backfillIfEmpty() {
+        if (dataMigrationRepository.existsById(DOCTOR_MIGRATION)) {
+            return;
+        }
+        // A table filled by a version that predates the marker is left as it is
+        if (documentDoctorRepository.count() == 0) {
+            backfill();
+        }
+        dataMigrationRepository.save(new DataMigration(DOCTOR_MIGRATION, LocalDateTime.now()));
+    }
+
+    private void backfill() {
+        int documents = 0;
+        try (Stream<DocumentDoctorsView> stream = documentRepository.streamDoctorIds()) {
+            for (DocumentDoctorsView document : (Iterable<DocumentDoctorsView>) stream::iterator) {
+                // The table is empty, so rows can be inserted without clearing old assignments first
+                documentDoctorRepository.saveAll(buildAssignments(document.getId(), document.getDoctorIds()));
+                if (++documents % BACKFILL_BATCH_SIZE == 0) {
+                    // Write out the batch and release it
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        }
+        log.info("Backfilled doctor assignments for {} documents", documents);
+    }
+
+    private List<DocumentDoctor> buildAssignments(UUID documentId, String doctorIds) {
+        List<String> parsed = parseDoctorIds(doctorIds);
+        List<DocumentDoctor> assignments = new ArrayList<>(parsed.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            assignments.add(DocumentDoctor.builder()
+                    .documentId(documentId)
+                    .doctorId(parsed.get(i))
+                    .position(i)
+                    .build());
+        }
+        return assignments;
+    }
+
+    /**
+     * Parse a comma-separated doctorIds string into distinct, trimmed doctor IDs
+     */
+    public static List<String> parseDoctorIds(String doctorIds) {
+        if (doctorIds == null || doctorIds.isBlank()) {
+            return List.of();
+        }
+        
+        Set<String> ids = new LinkedHashSet<>();
+        for (String id : doctorIds.split(",")) {
+            String trimmedId = id.trim();
+            if (!trimmedId.isEmpty()) {
+                ids.add(trimmedId);
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+}
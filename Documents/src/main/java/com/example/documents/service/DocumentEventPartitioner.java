@@ -0,0 +1,18 @@
+package com.example.documents.service;
+
+import com.example.messaging.outbox.EventPartitioner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Partitions events by their record key, the document ID: every event of a document is consumed in order
+ */
+@Component
+@ConditionalOnProperty(name = "documents.events.partition-by", havingValue = "document", matchIfMissing = true)
+public class DocumentEventPartitioner implements EventPartitioner {
+
+    @Override
+    public String partitionKey(String topic, String key, Object event) {
+        return key;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.documents.service;
+
+import com.example.documents.dto.DocumentStatusView;
+import com.example.documents.model.Document;
+import com.example.events.DocumentEvent;
+import com.example.events.DocumentStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Builds the {@link DocumentEvent} that announces a document on the document topics
+ */
+public final class DocumentEvents {
+
+    private DocumentEvents() {
+    }
+
+    public static DocumentEvent of(Document document) {
+        return DocumentEvent.builder()
+                .id(document.getId())
+                .title(document.getTitle())
+                .patientId(document.getPatientId())
+                .diagnosis(document.getDiagnosis())
+                .documentType(document.getDocumentType())
+                .department(document.getDepartment())
+                .createdAt(document.getCreatedAt())
+                .updatedAt(document.getUpdatedAt())
+                .statusUpdatedAt(document.getStatusUpdatedAt())
+                .procedureDate(document.getProcedureDate())
+                .doctorIds(document.getDoctorIds())
+                .status(document.getStatus())
+                .contentLength(document.getDescription() != null ? document.getDescription().length() : 0)
+                .contentUrl(contentUrl(document.getId()))
+                .build();
+    }
+
+    /**
+     * Announce a status change from the columns read for it; the other document fields are left unset
+     */
+    public static DocumentEvent of(DocumentStatusView view, DocumentStatus status, LocalDateTime statusUpdatedAt) {
+        return DocumentEvent.builder()
+                .id(view.getId())
+                .patientId(view.getPatientId())
+                .diagnosis(view.getDiagnosis())
+                .createdAt(view.getCreatedAt())
+                .statusUpdatedAt(statusUpdatedAt)
+                .doctorIds(view.getDoctorIds())
+                .status(status)
+                .contentUrl(contentUrl(view.getId()))
+                .build();
+    }
+
+    /**
+     * Path of a document's content, see {@code GET /api/v1/documents/{id}/content}
+     */
+    public static String contentUrl(UUID documentId) {
+        return "/api/v1/documents/" + documentId + "/content";
+    }
+}
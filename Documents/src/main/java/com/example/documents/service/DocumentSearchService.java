@@ -0,0 +1,163 @@
+package com.example.documents.service;
+
+import com.example.documents.dto.DocumentSearchHit;
+import com.example.documents.dto.response.CursorPage;
+import com.example.documents.exception.BadRequestException;
+import com.example.documents.model.Document;
+import com.example.documents.repository.DocumentRepository;
+import com.example.documents.repository.DocumentSearchRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Maintains the full-text index incrementally and answers ranked searches against it
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentSearchService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final Pattern SEARCH_TERM = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final Pattern HTML_TAG = Pattern.compile("<[^>]*>");
+
+    private final DocumentSearchRepository documentSearchRepository;
+    private final DocumentRepository documentRepository;
+    private final EntityManager entityManager;
+
+    /**
+     * Index or re-index a document.
+     * Runs in the caller's transaction so the index commits together with the document.
+     */
+    @Transactional
+    public void index(Document document) {
+        documentSearchRepository.upsert(document.getId(), document.getTitle(), document.getDiagnosis(),
+                toPlainText(document.getDescription()));
+    }
+
+    /**
+     * Index documents that were just created, in one batch
+     */
+    @Transactional
+    public void indexNew(List<Document> documents) {
+        documentSearchRepository.insertAll(documents.stream()
+                .map(document -> new DocumentSearchRepository.DocumentText(document.getId(), document.getTitle(),
+                        document.getDiagnosis(), toPlainText(document.getDescription())))
+                .toList());
+    }
+
+    @Transactional
+    public void remove(UUID documentId) {
+        documentSearchRepository.delete(documentId);
+    }
+
+    /**
+     * Index every document when the index has never been built, e.g. for databases created before it existed
+     */
+    @Transactional
+    public void rebuildIfEmpty() {
+        if (!documentSearchRepository.isEmpty()) {
+            return;
+        }
+        
+        int documents = 0;
+        try (Stream<Document> stream = documentRepository.streamBy(null)) {
+            for (Document document : (Iterable<Document>) stream::iterator) {
+                index(document);
+                entityManager.detach(document);
+                documents++;
+            }
+        }
+        log.info("Built full-text index for {} documents", documents);
+    }
+
+    /**
+     * Ranked full-text search over title, diagnosis and document text.
+     * Every word must match; the last one also matches as a prefix so partially typed queries work.
+     * @param query Free text entered by the user
+     * @param cursor Cursor returned by the previous page, or null for the first page
+     * @param limit Maximum number of hits to return
+     * @return Hits ordered from most to least relevant
+     * @throws BadRequestException If the query has no searchable words, the cursor is malformed or the limit is not positive
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<DocumentSearchHit> search(String query, String cursor, int limit) {
+        String matchQuery = toMatchQuery(query);
+        int offset = decodeCursor(cursor);
+        if (limit < 1) {
+            throw new BadRequestException("limit must be at least 1");
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        
+        List<DocumentSearchHit> rows = documentSearchRepository.search(matchQuery, offset, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<DocumentSearchHit> page = hasMore ? rows.subList(0, pageSize) : rows;
+        page.forEach(hit -> hit.setSnippet(highlight(hit.getSnippet())));
+        
+        return CursorPage.<DocumentSearchHit>builder()
+                .items(page)
+                .nextCursor(hasMore ? String.valueOf(offset + pageSize) : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Turn free text into an FTS5 query, quoting every word so user input cannot inject query syntax
+     */
+    static String toMatchQuery(String query) {
+        List<String> terms = new ArrayList<>();
+        Matcher matcher = SEARCH_TERM.matcher(query == null ? "" : query);
+        while (matcher.find()) {
+            terms.add("\"" + matcher.group() + "\"");
+        }
+        if (terms.isEmpty()) {
+            throw new BadRequestException("Search query must contain at least one word");
+        }
+        int last = terms.size() - 1;
+        terms.set(last, terms.get(last) + "*");
+        return String.join(" ", terms);
+    }
+
+    private static int decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            int offset = Integer.parseInt(cursor);
+            if (offset < 0) {
+                throw new NumberFormatException();
+            }
+            return offset;
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid search cursor: " + cursor, e);
+        }
+    }
+
+    // Description holds HTML; index only the visible text
+    private static String toPlainText(String html) {
+        if (html == null) {
+            return null;
+        }
+        return HtmlUtils.htmlUnescape(HTML_TAG.matcher(html).replaceAll(" "));
+    }
+
+    private static String highlight(String snippet) {
+        if (snippet == null) {
+            return null;
+        }
+        return HtmlUtils.htmlEscape(snippet)
+                .replace(DocumentSearchRepository.MATCH_START, "<mark>")
+                .replace(DocumentSearchRepository.MATCH_END, "</mark>");
+    }
+}
@@ -1,41 +1,118 @@
 package com.example.documents.service;
 
+import com.example.documents.dto.BulkStatusUpdateRequest;
 import com.example.documents.dto.DocumentDTO;
+import com.example.documents.dto.DocumentExportFilter;
+import com.example.documents.dto.DocumentField;
 import com.example.documents.dto.DocumentRequest;
-import com.example.documents.model.DocumentStatus;
+import com.example.documents.dto.response.CursorPage;
+import com.example.documents.exception.BatchRejectedException;
+import com.example.events.DocumentStatus;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface DocumentService {
     
-    List<DocumentDTO> getAllDocuments();
+    /**
+     * Document types served by the medical records endpoints
+     */
+    List<String> MEDICAL_RECORD_TYPES = List.of("MEDICAL_RECORD", "CARDIOLOGY_REPORT");
+    
+    /**
+     * Get one page of all documents ordered by creation time
+     * @param cursor Cursor returned by the previous page, or null for the first page
+     * @param limit Maximum number of documents to return
+     * @param fields Columns to select; the others are left null
+     * @return The requested page
+     */
+    CursorPage<DocumentDTO> getAllDocuments(String cursor, int limit, Set<DocumentField> fields);
+    
+    /**
+     * Stream every document to the consumer without materialising the whole table.
+     * Rows are read through a database cursor and released as soon as they are consumed.
+     * @param consumer Receives each document in creation order
+     */
+    void streamAllDocuments(Consumer<DocumentDTO> consumer);
+    
+    /**
+     * Stream the documents matching an export filter, in creation order, without materialising them
+     * @param filter Patient cohort, creation date range and status to export
+     * @param consumer Receives each matching document
+     * @return Number of documents exported
+     */
+    long exportDocuments(DocumentExportFilter filter, Consumer<DocumentDTO> consumer);
     
     DocumentDTO getDocumentById(UUID id);
     
+    /**
+     * Get a document with only the given fields populated
+     * @param id Document ID
+     * @param fields Columns to select; the others are left null
+     * @return The partially populated document
+     */
+    DocumentDTO getDocumentById(UUID id, Set<DocumentField> fields);
+    
+    /**
+     * Compute a strong ETag for a document representation without loading the document itself
+     * @param id Document ID
+     * @param fields Fields included in the representation
+     * @return Quoted entity tag that changes whenever the document or the field selection does
+     */
+    String getDocumentETag(UUID id, Set<DocumentField> fields);
+    
     DocumentDTO createDocument(DocumentRequest documentRequest, String createdByUserId);
     
+    /**
+     * Create many documents in one transaction.
+     * Rows are inserted in JDBC batches and the Kafka events are published once the transaction has committed.
+     * @param documentRequests The documents to create
+     * @param createdByUserId ID of the user creating the documents
+     * @return IDs of the created documents, in request order
+     */
+    List<UUID> createDocuments(List<DocumentRequest> documentRequests, String createdByUserId);
+    
     DocumentDTO updateDocument(UUID id, DocumentRequest documentRequest, String updatedByUserId);
     
     void deleteDocument(UUID id);
     
     List<DocumentDTO> getDocumentsByPatientId(String patientId);
     
+    CursorPage<DocumentDTO> getDocumentsByPatientId(String patientId, String cursor, int limit, Set<DocumentField> fields);
+    
+    /**
+     * Get a patient's documents of the given types, oldest first
+     * @param patientId The patient ID
+     * @param documentTypes Document types to include
+     * @return Matching documents
+     */
+    List<DocumentDTO> getDocumentsByPatientIdAndTypes(String patientId, Collection<String> documentTypes);
+    
     /**
-     * Get documents that include a specific doctor in the doctorIds list
+     * Get documents assigned to a specific doctor
      * @param doctorId The doctor ID to search for
-     * @return List of documents associated with the doctor
+     * @param cursor Cursor returned by the previous page, or null for the first page
+     * @param limit Maximum number of documents to return
+     * @param fields Columns to select; the others are left null
+     * @return Page of documents associated with the doctor
      */
-    List<DocumentDTO> getDocumentsByDoctorId(String doctorId);
+    CursorPage<DocumentDTO> getDocumentsByDoctorId(String doctorId, String cursor, int limit, Set<DocumentField> fields);
     
     /**
      * Get documents by status
      * @param status The status to filter by
-     * @return List of documents with the specified status
+     * @param cursor Cursor returned by the previous page, or null for the first page
+     * @param limit Maximum number of documents to return
+     * @param fields Columns to select; the others are left null
+     * @return Page of documents with the specified status
      */
-    List<DocumentDTO> getDocumentsByStatus(DocumentStatus status);
+    CursorPage<DocumentDTO> getDocumentsByStatus(DocumentStatus status, String cursor, int limit, Set<DocumentField> fields);
     
     /**
      * Get documents by type
@@ -44,37 +121,98 @@ public interface DocumentService {
      */
     List<DocumentDTO> getDocumentsByType(String type);
     
+    CursorPage<DocumentDTO> getDocumentsByType(String type, String cursor, int limit, Set<DocumentField> fields);
+    
     /**
      * Get documents by department
      * @param department The department to filter by
-     * @return List of documents from the specified department
+     * @param status Only return documents with this status, or null for any status
+     * @param cursor Cursor returned by the previous page, or null for the first page
+     * @param limit Maximum number of documents to return
+     * @param fields Columns to select; the others are left null
+     * @return Page of documents from the specified department
      */
-    List<DocumentDTO> getDocumentsByDepartment(String department);
+    CursorPage<DocumentDTO> getDocumentsByDepartment(String department, DocumentStatus status, String cursor, int limit,
+            Set<DocumentField> fields);
     
     /**
-     * Update document status
+     * Fill the document type of documents created before it had its own column, and clear the diagnosis of
+     * documents where it only held the type, updating their counters and search index entries
+     * @return Number of documents whose type was filled
+     */
+    int backfillDocumentTypes();
+    
+    /**
+     * Update document status without loading the document body
      * @param id Document ID
      * @param status New status
      * @param reason Optional reason for status change (especially for rejection)
-     * @return Updated document DTO
+     * @return Updated document DTO with the summary fields, i.e. without the description
+     * @throws IllegalStateException If the document cannot move from its current status to the new one
      */
     DocumentDTO updateDocumentStatus(UUID id, DocumentStatus status, String reason);
     
+    /**
+     * Move a document to a new status if its current status allows it, writing only the status columns
+     * @param id Document ID
+     * @param status New status
+     * @return Whether the transition applied; false if the document does not exist or its status does not allow it
+     */
+    boolean transitionStatus(UUID id, DocumentStatus status);
+    
+    /**
+     * Apply the status events of many documents with one read and one update per distinct transition.
+     * Each document's changes are folded in order into its final status: checked changes that its status at that
+     * point does not allow are skipped, forced ones always apply. Missing documents are skipped.
+     * @param changes Per document, the requested changes in arrival order
+     * @return IDs of the documents whose status columns were written
+     */
+    Set<UUID> applyStatusChanges(Map<UUID, List<StatusChange>> changes);
+    
+    /**
+     * Change the status of many documents in one transaction.
+     * Every transition is checked before anything is written, so either all updates apply or none do.
+     * @param updates Document IDs with their new status
+     * @return Number of documents whose status changed; updates to the current status are skipped
+     * @throws BatchRejectedException If a document does not exist, appears twice or cannot make its transition
+     */
+    int updateDocumentStatuses(List<BulkStatusUpdateRequest.StatusUpdate> updates);
+    
     /**
      * Upload and process a medical document
      * @param file The document file
      * @param patientId The ID of the patient this document is for
      * @param doctorId The ID of the primary doctor
-     * @param diagnosis The initial diagnosis
+     * @param documentType The type of medical document (e.g., CARDIOLOGY_REPORT)
      * @return The created document DTO
      * @throws IOException If there's an error processing the file
      */
-    DocumentDTO uploadMedicalDocument(MultipartFile file, String patientId, String doctorId, String diagnosis) throws IOException;
+    DocumentDTO uploadMedicalDocument(MultipartFile file, String patientId, String doctorId, String documentType) throws IOException;
+    
+    /**
+     * Store the text read out of an uploaded medical document and send it for extraction
+     * @param filename The name the document was uploaded with
+     * @param content The text of the document
+     * @param patientId The ID of the patient this document is for
+     * @param doctorId The ID of the primary doctor
+     * @param documentType The type of medical document (e.g., CARDIOLOGY_REPORT)
+     * @return The created document DTO
+     */
+    DocumentDTO createMedicalDocument(String filename, String content, String patientId, String doctorId,
+                                      String documentType);
     
     /**
-     * Parse the doctorIds string into a list of doctor IDs
-     * @param document The document containing doctorIds
-     * @return List of doctor IDs
+     * Get the doctor IDs assigned to a document
+     * @param document The document to look up
+     * @return List of doctor IDs in assignment order
      */
     List<String> extractDoctorIdsFromDocument(DocumentDTO document);
-}
\ No newline at end of file
+
+    /**
+     * A status change requested by an event
+     * @param status Status the document should move to
+     * @param force Whether to apply it whatever the current status, as a new extraction run resets the document
+     */
+    record StatusChange(DocumentStatus status, boolean force) {
+    }
+}
@@ -1,27 +1,52 @@
 package com.example.documents.service;
 
+import com.example.documents.dto.BulkStatusUpdateRequest;
+import com.example.documents.dto.DocumentCursor;
 import com.example.documents.dto.DocumentDTO;
+import com.example.documents.dto.DocumentExportFilter;
+import com.example.documents.dto.DocumentField;
 import com.example.documents.dto.DocumentRequest;
-import com.example.documents.dto.ExtractionRequestDTO;
+import com.example.documents.dto.DocumentStatusView;
+import com.example.documents.dto.DocumentVersion;
+import com.example.documents.dto.response.CursorPage;
+import com.example.documents.exception.BadRequestException;
+import com.example.documents.exception.BatchRejectedException;
 import com.example.documents.model.Document;
-import com.example.documents.model.DocumentStatus;
 import com.example.documents.repository.DocumentRepository;
+import com.example.documents.repository.DocumentSpecifications;
+import com.example.events.DocumentEvent;
+import com.example.events.DocumentStatus;
+import com.example.events.ExtractionRequestDTO;
+import com.example.messaging.outbox.OutboxService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -29,9 +54,20 @@ import java.util.stream.Collectors;
 public class DocumentServiceImpl implements DocumentService {
 
     private final DocumentRepository documentRepository;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OutboxService outboxService;
     private final WordDocumentProcessingService wordDocumentProcessingService;
+    private final DocumentDoctorService documentDoctorService;
+    private final DocumentSearchService documentSearchService;
+    private final DocumentCache documentCache;
+    private final DocumentAggregateService documentAggregateService;
+    private final ExtractionResultService extractionResultService;
     private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    
+    // Upper bound for a single page so a client cannot ask for the whole table at once
+    private static final int MAX_PAGE_SIZE = 500;
+    // Documents re-indexed per persistence context by startup backfills
+    private static final int BACKFILL_BATCH_SIZE = 500;
     
     private static final String TOPIC_DOCUMENT_CREATED = "document-created";
     private static final String TOPIC_DOCUMENT_UPDATED = "document-updated";
@@ -41,49 +77,151 @@ public class DocumentServiceImpl implements DocumentService {
     private static final String TOPIC_MEDICAL_DOCUMENT_FOR_EXTRACTION = "medical-document-for-extraction";
 
     @Override
-    public List<DocumentDTO> getAllDocuments() {
-        return documentRepository.findAll().stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPage<DocumentDTO> getAllDocuments(String cursor, int limit, Set<DocumentField> fields) {
+        return findPage(null, cursor, limit, fields);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllDocuments(Consumer<DocumentDTO> consumer) {
+        streamDocuments(null, consumer);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportDocuments(DocumentExportFilter filter, Consumer<DocumentDTO> consumer) {
+        Specification<Document> spec = Specification.where(null);
+        if (filter.getPatientIds() != null && !filter.getPatientIds().isEmpty()) {
+            spec = spec.and(DocumentSpecifications.hasPatientIdIn(filter.getPatientIds()));
+        }
+        if (filter.getCreatedFrom() != null) {
+            spec = spec.and(DocumentSpecifications.createdFrom(filter.getCreatedFrom()));
+        }
+        if (filter.getCreatedTo() != null) {
+            spec = spec.and(DocumentSpecifications.createdBefore(filter.getCreatedTo()));
+        }
+        if (filter.getStatus() != null) {
+            spec = spec.and(DocumentSpecifications.hasStatus(filter.getStatus()));
+        }
+        return streamDocuments(spec, consumer);
+    }
+
+    /**
+     * Feed each matching document to the consumer as it is read from the database cursor
+     * @return Number of documents streamed
+     */
+    private long streamDocuments(Specification<Document> spec, Consumer<DocumentDTO> consumer) {
+        long count = 0;
+        try (Stream<Document> documents = documentRepository.streamBy(spec)) {
+            Iterator<Document> iterator = documents.iterator();
+            while (iterator.hasNext()) {
+                Document document = iterator.next();
+                consumer.accept(mapToDTO(document));
+                // Keep the persistence context from growing with every row read
+                entityManager.detach(document);
+                count++;
+            }
+        }
+        return count;
     }
 
     @Override
     public DocumentDTO getDocumentById(UUID id) {
+        return documentCache.get(id, this::loadDocument);
+    }
+
+    private DocumentDTO loadDocument(UUID id) {
         return documentRepository.findById(id)
                 .map(this::mapToDTO)
                 .orElseThrow(() -> new EntityNotFoundException("Document not found with ID: " + id));
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public DocumentDTO getDocumentById(UUID id, Set<DocumentField> fields) {
+        if (fields.containsAll(DocumentField.ALL)) {
+            // Full reads go through the cache
+            return getDocumentById(id);
+        }
+        return documentRepository.findProjected(DocumentSpecifications.hasId(id), fields, Sort.unsorted(), 1).stream()
+                .findFirst()
+                .orElseThrow(() -> new EntityNotFoundException("Document not found with ID: " + id));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public String getDocumentETag(UUID id, Set<DocumentField> fields) {
+        DocumentVersion version = documentRepository.findVersionById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Document not found with ID: " + id));
+        String tag = id + "|" + version.getUpdatedAt() + "|" + version.getStatusUpdatedAt() + "|" + fields;
+        return "\"" + DigestUtils.md5DigestAsHex(tag.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
     @Override
     @Transactional
     public DocumentDTO createDocument(DocumentRequest documentRequest, String createdByUserId) {
-        // Determine if this is a creation or upload based on content presence
-        boolean isUpload = documentRequest.getContent() != null && !documentRequest.getContent().isEmpty();
+        Document savedDocument = documentRepository.save(toDocument(documentRequest));
+        documentDoctorService.assignDoctors(savedDocument.getId(), savedDocument.getDoctorIds());
+        documentSearchService.index(savedDocument);
+        documentAggregateService.apply(null, DocumentAggregateService.Snapshot.of(savedDocument));
+        DocumentDTO documentDTO = mapToDTO(savedDocument);
         
-        Document document = Document.builder()
+        // Publish the appropriate event to Kafka once the document is committed
+        String topic = creationTopic(documentRequest);
+        log.info("Publishing {} event for document ID: {}", topic, documentDTO.getId());
+        outboxService.publish(topic, documentDTO.getId().toString(), DocumentEvents.of(savedDocument));
+        
+        return documentDTO;
+    }
+
+    @Override
+    @Transactional
+    public List<UUID> createDocuments(List<DocumentRequest> documentRequests, String createdByUserId) {
+        // IDs are generated in memory on persist, so the inserts can be batched without a round trip per row
+        List<Document> savedDocuments = documentRepository.saveAll(documentRequests.stream()
+                .map(this::toDocument)
+                .toList());
+        documentDoctorService.assignDoctors(savedDocuments);
+        documentSearchService.indexNew(savedDocuments);
+        documentAggregateService.apply(List.of(), savedDocuments.stream()
+                .map(DocumentAggregateService.Snapshot::of)
+                .toList());
+        
+        // Written to the outbox with the batch, so a rolled back batch announces nothing
+        List<OutboxService.Event> events = new ArrayList<>(savedDocuments.size());
+        for (int i = 0; i < savedDocuments.size(); i++) {
+            Document savedDocument = savedDocuments.get(i);
+            events.add(new OutboxService.Event(creationTopic(documentRequests.get(i)), savedDocument.getId().toString(),
+                    DocumentEvents.of(savedDocument)));
+        }
+        outboxService.publishAll(events);
+        log.info("Publishing creation events for {} documents", events.size());
+        
+        return savedDocuments.stream().map(Document::getId).toList();
+    }
+    
+    private Document toDocument(DocumentRequest documentRequest) {
+        return Document.builder()
                 .title(documentRequest.getTitle())
                 .patientId(documentRequest.getPatientId())
                 .diagnosis(documentRequest.getDiagnosis())
+                .documentType(documentRequest.getDocumentType())
+                .department(documentRequest.getDepartment())
                 .procedureDate(documentRequest.getProcedureDate())
                 .doctorIds(documentRequest.getDoctorIds())
                 .description(documentRequest.getDescription())
                 // Always start with PENDING, workflow service will update status
                 .status(documentRequest.getStatus() != null ? documentRequest.getStatus() : DocumentStatus.PENDING)
                 .build();
-                
-        Document savedDocument = documentRepository.save(document);
-        DocumentDTO documentDTO = mapToDTO(savedDocument);
-        
-        // Publish the appropriate event to Kafka
-        if (isUpload) {
-            log.info("Publishing document uploaded event for document ID: {}", documentDTO.getId());
-            kafkaTemplate.send(TOPIC_DOCUMENT_UPLOADED, documentDTO);
-        } else {
-            log.info("Publishing document created event for document ID: {}", documentDTO.getId());
-            kafkaTemplate.send(TOPIC_DOCUMENT_CREATED, documentDTO);
-        }
-        
-        return documentDTO;
+    }
+    
+    /**
+     * Requests with content are uploads, the others are plain creations
+     */
+    private String creationTopic(DocumentRequest documentRequest) {
+        boolean isUpload = documentRequest.getContent() != null && !documentRequest.getContent().isEmpty();
+        return isUpload ? TOPIC_DOCUMENT_UPLOADED : TOPIC_DOCUMENT_CREATED;
     }
 
     @Override
@@ -91,10 +229,13 @@ public class DocumentServiceImpl implements DocumentService {
     public DocumentDTO updateDocument(UUID id, DocumentRequest documentRequest, String updatedByUserId) {
         Document document = documentRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Document not found with ID: " + id));
+        DocumentAggregateService.Snapshot before = DocumentAggregateService.Snapshot.of(document);
                 
         document.setTitle(documentRequest.getTitle());
         document.setPatientId(documentRequest.getPatientId());
         document.setDiagnosis(documentRequest.getDiagnosis());
+        document.setDocumentType(documentRequest.getDocumentType());
+        document.setDepartment(documentRequest.getDepartment());
         document.setProcedureDate(documentRequest.getProcedureDate());
         document.setDoctorIds(documentRequest.getDoctorIds());
         document.setDescription(documentRequest.getDescription());
@@ -111,10 +252,14 @@ public class DocumentServiceImpl implements DocumentService {
         }
         
         Document updatedDocument = documentRepository.save(document);
+        documentDoctorService.assignDoctors(updatedDocument.getId(), updatedDocument.getDoctorIds());
+        documentSearchService.index(updatedDocument);
+        documentAggregateService.apply(before, DocumentAggregateService.Snapshot.of(updatedDocument));
+        documentCache.evictAfterCommit(id);
         DocumentDTO documentDTO = mapToDTO(updatedDocument);
         
         // Publish the event to Kafka
-        kafkaTemplate.send(TOPIC_DOCUMENT_UPDATED, documentDTO);
+        outboxService.publish(TOPIC_DOCUMENT_UPDATED, documentDTO.getId().toString(), DocumentEvents.of(updatedDocument));
         
         return documentDTO;
     }
@@ -126,9 +271,17 @@ public class DocumentServiceImpl implements DocumentService {
                 .orElseThrow(() -> new EntityNotFoundException("Document not found with ID: " + id));
         
         documentRepository.delete(document);
+        documentDoctorService.removeDoctors(id);
+        extractionResultService.removeResults(id);
+        documentSearchService.remove(id);
+        documentAggregateService.apply(DocumentAggregateService.Snapshot.of(document), null);
+        documentCache.evictAfterCommit(id);
         
         // Publish the event to Kafka
-        kafkaTemplate.send(TOPIC_DOCUMENT_DELETED, mapToDTO(document));
+        // The content goes with the document, so there is nothing left to fetch
+        DocumentEvent deleted = DocumentEvents.of(document);
+        deleted.setContentUrl(null);
+        outboxService.publish(TOPIC_DOCUMENT_DELETED, id.toString(), deleted);
     }
 
     @Override
@@ -139,83 +292,300 @@ public class DocumentServiceImpl implements DocumentService {
     }
 
     @Override
-    public List<DocumentDTO> getDocumentsByDoctorId(String doctorId) {
-        // Since we removed the custom repository method, we'll filter manually
-        return documentRepository.findAll().stream()
-                .filter(doc -> doc.getDoctorIds() != null && doc.getDoctorIds().contains(doctorId))
+    @Transactional(readOnly = true)
+    public CursorPage<DocumentDTO> getDocumentsByPatientId(String patientId, String cursor, int limit, Set<DocumentField> fields) {
+        return findPage(DocumentSpecifications.hasPatientId(patientId), cursor, limit, fields);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<DocumentDTO> getDocumentsByPatientIdAndTypes(String patientId, Collection<String> documentTypes) {
+        return documentRepository.findByPatientIdAndDocumentTypeInOrderByCreatedAtAscIdAsc(patientId, documentTypes).stream()
                 .map(this::mapToDTO)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<DocumentDTO> getDocumentsByDoctorId(String doctorId, String cursor, int limit, Set<DocumentField> fields) {
+        return findPage(DocumentSpecifications.hasDoctor(doctorId), cursor, limit, fields);
+    }
+
     @Override
     public List<DocumentDTO> getDocumentsByType(String type) {
-        // Since the Document model doesn't have a type field, we'll use the diagnosis field as a substitute
-        // This is a workaround to maintain compatibility with the existing API
-        return documentRepository.findByDiagnosis(type).stream()
+        return documentRepository.findByDocumentTypeOrderByCreatedAtAscIdAsc(type).stream()
                 .map(this::mapToDTO)
                 .collect(Collectors.toList());
     }
 
     @Override
-    public List<DocumentDTO> getDocumentsByDepartment(String department) {
-        // Since Document model doesn't have a department field, we'll return all documents
-        // This is a placeholder implementation
-        log.warn("Department filtering not supported in current Document model");
-        return getAllDocuments();
+    @Transactional(readOnly = true)
+    public CursorPage<DocumentDTO> getDocumentsByType(String type, String cursor, int limit, Set<DocumentField> fields) {
+        return findPage(DocumentSpecifications.hasDocumentType(type), cursor, limit, fields);
     }
 
     @Override
-    public List<DocumentDTO> getDocumentsByStatus(DocumentStatus status) {
-        return documentRepository.findByStatus(status).stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPage<DocumentDTO> getDocumentsByDepartment(String department, DocumentStatus status, String cursor, int limit,
+            Set<DocumentField> fields) {
+        Specification<Document> spec = DocumentSpecifications.hasDepartment(department);
+        if (status != null) {
+            spec = spec.and(DocumentSpecifications.hasStatus(status));
+        }
+        return findPage(spec, cursor, limit, fields);
+    }
+
+    @Override
+    @Transactional
+    public int backfillDocumentTypes() {
+        List<UUID> ids = documentRepository.findIdsWithTypeOnlyInDiagnosis(MEDICAL_RECORD_TYPES);
+        if (!ids.isEmpty()) {
+            documentRepository.backfillDocumentTypes(MEDICAL_RECORD_TYPES, LocalDateTime.now());
+            publishBulkUpdates(ids, document -> { });
+            log.info("Backfilled document type for {} documents", ids.size());
+        }
+        clearTypeDiagnoses();
+        return ids.size();
+    }
+
+    /**
+     * Take document types out of diagnosis, where uploads used to store them, so they stop being counted and indexed
+     * as diagnoses
+     */
+    private void clearTypeDiagnoses() {
+        List<DocumentStatusView> before = documentRepository.findStatusViewsWithTypeAsDiagnosis();
+        if (before.isEmpty()) {
+            return;
+        }
+        documentRepository.clearTypeDiagnoses(LocalDateTime.now());
+        
+        List<UUID> ids = before.stream().map(DocumentStatusView::getId).toList();
+        documentAggregateService.apply(
+                before.stream().map(view -> DocumentAggregateService.Snapshot.of(view, view.getStatus())).toList(),
+                documentRepository.findStatusViewsByIdIn(ids).stream()
+                        .map(view -> DocumentAggregateService.Snapshot.of(view, view.getStatus()))
+                        .toList());
+        publishBulkUpdates(ids, documentSearchService::index);
+        log.info("Cleared the document type out of the diagnosis of {} documents", ids.size());
+    }
+
+    /**
+     * Publish an update event for each document changed by a bulk update, so every instance evicts it from its
+     * cache, and evict it here
+     * @param reindex Applied to each document as it is read back
+     */
+    private void publishBulkUpdates(List<UUID> ids, Consumer<Document> reindex) {
+        for (int start = 0; start < ids.size(); start += BACKFILL_BATCH_SIZE) {
+            List<Document> documents = documentRepository.findAllById(
+                    ids.subList(start, Math.min(start + BACKFILL_BATCH_SIZE, ids.size())));
+            documents.forEach(reindex);
+            outboxService.publishAll(documents.stream()
+                    .map(document -> new OutboxService.Event(TOPIC_DOCUMENT_UPDATED, document.getId().toString(), DocumentEvents.of(document)))
+                    .toList());
+            // Release the batch, descriptions included
+            entityManager.clear();
+        }
+        ids.forEach(documentCache::evictAfterCommit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<DocumentDTO> getDocumentsByStatus(DocumentStatus status, String cursor, int limit, Set<DocumentField> fields) {
+        return findPage(DocumentSpecifications.hasStatus(status), cursor, limit, fields);
+    }
+    
+    /**
+     * Fetch one keyset page: rows after the cursor in (createdAt, id) order.
+     * Only the requested columns are selected, and one extra row is read to find out whether another page follows.
+     */
+    private CursorPage<DocumentDTO> findPage(Specification<Document> filter, String cursor, int limit, Set<DocumentField> fields) {
+        if (limit < 1) {
+            throw new BadRequestException("limit must be at least 1");
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        Specification<Document> spec = Specification.where(filter)
+                .and(DocumentSpecifications.after(DocumentCursor.decode(cursor)));
+        
+        List<DocumentDTO> rows = documentRepository.findProjected(spec, fields, DocumentSpecifications.KEYSET_SORT, pageSize + 1);
+        
+        boolean hasMore = rows.size() > pageSize;
+        List<DocumentDTO> page = hasMore ? rows.subList(0, pageSize) : rows;
+        return CursorPage.<DocumentDTO>builder()
+                .items(page)
+                .nextCursor(hasMore ? DocumentCursor.of(page.get(page.size() - 1)).encode() : null)
+                .hasMore(hasMore)
+                .build();
     }
     
     @Override
     @Transactional
     public DocumentDTO updateDocumentStatus(UUID id, DocumentStatus status, String metadata) {
-        Document document = documentRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Document not found with ID: " + id));
+        DocumentStatusView current = findStatusView(id);
         
-        if (isValidStatusTransition(document.getStatus(), status)) {
-            document.setStatus(status);
-            document.setStatusUpdatedAt(LocalDateTime.now());
-            
-            // We don't update any metadata as the Document model doesn't have that field
-            
-            Document updatedDocument = documentRepository.save(document);
-            return mapToDTO(updatedDocument);
-        } else {
+        // We don't update any metadata as the Document model doesn't have that field
+        if (!applyStatusTransition(id, current, status)) {
             throw new IllegalStateException(
                 String.format("Invalid status transition from %s to %s for document %s", 
-                document.getStatus(), status, id));
+                current.getStatus(), status, id));
         }
+        return getDocumentById(id, DocumentField.SUMMARY);
+    }
+    
+    @Override
+    @Transactional
+    public boolean transitionStatus(UUID id, DocumentStatus status) {
+        return documentRepository.findStatusViewById(id)
+                .map(current -> applyStatusTransition(id, current, status))
+                .orElse(false);
+    }
+    
+    private DocumentStatusView findStatusView(UUID id) {
+        return documentRepository.findStatusViewById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Document not found with ID: " + id));
     }
     
     /**
-     * Check if a status transition is valid based on workflow rules
+     * Conditionally update the status columns only; the allowed source statuses are checked by the UPDATE itself
      */
-    private boolean isValidStatusTransition(DocumentStatus currentStatus, DocumentStatus newStatus) {
-        // Allow same status (no change)
-        if (currentStatus == newStatus) {
-            return true;
+    private boolean applyStatusTransition(UUID id, DocumentStatusView current, DocumentStatus status) {
+        int updated = documentRepository.transitionStatus(id, DocumentStatus.sourcesOf(status), status, LocalDateTime.now());
+        if (updated == 0) {
+            return false;
+        }
+        documentAggregateService.apply(DocumentAggregateService.Snapshot.of(current, current.getStatus()),
+                DocumentAggregateService.Snapshot.of(current, status));
+        documentCache.evictAfterCommit(id);
+        return true;
+    }
+    
+    @Override
+    @Transactional
+    public Set<UUID> applyStatusChanges(Map<UUID, List<StatusChange>> changes) {
+        if (changes.isEmpty()) {
+            return Set.of();
+        }
+        Map<UUID, DocumentStatusView> current = documentRepository.findStatusViewsByIdIn(changes.keySet()).stream()
+                .collect(Collectors.toMap(DocumentStatusView::getId, Function.identity()));
+        
+        // Documents grouped by the status they are in and the one they end up in, so each group is one UPDATE
+        Map<StatusTransition, List<UUID>> transitions = new LinkedHashMap<>();
+        List<DocumentAggregateService.Snapshot> before = new ArrayList<>();
+        List<DocumentAggregateService.Snapshot> after = new ArrayList<>();
+        changes.forEach((id, requested) -> {
+            DocumentStatusView view = current.get(id);
+            if (view == null) {
+                log.warn("Ignored {} status events for document {}: not found", requested.size(), id);
+                return;
+            }
+            DocumentStatus status = view.getStatus();
+            boolean applied = false;
+            for (StatusChange change : requested) {
+                if (change.force() || isValidStatusTransition(status, change.status())) {
+                    status = change.status();
+                    applied = true;
+                } else {
+                    log.warn("Ignored status event for document {}: cannot move from {} to {}", id, status, change.status());
+                }
+            }
+            if (!applied) {
+                return;
+            }
+            transitions.computeIfAbsent(new StatusTransition(view.getStatus(), status), t -> new ArrayList<>()).add(id);
+            if (status != view.getStatus()) {
+                before.add(DocumentAggregateService.Snapshot.of(view, view.getStatus()));
+                after.add(DocumentAggregateService.Snapshot.of(view, status));
+            }
+            documentCache.evictAfterCommit(id);
+        });
+        
+        LocalDateTime now = LocalDateTime.now();
+        Set<UUID> written = new HashSet<>();
+        for (Map.Entry<StatusTransition, List<UUID>> transition : transitions.entrySet()) {
+            List<UUID> ids = transition.getValue();
+            int updated = documentRepository.transitionStatuses(ids, transition.getKey().from(), transition.getKey().to(), now);
+            if (updated != ids.size()) {
+                // Counters were computed from the statuses read above; roll back so the events are applied again
+                throw new IllegalStateException(String.format("%d of %d documents left status %s while applying status events",
+                        ids.size() - updated, ids.size(), transition.getKey().from()));
+            }
+            written.addAll(ids);
+        }
+        documentAggregateService.apply(before, after);
+        return written;
+    }
+    
+    private record StatusTransition(DocumentStatus from, DocumentStatus to) {
+    }
+    
+    @Override
+    @Transactional
+    public int updateDocumentStatuses(List<BulkStatusUpdateRequest.StatusUpdate> updates) {
+        Map<UUID, DocumentStatus> requested = new LinkedHashMap<>();
+        Map<String, String> errors = new LinkedHashMap<>();
+        for (BulkStatusUpdateRequest.StatusUpdate update : updates) {
+            if (requested.putIfAbsent(update.getId(), update.getStatus()) != null) {
+                errors.put(update.getId().toString(), "Document appears more than once in the batch");
+            }
         }
         
-        // Define allowed transitions based on current status
-        switch (currentStatus) {
-            case PENDING:
-                // From PENDING, can move to VALIDATED or REJECTED
-                return newStatus == DocumentStatus.VALIDATED 
-                    || newStatus == DocumentStatus.REJECTED;
-            case VALIDATED:
-                // From VALIDATED, can move to REJECTED if needed
-                return newStatus == DocumentStatus.REJECTED;
-            case REJECTED:
-                // From REJECTED, can move back to PENDING for reconsideration
-                return newStatus == DocumentStatus.PENDING;
-            default:
-                return false;
+        Map<UUID, DocumentStatusView> views = documentRepository.findStatusViewsByIdIn(requested.keySet()).stream()
+                .collect(Collectors.toMap(DocumentStatusView::getId, Function.identity()));
+        requested.forEach((id, status) -> {
+            DocumentStatusView view = views.get(id);
+            if (view == null) {
+                errors.put(id.toString(), "Document not found");
+            } else if (!isValidStatusTransition(view.getStatus(), status)) {
+                errors.put(id.toString(), String.format("Invalid status transition from %s to %s", view.getStatus(), status));
+            }
+        });
+        if (!errors.isEmpty()) {
+            throw new BatchRejectedException(String.format("%d of %d status updates rejected, no documents were changed",
+                    errors.size(), updates.size()), errors);
+        }
+        
+        // Documents moving between the same two statuses are written by one UPDATE, as in applyStatusChanges
+        Map<StatusTransition, List<UUID>> transitions = new LinkedHashMap<>();
+        List<DocumentAggregateService.Snapshot> before = new ArrayList<>();
+        List<DocumentAggregateService.Snapshot> after = new ArrayList<>();
+        List<OutboxService.Event> events = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        requested.forEach((id, status) -> {
+            DocumentStatusView view = views.get(id);
+            if (view.getStatus() == status) {
+                return;
+            }
+            transitions.computeIfAbsent(new StatusTransition(view.getStatus(), status), t -> new ArrayList<>()).add(id);
+            before.add(DocumentAggregateService.Snapshot.of(view, view.getStatus()));
+            after.add(DocumentAggregateService.Snapshot.of(view, status));
+            events.add(new OutboxService.Event(TOPIC_DOCUMENT_UPDATED, id.toString(), DocumentEvents.of(view, status, now)));
+            documentCache.evictAfterCommit(id);
+        });
+        for (Map.Entry<StatusTransition, List<UUID>> transition : transitions.entrySet()) {
+            List<UUID> ids = transition.getValue();
+            int updated = documentRepository.transitionStatuses(ids, transition.getKey().from(), transition.getKey().to(), now);
+            if (updated != ids.size()) {
+                // Another writer got in between; the transitions were checked against the statuses read above
+                Map<String, String> changed = new LinkedHashMap<>();
+                ids.forEach(id -> changed.put(id.toString(),
+                        String.format("Status changed concurrently, expected %s", transition.getKey().from())));
+                throw new BatchRejectedException(String.format("%d of %d documents left status %s, no documents were changed",
+                        ids.size() - updated, ids.size(), transition.getKey().from()), changed);
+            }
         }
+        documentAggregateService.apply(before, after);
+        
+        outboxService.publishAll(events);
+        return events.size();
+    }
+    
+    /**
+     * Check if a status transition is valid based on workflow rules
+     */
+    private boolean isValidStatusTransition(DocumentStatus currentStatus, DocumentStatus newStatus) {
+        if (currentStatus == null) {
+            return newStatus == null;
+        }
+        return currentStatus.canTransitionTo(newStatus);
     }
     
     private DocumentDTO mapToDTO(Document document) {
@@ -224,6 +594,8 @@ public class DocumentServiceImpl implements DocumentService {
                 .title(document.getTitle())
                 .patientId(document.getPatientId())
                 .diagnosis(document.getDiagnosis())
+                .documentType(document.getDocumentType())
+                .department(document.getDepartment())
                 .createdAt(document.getCreatedAt())
                 .updatedAt(document.getUpdatedAt())
                 .statusUpdatedAt(document.getStatusUpdatedAt())
@@ -236,18 +608,25 @@ public class DocumentServiceImpl implements DocumentService {
 
     @Override
     @Transactional
-    public DocumentDTO uploadMedicalDocument(MultipartFile file, String patientId, String doctorId, String diagnosis) throws IOException {
-        log.info("Processing medical document upload for patient: {}, doctor: {}, diagnosis: {}", patientId, doctorId, diagnosis);
+    public DocumentDTO uploadMedicalDocument(MultipartFile file, String patientId, String doctorId, String documentType) throws IOException {
+        log.info("Processing medical document upload for patient: {}, doctor: {}, type: {}", patientId, doctorId, documentType);
         
         // Extract text content from document
         String content = wordDocumentProcessingService.extractText(file);
-        String originalFilename = file.getOriginalFilename() != null ? file.getOriginalFilename() : "unknown.docx";
+        return createMedicalDocument(file.getOriginalFilename(), content, patientId, doctorId, documentType);
+    }
+
+    @Override
+    @Transactional
+    public DocumentDTO createMedicalDocument(String filename, String content, String patientId, String doctorId,
+                                             String documentType) {
+        String originalFilename = filename != null ? filename : "unknown.docx";
         
         // Create document entity
         Document document = Document.builder()
                 .title("Medical Document - " + originalFilename)
                 .patientId(patientId)
-                .diagnosis(diagnosis)
+                .documentType(documentType) // Diagnosis is filled in by extraction
                 .description(content) // Store content in description field
                 .doctorIds(doctorId) // Store doctor ID in doctorIds field
                 .procedureDate(LocalDateTime.now())
@@ -255,43 +634,32 @@ public class DocumentServiceImpl implements DocumentService {
                 .build();
         
         Document savedDocument = documentRepository.save(document);
+        documentDoctorService.assignDoctors(savedDocument.getId(), savedDocument.getDoctorIds());
+        documentSearchService.index(savedDocument);
+        documentAggregateService.apply(null, DocumentAggregateService.Snapshot.of(savedDocument));
         DocumentDTO documentDTO = mapToDTO(savedDocument);
         
-        // Create extraction request for AI processing
+        // Create extraction request for AI processing; the extractor fetches the content (the description) itself
+        DocumentEvent documentEvent = DocumentEvents.of(savedDocument);
         ExtractionRequestDTO extractionRequest = ExtractionRequestDTO.builder()
-                .documentId(documentDTO.getId())
-                .content(documentDTO.getDescription()) // Use description as content
+                .documentId(documentEvent.getId())
+                .contentLength(documentEvent.getContentLength())
+                .contentUrl(documentEvent.getContentUrl())
                 .build();
         
-        // Send to Kafka for AI extraction processing
+        // Send to Kafka for AI extraction processing, and the regular document uploaded event to trigger workflow.
+        // Both are sent by the outbox relay after the document is committed.
         log.info("Publishing medical document to extraction topic, document ID: {}", documentDTO.getId());
-        kafkaTemplate.send(TOPIC_MEDICAL_DOCUMENT_FOR_EXTRACTION, documentDTO.getId().toString(), extractionRequest);
-        
-        // Also send the regular document uploaded event to trigger workflow
-        kafkaTemplate.send(TOPIC_DOCUMENT_UPLOADED, documentDTO);
+        outboxService.publishAll(List.of(
+                new OutboxService.Event(TOPIC_MEDICAL_DOCUMENT_FOR_EXTRACTION, documentDTO.getId().toString(), extractionRequest),
+                new OutboxService.Event(TOPIC_DOCUMENT_UPLOADED, documentDTO.getId().toString(), documentEvent)));
         
         return documentDTO;
     }
 
     @Override
     public List<String> extractDoctorIdsFromDocument(DocumentDTO document) {
-        List<String> doctorIds = new ArrayList<>();
-
-        try {
-            // Parse the comma-separated doctorIds string into a list
-            if (document.getDoctorIds() != null && !document.getDoctorIds().isBlank()) {
-                String[] ids = document.getDoctorIds().split(",");
-                for (String id : ids) {
-                    String trimmedId = id.trim();
-                    if (!trimmedId.isEmpty()) {
-                        doctorIds.add(trimmedId);
-                    }
-                }
-            }
-        } catch (Exception e) {
-            log.error("Error parsing doctor IDs from document {}: {}", document.getId(), e.getMessage());
-        }
-
-        return doctorIds;
+        // Read the normalized assignments instead of re-parsing the doctorIds string
+        return documentCache.getDoctorIds(document.getId(), documentDoctorService::getDoctorIds);
     }
 }
\ No newline at end of file
@@ -0,0 +1,340 @@
+package com.example.documents.service;
+
+import org.apache.poi.openxml4j.util.ZipSecureFile;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads the text of a .docx file in one pass over the package, without building its object model.
+ * <p>
+ * Entries are read straight off the zip stream, and the main document, headers and footers are pulled through a
+ * StAX parser one event at a time; images and other parts are skipped unread. Text is laid out like
+ * {@code XWPFWordExtractor} does: headers, then the body, then footers; a line per paragraph; table cells and the
+ * paragraphs within them separated by tabs, rows by line breaks, and tables followed by a blank line. Deleted
+ * revisions, field codes and the fallback copies of text boxes are left out, as are hyperlink targets.
+ * <p>
+ * Every entry is inflated through an {@link InflationGuard}, so the zip bomb limits of {@link ZipSecureFile} that
+ * protect {@code XWPFDocument} hold here as well.
+ */
+final class DocxTextExtractor {
+
+    static final String MAIN_DOCUMENT = "word/document.xml";
+    private static final Pattern HEADER = Pattern.compile("word/header\\d*\\.xml");
+    private static final Pattern FOOTER = Pattern.compile("word/footer\\d*\\.xml");
+
+    // Transitional and strict WordprocessingML
+    private static final Set<String> WORD_NAMESPACES = Set.of(
+            "http://schemas.openxmlformats.org/wordprocessingml/2006/main",
+            "http://purl.oclc.org/ooxml/wordprocessingml/main");
+    private static final String MARKUP_COMPATIBILITY_NAMESPACE =
+            "http://schemas.openxmlformats.org/markup-compatibility/2006";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    private DocxTextExtractor() {
+    }
+
+    /**
+     * Thrown when the file is not a package with a readable main document, e.g. a .doc file named .docx
+     */
+    static class UnreadableDocxException extends IOException {
+        UnreadableDocxException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * Thrown when the package exceeds the limits of {@link ZipSecureFile}. The file is rejected rather than loaded
+     * whole, which would fail the same way.
+     */
+    static class ZipBombException extends IOException {
+        ZipBombException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The text of the .docx file the stream reads; the stream is read to the end but not closed
+     * @throws UnreadableDocxException If the stream is not a .docx file or its main document is not well-formed
+     * @throws ZipBombException If the package has more entries, or an entry inflates to more, than ZipSecureFile allows
+     */
+    static String extract(InputStream inputStream) throws IOException {
+        StringBuilder headers = new StringBuilder();
+        StringBuilder body = null;
+        StringBuilder footers = new StringBuilder();
+        CountingInputStream compressed = new CountingInputStream(inputStream);
+        ZipInputStream zip = new ZipInputStream(compressed);
+        long entries = 0;
+        try {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                if (++entries > ZipSecureFile.getMaxFileCount()) {
+                    throw new ZipBombException("More than " + ZipSecureFile.getMaxFileCount()
+                            + " entries in the package");
+                }
+                String name = entry.getName();
+                InflationGuard part = new InflationGuard(zip, compressed, name);
+                if (name.equals(MAIN_DOCUMENT)) {
+                    body = new StringBuilder();
+                    appendText(part, body);
+                } else if (HEADER.matcher(name).matches()) {
+                    appendText(part, headers);
+                } else if (FOOTER.matcher(name).matches()) {
+                    appendText(part, footers);
+                }
+                // Otherwise the next entry would inflate the rest of this one to skip it, past the guard
+                part.skipToEnd();
+            }
+        } catch (XMLStreamException e) {
+            ZipBombException zipBomb = zipBombOf(e);
+            if (zipBomb != null) {
+                throw zipBomb;
+            }
+            throw new UnreadableDocxException("Unreadable Word document part: " + e.getMessage(), e);
+        } catch (ZipException | IllegalArgumentException e) {
+            throw new UnreadableDocxException("Unreadable Word document part: " + e.getMessage(), e);
+        }
+        if (body == null) {
+            throw new UnreadableDocxException("No " + MAIN_DOCUMENT + " in the package", null);
+        }
+        return headers.append(body).append(footers).toString();
+    }
+
+    /**
+     * Append the text of one part, streaming its XML
+     */
+    private static void appendText(InflationGuard part, StringBuilder text) throws XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(part);
+        try {
+            // Per open table cell, how many paragraphs it had so far
+            Deque<int[]> cells = new ArrayDeque<>();
+            // Per open table row, how many cells it had so far
+            Deque<int[]> rows = new ArrayDeque<>();
+            int runDepth = 0;
+            boolean inText = false;
+            int skipDepth = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (skipDepth > 0) {
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        skipDepth++;
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        skipDepth--;
+                    }
+                    continue;
+                }
+                switch (event) {
+                    case XMLStreamConstants.START_ELEMENT -> {
+                        String namespace = reader.getNamespaceURI();
+                        if (MARKUP_COMPATIBILITY_NAMESPACE.equals(namespace)
+                                && reader.getLocalName().equals("Fallback")) {
+                            // The same content as the choice before it, for older readers
+                            skipDepth = 1;
+                        } else if (WORD_NAMESPACES.contains(namespace)) {
+                            switch (reader.getLocalName()) {
+                                case "p" -> {
+                                    // Paragraphs within a cell are separated by tabs, not terminated
+                                    if (!cells.isEmpty() && cells.peek()[0]++ > 0) {
+                                        text.append('\t');
+                                    }
+                                }
+                                case "tr" -> rows.push(new int[1]);
+                                case "tc" -> {
+                                    if (!rows.isEmpty() && rows.peek()[0]++ > 0) {
+                                        text.append('\t');
+                                    }
+                                    cells.push(new int[1]);
+                                }
+                                case "r" -> runDepth++;
+                                case "t" -> inText = runDepth > 0;
+                                // Tab stops and breaks outside runs are formatting, not content
+                                case "tab" -> appendIf(runDepth > 0, text, '\t');
+                                case "br", "cr" -> appendIf(runDepth > 0, text, '\n');
+                                default -> {
+                                }
+                            }
+                        }
+                    }
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA -> {
+                        if (inText) {
+                            text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                    }
+                    case XMLStreamConstants.END_ELEMENT -> {
+                        if (WORD_NAMESPACES.contains(reader.getNamespaceURI())) {
+                            switch (reader.getLocalName()) {
+                                case "p" -> appendIf(cells.isEmpty(), text, '\n');
+                                case "tc" -> cells.pop();
+                                // A blank line after each table in the body
+                                case "tbl" -> appendIf(cells.isEmpty(), text, '\n');
+                                case "tr" -> {
+                                    rows.pop();
+                                    text.append('\n');
+                                }
+                                case "r" -> runDepth--;
+                                case "t" -> inText = false;
+                                default -> {
+                                }
+                            }
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    // The parser reports a failed read of its input as a parse error
+    private static ZipBombException zipBombOf(XMLStreamException exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ZipBombException zipBomb) {
+                return zipBomb;
+            }
+            if (cause instanceof XMLStreamException xml && xml.getNestedException() instanceof ZipBombException zipBomb) {
+                return zipBomb;
+            }
+        }
+        return null;
+    }
+
+    private static void appendIf(boolean condition, StringBuilder text, char c) {
+        if (condition) {
+            text.append(c);
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // Uploaded files are untrusted: no DTDs, so no entity expansion or external resolution
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        return factory;
+    }
+
+    /**
+     * The inflated data of one entry, rejected like {@code XWPFDocument} rejects it: once it exceeds
+     * {@link ZipSecureFile#getMaxEntrySize()}, or, past {@link ZipSecureFile#getGraceEntrySize()}, once its compressed
+     * size falls below {@link ZipSecureFile#getMinInflateRatio()} of it. The compressed size is counted off the file
+     * stream since the entry began, which includes up to one read buffer of look-ahead; the grace size dwarfs that.
+     * Closing it leaves the zip stream open, as the JDK parser closes its input at the end of the document.
+     */
+    private static final class InflationGuard extends FilterInputStream {
+
+        private final CountingInputStream compressed;
+        private final long compressedStart;
+        private final String entryName;
+        private long inflated;
+
+        InflationGuard(ZipInputStream zip, CountingInputStream compressed, String entryName) {
+            super(zip);
+            this.compressed = compressed;
+            this.compressedStart = compressed.count;
+            this.entryName = entryName;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                inflated(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                inflated(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            return Math.max(0, read(buffer, 0, buffer.length));
+        }
+
+        @Override
+        public void close() {
+        }
+
+        void skipToEnd() throws IOException {
+            byte[] buffer = new byte[8192];
+            while (read(buffer, 0, buffer.length) >= 0) {
+                // Counted by read
+            }
+        }
+
+        private void inflated(int bytes) throws ZipBombException {
+            inflated += bytes;
+            long compressedSize = compressed.count - compressedStart;
+            if (inflated > ZipSecureFile.getMaxEntrySize()) {
+                throw new ZipBombException(String.format(Locale.ROOT,
+                        "Zip bomb detected: %s inflates to more than %d bytes from %d", entryName,
+                        ZipSecureFile.getMaxEntrySize(), compressedSize));
+            }
+            if (inflated > ZipSecureFile.getGraceEntrySize()
+                    && (double) compressedSize / inflated < ZipSecureFile.getMinInflateRatio()) {
+                throw new ZipBombException(String.format(Locale.ROOT,
+                        "Zip bomb detected: %s inflates to %d bytes from only %d, below the minimum ratio of %f",
+                        entryName, inflated, compressedSize, ZipSecureFile.getMinInflateRatio()));
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes read from the file, i.e. the compressed bytes the zip stream took
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
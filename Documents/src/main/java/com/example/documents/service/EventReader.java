@@ -0,0 +1,149 @@
+package com.example.documents.service;
+
+import com.example.documents.dto.DocumentDTO;
+import com.example.documents.dto.ExtractionResponseDTO;
+import com.example.events.DocumentEvent;
+import com.example.events.DocumentFieldsEvent;
+import com.example.events.DocumentStatusEvent;
+import com.example.events.KafkaEvent;
+import com.example.events.codec.EventCodecs;
+import com.example.messaging.EventEnvelope;
+import com.example.messaging.retry.RetryTopics;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reads consumed event values into the class named by their {@link EventEnvelope} type and version headers.
+ * Values in the binary format are read by the shared {@link EventCodecs}, others are JSON, parsed exactly once by a
+ * reader prepared for their class at startup. Records published before the headers existed are read as the type their
+ * topic has always carried, also on the topic's retry topics.
+ */
+@Component
+public class EventReader {
+
+    private static final List<Class<?>> EVENT_CLASSES = List.of(
+            DocumentDTO.class, DocumentEvent.class, DocumentStatusEvent.class, DocumentFieldsEvent.class,
+            ExtractionResponseDTO.class);
+
+    private static final Map<String, Class<?>> UNTYPED_TOPICS = Map.of(
+            "document-created", DocumentDTO.class,
+            "document-updated", DocumentDTO.class,
+            "document-deleted", DocumentDTO.class,
+            "document-uploaded", DocumentDTO.class,
+            "document-fields-extracted", DocumentFieldsEvent.class,
+            "document-validated", DocumentStatusEvent.class,
+            "document-rejected", DocumentStatusEvent.class,
+            "document-published", DocumentStatusEvent.class,
+            "extraction_response", ExtractionResponseDTO.class);
+
+    // Readers by type and version, e.g. "DocumentStatus:1"
+    private final Map<String, ObjectReader> readers = new HashMap<>();
+    private final Map<String, ObjectReader> untypedReaders = new HashMap<>();
+
+    public EventReader(ObjectMapper objectMapper) {
+        Map<Class<?>, ObjectReader> byClass = new HashMap<>();
+        for (Class<?> eventClass : EVENT_CLASSES) {
+            KafkaEvent type = EventEnvelope.typeOf(eventClass);
+            // Fields and constants added by newer producers are left out, as the binary codecs do
+            ObjectReader reader = objectMapper.readerFor(eventClass)
+                    .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                    .with(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_AS_NULL);
+            readers.put(type.type() + ":" + type.version(), reader);
+            byClass.put(eventClass, reader);
+        }
+        UNTYPED_TOPICS.forEach((topic, eventClass) -> untypedReaders.put(topic, byClass.get(eventClass)));
+    }
+
+    /**
+     * The event a record carries, or null for a record without value
+     * @throws MessageConversionException If the event type or version is unknown or the value cannot be read;
+     * retrying does not help, so such records go straight to the dead-letter topic
+     */
+    public Object read(ConsumerRecord<String, byte[]> record) {
+        String type = EventEnvelope.header(record, EventEnvelope.EVENT_TYPE_HEADER);
+        String version = EventEnvelope.header(record, EventEnvelope.EVENT_VERSION_HEADER);
+        if (EventEnvelope.isBinary(record)) {
+            return readBinary(record, type, version);
+        }
+        ObjectReader reader = type != null
+                ? readers.get(type + ":" + (version != null ? version : "1"))
+                : untypedReaders.get(RetryTopics.baseTopic(record.topic()));
+        if (reader == null) {
+            throw new MessageConversionException("Unknown " + type + " event version " + version + " at "
+                    + record.topic() + "-" + record.partition() + "@" + record.offset());
+        }
+        if (record.value() == null) {
+            return null;
+        }
+        try {
+            return reader.readValue(record.value());
+        } catch (IOException e) {
+            throw new MessageConversionException("Unreadable event at " + record.topic() + "-" + record.partition()
+                    + "@" + record.offset() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static Object readBinary(ConsumerRecord<String, byte[]> record, String type, String version) {
+        int schemaVersion;
+        try {
+            schemaVersion = version != null ? Integer.parseInt(version) : 1;
+        } catch (NumberFormatException e) {
+            schemaVersion = -1;
+        }
+        if (type == null || !EventCodecs.supports(type, schemaVersion)) {
+            throw new MessageConversionException("Unknown binary " + type + " event version " + version + " at "
+                    + record.topic() + "-" + record.partition() + "@" + record.offset());
+        }
+        if (record.value() == null) {
+            return null;
+        }
+        try {
+            return EventCodecs.decode(type, schemaVersion, record.value());
+        } catch (IllegalArgumentException e) {
+            throw new MessageConversionException("Unreadable event at " + record.topic() + "-" + record.partition()
+                    + "@" + record.offset() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The document an event is about: the ID in its value, else the record key
+     */
+    public UUID documentId(ConsumerRecord<String, byte[]> record, Object event) {
+        UUID documentId = switch (event) {
+            case DocumentStatusEvent status -> status.getDocumentId();
+            case DocumentFieldsEvent fields -> fields.getDocumentId();
+            case DocumentEvent document -> document.getId();
+            case DocumentDTO document -> document.getId();
+            case ExtractionResponseDTO response -> response.getDocumentId();
+            case null, default -> null;
+        };
+        return documentId != null ? documentId : documentKey(record.key());
+    }
+
+    /**
+     * The record key as a document ID, or null if the key is not a UUID
+     */
+    public static UUID documentKey(String key) {
+        if (key == null || key.length() != 36) {
+            return null;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            boolean dash = i == 8 || i == 13 || i == 18 || i == 23;
+            if (dash ? c != '-' : Character.digit(c, 16) < 0) {
+                return null;
+            }
+        }
+        return UUID.fromString(key);
+    }
+}
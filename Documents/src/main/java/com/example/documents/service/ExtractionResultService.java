@@ -0,0 +1,313 @@
+package com.example.documents.service;
+
+import com.example.documents.dto.ExtractionResultDTO;
+import com.example.documents.model.DataMigration;
+import com.example.documents.model.Document;
+import com.example.documents.model.ExtractionResult;
+import com.example.documents.repository.DataMigrationRepository;
+import com.example.documents.repository.DocumentRepository;
+import com.example.documents.repository.DocumentSpecifications;
+import com.example.documents.repository.ExtractionResultRepository;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Stores the fields extracted from documents, one row per extraction run
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExtractionResultService {
+
+    /**
+     * Separator older versions appended to {@code Document.description} before each extraction result
+     */
+    private static final String LEGACY_MARKER = "\n\n--- EXTRACTED DATA ---\n";
+
+    private static final String LEGACY_SOURCE = "description";
+    private static final int BACKFILL_BATCH_SIZE = 500;
+    // Recorded in data_migrations once the descriptions are migrated
+    private static final String DESCRIPTION_MIGRATION = "extraction-results-out-of-descriptions";
+
+    private final ExtractionResultRepository extractionResultRepository;
+    private final DocumentRepository documentRepository;
+    private final DataMigrationRepository dataMigrationRepository;
+    private final DocumentSearchService documentSearchService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Store a new extraction run for a document.
+     * Runs in the caller's transaction so the result commits together with the document changes.
+     * @param documentId The document ID
+     * @param source Topic the result arrived on
+     * @param fields The extracted fields, e.g. {@code {"date": ..., "patientId": ..., "operators": [...], "diagnosis": ...}}
+     */
+    @Transactional
+    public ExtractionResult record(UUID documentId, String source, JsonNode fields) {
+        return extractionResultRepository.save(toResult(documentId, source, fields, LocalDateTime.now(),
+                extractionResultRepository.findLastRun(documentId) + 1));
+    }
+
+    /**
+     * Store the extraction runs of many documents with one run number lookup and one batch insert.
+     * Runs in the caller's transaction, like {@link #record}.
+     * @param source Topic the results arrived on
+     * @param fieldsByDocument Per document, the extracted fields of each run in arrival order
+     */
+    @Transactional
+    public List<ExtractionResult> recordAll(String source, Map<UUID, List<JsonNode>> fieldsByDocument) {
+        if (fieldsByDocument.isEmpty()) {
+            return List.of();
+        }
+        Map<UUID, Integer> lastRuns = new HashMap<>();
+        for (Object[] row : extractionResultRepository.findLastRuns(fieldsByDocument.keySet())) {
+            lastRuns.put((UUID) row[0], ((Number) row[1]).intValue());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<ExtractionResult> results = new ArrayList<>();
+        fieldsByDocument.forEach((documentId, runs) -> {
+            int run = lastRuns.getOrDefault(documentId, 0);
+            for (JsonNode fields : runs) {
+                results.add(toResult(documentId, source, fields, now, ++run));
+            }
+        });
+        return extractionResultRepository.saveAll(results);
+    }
+
+    /**
+     * Remove every extraction run of a deleted document
+     */
+    @Transactional
+    public void removeResults(UUID documentId) {
+        extractionResultRepository.deleteByDocumentId(documentId);
+    }
+
+    /**
+     * Extraction runs of a document, newest first
+     */
+    @Transactional(readOnly = true)
+    public List<ExtractionResultDTO> getResults(UUID documentId) {
+        return extractionResultRepository.findByDocumentIdOrderByRunDesc(documentId).stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public ExtractionResultDTO getLatestResult(UUID documentId) {
+        return extractionResultRepository.findFirstByDocumentIdOrderByRunDesc(documentId)
+                .map(this::toDTO)
+                .orElseThrow(() -> new EntityNotFoundException("No extraction results for document ID: " + documentId));
+    }
+
+    /**
+     * The extracted fields carried by a {@code document-fields-update} command, which the workflow service sends as a
+     * JSON string. Text that is not JSON, such as a note from a reviewer, is kept as text.
+     * @return The fields, or null if the event carries none
+     */
+    public JsonNode parseExtractedFields(String extractedFields) {
+        if (extractedFields == null) {
+            return null;
+        }
+        String trimmed = extractedFields.stripLeading();
+        if (!trimmed.startsWith("{") && !trimmed.startsWith("[")) {
+            return objectMapper.getNodeFactory().textNode(extractedFields);
+        }
+        try {
+            return objectMapper.readTree(extractedFields);
+        } catch (JsonProcessingException e) {
+            return objectMapper.getNodeFactory().textNode(extractedFields);
+        }
+    }
+
+    // A wrapped workflow event as older versions stored it in the description
+    private JsonNode unwrapFieldsEvent(JsonNode message) {
+        JsonNode extractedFields = message.get("extractedFields");
+        if (extractedFields == null || extractedFields.isNull()) {
+            return null;
+        }
+        return extractedFields.isTextual() ? parseExtractedFields(extractedFields.asText()) : extractedFields;
+    }
+
+    /**
+     * Move extraction results that older versions appended to document descriptions into extraction_results.
+     * Only documents whose description contains the separator exactly as they appended it are read, and each of
+     * them loses it. Completion is recorded in data_migrations, so the descriptions are scanned once, not on every
+     * boot; current versions never append results.
+     */
+    @Transactional
+    public void migrateDescriptions() {
+        if (dataMigrationRepository.existsById(DESCRIPTION_MIGRATION)) {
+            return;
+        }
+        int documents = 0;
+        int results = 0;
+        try (Stream<Document> stream = documentRepository.streamBy(
+                DocumentSpecifications.descriptionContains(LEGACY_MARKER))) {
+            for (Document document : (Iterable<Document>) stream::iterator) {
+                results += migrateDescription(document);
+                documentSearchService.index(document);
+                if (++documents % BACKFILL_BATCH_SIZE == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        }
+        if (documents > 0) {
+            log.info("Moved {} extraction results out of the descriptions of {} documents", results, documents);
+        }
+        dataMigrationRepository.save(new DataMigration(DESCRIPTION_MIGRATION, LocalDateTime.now()));
+    }
+
+    private int migrateDescription(Document document) {
+        String description = document.getDescription();
+        int start = description.indexOf(LEGACY_MARKER);
+        if (start < 0) {
+            return 0;
+        }
+        LocalDateTime extractedAt = document.getStatusUpdatedAt() != null
+                ? document.getStatusUpdatedAt()
+                : document.getCreatedAt();
+        int run = extractionResultRepository.findLastRun(document.getId());
+        List<ExtractionResult> results = new ArrayList<>();
+        for (JsonNode section : parseLegacySections(description.substring(start))) {
+            // A wrapped workflow event is unwrapped; anything without extractedFields is the raw extractor output
+            JsonNode fields = section.has("extractedFields") ? unwrapFieldsEvent(section) : section;
+            if (fields != null && !isDocumentEcho(section)) {
+                results.add(toResult(document.getId(), LEGACY_SOURCE, fields, extractedAt, ++run));
+            }
+        }
+        extractionResultRepository.saveAll(results);
+        // Streamed documents are read-only, so the shortened description is written explicitly
+        document.setDescription(description.substring(0, start));
+        document.setUpdatedAt(LocalDateTime.now());
+        documentRepository.updateDescription(document.getId(), document.getDescription(), document.getUpdatedAt());
+        return results.size();
+    }
+
+    /**
+     * Split the appended part of a description into its JSON sections.
+     * Sections are parsed rather than split on the separator because echoed documents embed earlier separators
+     * inside their own description string.
+     */
+    private List<JsonNode> parseLegacySections(String appended) {
+        List<JsonNode> sections = new ArrayList<>();
+        String remaining = appended;
+        while (remaining.startsWith(LEGACY_MARKER)) {
+            remaining = remaining.substring(LEGACY_MARKER.length());
+            try (JsonParser parser = objectMapper.createParser(remaining)) {
+                JsonNode section = parser.readValueAsTree();
+                String rest = remaining.substring((int) parser.currentLocation().getCharOffset());
+                if (section != null && (rest.isBlank() || rest.startsWith(LEGACY_MARKER))) {
+                    sections.add(section);
+                    remaining = rest;
+                    continue;
+                }
+            } catch (IOException e) {
+                // Not JSON; keep the text up to the next separator as it is
+            }
+            int next = remaining.indexOf(LEGACY_MARKER);
+            String text = next < 0 ? remaining : remaining.substring(0, next);
+            if (!text.isBlank()) {
+                sections.add(objectMapper.getNodeFactory().textNode(text.strip()));
+            }
+            remaining = next < 0 ? "" : remaining.substring(next);
+        }
+        return sections;
+    }
+
+    // The service's own document-fields-extracted notification, which older versions appended as well
+    private static boolean isDocumentEcho(JsonNode section) {
+        return section.has("id") && section.has("title");
+    }
+
+    private ExtractionResult toResult(UUID documentId, String source, JsonNode fields, LocalDateTime extractedAt, int run) {
+        return ExtractionResult.builder()
+                .documentId(documentId)
+                .run(run)
+                .source(source)
+                .extractedAt(extractedAt)
+                .procedureDate(parseDate(text(fields, "date")))
+                .patientId(text(fields, "patientId"))
+                .operators(operators(fields))
+                .diagnosis(text(fields, "diagnosis"))
+                .payload(fields.isTextual() ? fields.asText() : fields.toString())
+                .build();
+    }
+
+    private ExtractionResultDTO toDTO(ExtractionResult result) {
+        return ExtractionResultDTO.builder()
+                .id(result.getId())
+                .documentId(result.getDocumentId())
+                .run(result.getRun())
+                .source(result.getSource())
+                .extractedAt(result.getExtractedAt())
+                .procedureDate(result.getProcedureDate())
+                .patientId(result.getPatientId())
+                .operators(DocumentDoctorService.parseDoctorIds(result.getOperators()))
+                .diagnosis(result.getDiagnosis())
+                .payload(parsePayload(result.getPayload()))
+                .build();
+    }
+
+    private JsonNode parsePayload(String payload) {
+        if (payload == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(payload);
+        } catch (JsonProcessingException e) {
+            return objectMapper.getNodeFactory().textNode(payload);
+        }
+    }
+
+    private static String text(JsonNode fields, String name) {
+        JsonNode value = fields.get(name);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static String operators(JsonNode fields) {
+        JsonNode operators = fields.get("operators");
+        if (operators == null || operators.isNull()) {
+            return null;
+        }
+        if (!operators.isArray()) {
+            return operators.asText();
+        }
+        List<String> names = new ArrayList<>();
+        operators.forEach(operator -> names.add(operator.asText()));
+        return String.join(",", names);
+    }
+
+    private static LocalDate parseDate(String date) {
+        if (date == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            log.warn("Invalid date format in extraction: {}", date);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.documents.service;
+
+import com.example.events.DocumentEvent;
+import com.example.messaging.outbox.EventPartitioner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Partitions document events by patient, so consumers see all documents of a patient in order.
+ * Events without a patient fall back to the record key. A document moved to another patient may change partition,
+ * so its events before and after the move are not ordered against each other.
+ */
+@Component
+@ConditionalOnProperty(name = "documents.events.partition-by", havingValue = "patient")
+public class PatientEventPartitioner implements EventPartitioner {
+
+    @Override
+    public String partitionKey(String topic, String key, Object event) {
+        if (event instanceof DocumentEvent document && document.getPatientId() != null) {
+            return document.getPatientId();
+        }
+        return key;
+    }
+}
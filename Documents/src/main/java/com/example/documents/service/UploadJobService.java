@@ -0,0 +1,253 @@
+package com.example.documents.service;
+
+import com.example.documents.dto.DocumentDTO;
+import com.example.documents.dto.DocumentStatusView;
+import com.example.documents.dto.UploadJobDTO;
+import com.example.documents.dto.UploadStage;
+import com.example.documents.exception.BadRequestException;
+import com.example.documents.exception.UploadQueueFullException;
+import com.example.documents.repository.DocumentRepository;
+import com.example.documents.repository.ExtractionResultRepository;
+import com.example.documents.repository.UploadJobRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accepts medical document uploads without making the request wait for them.
+ * <p>
+ * The request thread only spools the file to disk and records a job; a fixed pool of workers then reads the text
+ * out of the file, stores the document and sends it for extraction, as a synchronous upload does. The pool's queue
+ * is bounded, so when it is full new uploads are refused rather than piling up on disk. Jobs interrupted by a
+ * restart keep their spooled file and are queued again at startup.
+ */
+@Service
+@Slf4j
+public class UploadJobService {
+
+    private final UploadJobRepository uploadJobRepository;
+    private final DocumentRepository documentRepository;
+    private final ExtractionResultRepository extractionResultRepository;
+    private final DocumentService documentService;
+    private final WordDocumentProcessingService wordDocumentProcessingService;
+    private final TransactionTemplate transactionTemplate;
+    private final Path spoolDir;
+    private final Duration retryAfter;
+    private final int maxAttempts;
+    private final ThreadPoolExecutor workers;
+
+    public UploadJobService(UploadJobRepository uploadJobRepository,
+            DocumentRepository documentRepository,
+            ExtractionResultRepository extractionResultRepository,
+            DocumentService documentService,
+            WordDocumentProcessingService wordDocumentProcessingService,
+            PlatformTransactionManager transactionManager,
+            @Value("${documents.upload.spool-dir:${java.io.tmpdir}/documents-uploads}") Path spoolDir,
+            @Value("${documents.upload.workers:2}") int workerCount,
+            @Value("${documents.upload.queue-capacity:32}") int queueCapacity,
+            @Value("${documents.upload.retry-after:30s}") Duration retryAfter,
+            @Value("${documents.upload.max-attempts:3}") int maxAttempts) throws IOException {
+        this.uploadJobRepository = uploadJobRepository;
+        this.documentRepository = documentRepository;
+        this.extractionResultRepository = extractionResultRepository;
+        this.documentService = documentService;
+        this.wordDocumentProcessingService = wordDocumentProcessingService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.spoolDir = Files.createDirectories(spoolDir);
+        this.retryAfter = retryAfter;
+        this.maxAttempts = maxAttempts;
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "upload-worker-" + threads.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Let running jobs finish; queued ones stay in the table and are picked up again at the next start
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        workers.shutdown();
+        workers.getQueue().clear();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Spool an uploaded Word document and queue it for processing
+     * @return The job, in stage QUEUED
+     * @throws BadRequestException If the file is not a .doc or .docx file
+     * @throws UploadQueueFullException If as many uploads as the queue holds are already waiting
+     * @throws IOException If the file cannot be spooled
+     */
+    public UploadJobDTO submit(MultipartFile file, String patientId, String doctorId, String documentType)
+            throws IOException {
+        String filename = file.getOriginalFilename();
+        String extension = extensionOf(filename);
+        if (!extension.equals(".doc") && !extension.equals(".docx")) {
+            throw new BadRequestException("Only .doc and .docx files are supported");
+        }
+        // Checked again when queueing; this only spares spooling a file that would be refused
+        if (workers.getQueue().remainingCapacity() == 0) {
+            throw queueFull();
+        }
+
+        UUID jobId = UUID.randomUUID();
+        Path spooled = spoolDir.resolve(jobId + extension);
+        file.transferTo(spooled);
+        long now = System.currentTimeMillis();
+        UploadJobRepository.UploadJob job = new UploadJobRepository.UploadJob(jobId, UploadStage.QUEUED, filename,
+                patientId, doctorId, documentType, spooled.toString(), null, null, 0, now, now);
+        uploadJobRepository.insert(job);
+        try {
+            workers.execute(() -> process(job));
+        } catch (RejectedExecutionException e) {
+            uploadJobRepository.delete(jobId);
+            Files.deleteIfExists(spooled);
+            throw queueFull();
+        }
+        log.info("Queued upload {} of {} for patient {}, {} uploads waiting", jobId, filename, patientId,
+                workers.getQueue().size());
+        return toDTO(job);
+    }
+
+    /**
+     * The stage of an upload; from EXTRACTING on, it follows the stored document
+     * @throws EntityNotFoundException If there is no such job
+     */
+    @Transactional(readOnly = true)
+    public UploadJobDTO getJob(UUID jobId) {
+        return uploadJobRepository.findById(jobId)
+                .map(this::toDTO)
+                .orElseThrow(() -> new EntityNotFoundException("Upload job not found with ID: " + jobId));
+    }
+
+    /**
+     * Queue the jobs a restart interrupted again, oldest first. Those whose file is gone, that no longer fit the
+     * queue, or whose parsing was already interrupted max-attempts times, e.g. by a file that exhausts the heap, fail.
+     */
+    public void resume() {
+        int resumed = 0;
+        for (UploadJobRepository.UploadJob job : uploadJobRepository.findUnfinished()) {
+            if (job.spoolPath() == null || !Files.exists(Path.of(job.spoolPath()))) {
+                uploadJobRepository.markFailed(job.id(), "Spooled file was lost");
+                continue;
+            }
+            if (job.attempts() >= maxAttempts) {
+                fail(job, "Processing was interrupted " + job.attempts() + " times");
+                continue;
+            }
+            try {
+                workers.execute(() -> process(job));
+                resumed++;
+            } catch (RejectedExecutionException e) {
+                fail(job, "Upload queue was full when the service restarted");
+            }
+        }
+        if (resumed > 0) {
+            log.info("Resumed {} interrupted uploads", resumed);
+        }
+    }
+
+    /**
+     * Read the text out of the spooled file, outside any transaction, then store the document and the job's new
+     * stage together
+     */
+    private void process(UploadJobRepository.UploadJob job) {
+        try {
+            uploadJobRepository.startParsing(job.id());
+            String content = wordDocumentProcessingService.extractText(Path.of(job.spoolPath()), job.filename());
+            DocumentDTO document = transactionTemplate.execute(status -> {
+                DocumentDTO created = documentService.createMedicalDocument(job.filename(), content,
+                        job.patientId(), job.doctorId(), job.documentType());
+                uploadJobRepository.markStored(job.id(), created.getId());
+                return created;
+            });
+            Files.deleteIfExists(Path.of(job.spoolPath()));
+            log.info("Upload {} stored as document {}", job.id(), document.getId());
+        } catch (Exception e) {
+            log.error("Upload {} of {} failed: {}", job.id(), job.filename(), e.getMessage(), e);
+            fail(job, e.getMessage());
+        } catch (Error e) {
+            // Most likely out of memory; the parser's garbage is unreachable by now, so recording the failure can work
+            fail(job, e.toString());
+            throw e;
+        }
+    }
+
+    private void fail(UploadJobRepository.UploadJob job, String error) {
+        uploadJobRepository.markFailed(job.id(), error);
+        try {
+            Files.deleteIfExists(Path.of(job.spoolPath()));
+        } catch (IOException e) {
+            log.warn("Could not delete spooled file {}: {}", job.spoolPath(), e.getMessage());
+        }
+    }
+
+    private UploadQueueFullException queueFull() {
+        return new UploadQueueFullException("Too many uploads are waiting to be processed, try again later",
+                retryAfter);
+    }
+
+    private UploadJobDTO toDTO(UploadJobRepository.UploadJob job) {
+        return UploadJobDTO.builder()
+                .jobId(job.id())
+                .stage(job.stage() == UploadStage.EXTRACTING ? documentStage(job.documentId()) : job.stage())
+                .filename(job.filename())
+                .documentId(job.documentId())
+                .error(job.error())
+                .createdAt(toDateTime(job.createdAt()))
+                .updatedAt(toDateTime(job.updatedAt()))
+                .build();
+    }
+
+    /**
+     * A stored document waits for extraction until its first extraction run, then for a reviewer
+     */
+    private UploadStage documentStage(UUID documentId) {
+        DocumentStatusView document = documentRepository.findStatusViewById(documentId).orElse(null);
+        if (document == null) {
+            return UploadStage.DELETED;
+        }
+        return switch (document.getStatus()) {
+            case VALIDATED -> UploadStage.VALIDATED;
+            case REJECTED -> UploadStage.REJECTED;
+            default -> extractionResultRepository.findLastRun(documentId) > 0
+                    ? UploadStage.VALIDATING : UploadStage.EXTRACTING;
+        };
+    }
+
+    private static String extensionOf(String filename) {
+        if (filename == null || filename.lastIndexOf('.') < 0) {
+            return "";
+        }
+        return filename.substring(filename.lastIndexOf('.')).toLowerCase(Locale.ROOT);
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
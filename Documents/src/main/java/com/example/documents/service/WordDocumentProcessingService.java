@@ -6,14 +6,24 @@ import org.apache.poi.hwpf.HWPFDocument;
 import org.apache.poi.hwpf.extractor.WordExtractor;
 import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.PathResource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Locale;
 
 /**
- * Service for processing Word documents (.doc and .docx files)
+ * Service for processing Word documents (.doc and .docx files).
+ * <p>
+ * .docx files are streamed by {@link DocxTextExtractor}, so the heap a file needs is about the size of its text
+ * rather than of its object model, images included. Files it cannot read are loaded into an {@link XWPFDocument}
+ * as before; packages beyond the zip bomb limits of {@code ZipSecureFile} are rejected by both. .doc files always go
+ * through {@link HWPFDocument}.
  */
 @Service
 @RequiredArgsConstructor
@@ -27,22 +37,36 @@ public class WordDocumentProcessingService {
      * @throws IOException If there's an error reading the file
      */
     public String extractText(MultipartFile file) throws IOException {
-        String fileName = file.getOriginalFilename();
+        return extractText(file, file.getOriginalFilename());
+    }
+    
+    /**
+     * Extract plain text content from a Word document spooled to disk
+     * @param file The spooled file
+     * @param fileName The name the file was uploaded with, which tells its format
+     * @return The extracted text content
+     * @throws IOException If there's an error reading the file
+     */
+    public String extractText(Path file, String fileName) throws IOException {
+        return extractText(new PathResource(file), fileName);
+    }
+    
+    /**
+     * @param source The file, which can be opened again if the streaming extraction gives up
+     */
+    private String extractText(InputStreamSource source, String fileName) throws IOException {
         log.info("Extracting text from Word document: {}", fileName);
+        String lowerCaseName = fileName != null ? fileName.toLowerCase(Locale.ROOT) : "";
         
-        try (InputStream inputStream = file.getInputStream()) {
+        try {
             String text;
             
-            if (fileName != null && fileName.toLowerCase().endsWith(".docx")) {
-                // Process DOCX (Word 2007+) files
-                try (XWPFDocument document = new XWPFDocument(inputStream)) {
-                    XWPFWordExtractor extractor = new XWPFWordExtractor(document);
-                    text = extractor.getText();
-                    extractor.close();
-                }
-            } else if (fileName != null && fileName.toLowerCase().endsWith(".doc")) {
+            if (lowerCaseName.endsWith(".docx")) {
+                text = extractDocxText(source, fileName);
+            } else if (lowerCaseName.endsWith(".doc")) {
                 // Process DOC (Word 97-2003) files
-                try (HWPFDocument document = new HWPFDocument(inputStream)) {
+                try (InputStream inputStream = open(source);
+                     HWPFDocument document = new HWPFDocument(inputStream)) {
                     WordExtractor extractor = new WordExtractor(document);
                     text = extractor.getText();
                     extractor.close();
@@ -58,4 +82,27 @@ public class WordDocumentProcessingService {
             throw new IOException("Error processing Word document: " + e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Stream the text out of a DOCX (Word 2007+) file, falling back to the full object model for packages the
+     * streaming reader does not understand
+     */
+    private String extractDocxText(InputStreamSource source, String fileName) throws IOException {
+        try (InputStream inputStream = open(source)) {
+            return DocxTextExtractor.extract(inputStream);
+        } catch (DocxTextExtractor.UnreadableDocxException e) {
+            log.warn("Could not stream {}, loading it whole: {}", fileName, e.getMessage());
+        }
+        try (InputStream inputStream = open(source);
+             XWPFDocument document = new XWPFDocument(inputStream)) {
+            XWPFWordExtractor extractor = new XWPFWordExtractor(document);
+            String text = extractor.getText();
+            extractor.close();
+            return text;
+        }
+    }
+    
+    private static InputStream open(InputStreamSource source) throws IOException {
+        return new BufferedInputStream(source.getInputStream());
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.documents.service;
+
+import org.apache.poi.openxml4j.util.ZipSecureFile;
+import org.apache.poi.util.Units;
+import org.apache.poi.wp.usermodel.HeaderFooterType;
+import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
+import org.apache.poi.xwpf.usermodel.Document;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DocxTextExtractorTest {
+
+    private static final String WORD_NAMESPACE = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+    @Test
+    void extractsTheSameTextAsXWPFWordExtractor() throws Exception {
+        assertSameText(report());
+    }
+
+    @Test
+    void extractsTheSameTextAsXWPFWordExtractorWithoutHeadersOrTables() throws Exception {
+        XWPFDocument docx = new XWPFDocument();
+        docx.createParagraph().createRun().setText("Only line");
+        docx.createParagraph();
+        assertSameText(docx);
+    }
+
+    @Test
+    void rejectsAnEntryThatInflatesBeyondTheMinimumRatio() throws Exception {
+        // Whitespace between elements deflates about a thousand to one
+        byte[] docx = withEntry(bytes(report()), "word/document.xml", bomb("<w:p><w:r><w:t>Findings</w:t></w:r></w:p>"));
+
+        assertThatThrownBy(() -> extract(docx))
+                .isInstanceOf(DocxTextExtractor.ZipBombException.class)
+                .hasMessageContaining("word/document.xml");
+    }
+
+    @Test
+    void rejectsABombInAPartItDoesNotRead() throws Exception {
+        byte[] docx = withEntry(bytes(report()), "word/media/padding.bin", new byte[20 * 1024 * 1024]);
+
+        assertThatThrownBy(() -> extract(docx))
+                .isInstanceOf(DocxTextExtractor.ZipBombException.class)
+                .hasMessageContaining("word/media/padding.bin");
+    }
+
+    @Test
+    void rejectsAnEntryLargerThanTheMaximumEntrySize() throws Exception {
+        byte[] docx = bytes(report());
+        long maxEntrySize = ZipSecureFile.getMaxEntrySize();
+        ZipSecureFile.setMaxEntrySize(1024);
+        try {
+            assertThatThrownBy(() -> extract(docx))
+                    .isInstanceOf(DocxTextExtractor.ZipBombException.class);
+        } finally {
+            ZipSecureFile.setMaxEntrySize(maxEntrySize);
+        }
+    }
+
+    @Test
+    void readsPicturesThatDoNotCompress() throws Exception {
+        XWPFDocument docx = report();
+        byte[] image = new byte[512 * 1024];
+        new Random(42).nextBytes(image);
+        XWPFRun run = docx.createParagraph().createRun();
+        run.addPicture(new ByteArrayInputStream(image), Document.PICTURE_TYPE_JPEG, "scan.jpg",
+                Units.toEMU(400), Units.toEMU(300));
+        run.setText("Figure 1: angiographic view.");
+        assertSameText(docx);
+    }
+
+    private static void assertSameText(XWPFDocument docx) throws IOException {
+        byte[] bytes = bytes(docx);
+        String expected;
+        try (XWPFDocument loaded = new XWPFDocument(new ByteArrayInputStream(bytes));
+             XWPFWordExtractor extractor = new XWPFWordExtractor(loaded)) {
+            expected = extractor.getText();
+        }
+        assertThat(extract(bytes)).isEqualTo(expected);
+    }
+
+    private static String extract(byte[] docx) throws IOException {
+        return DocxTextExtractor.extract(new ByteArrayInputStream(docx));
+    }
+
+    // A letter with headers and footers, runs with tabs and breaks, a hyperlink and a table with multi-paragraph cells
+    private static XWPFDocument report() {
+        XWPFDocument docx = new XWPFDocument();
+        docx.createHeader(HeaderFooterType.DEFAULT).createParagraph().createRun()
+                .setText("Cardiology department - patient P-000123");
+        docx.createFooter(HeaderFooterType.DEFAULT).createParagraph().createRun()
+                .setText("Confidential medical record");
+
+        XWPFParagraph title = docx.createParagraph();
+        XWPFRun bold = title.createRun();
+        bold.setBold(true);
+        bold.setText("Discharge letter");
+        title.createRun().setText(" for Ms. Müller");
+
+        XWPFRun findings = docx.createParagraph().createRun();
+        findings.setText("Diagnosis:");
+        findings.addTab();
+        findings.setText("J18.9 pneumonia");
+        findings.addBreak();
+        findings.setText("Procedure:");
+        findings.addTab();
+        findings.setText("none");
+
+        XWPFParagraph reference = docx.createParagraph();
+        reference.createRun().setText("Guideline: ");
+        reference.createHyperlinkRun("https://example.org/guideline").setText("community-acquired pneumonia");
+
+        XWPFTable table = docx.createTable(3, 3);
+        for (int row = 0; row < 3; row++) {
+            for (int cell = 0; cell < 3; cell++) {
+                table.getRow(row).getCell(cell).setText("R" + row + "C" + cell + " 12.5 mg");
+            }
+        }
+        XWPFTableCell notes = table.getRow(2).getCell(2);
+        notes.addParagraph().createRun().setText("then 25 mg");
+
+        docx.createParagraph().createRun().setText("Follow-up in the outpatient clinic.");
+        return docx;
+    }
+
+    private static byte[] bytes(XWPFDocument docx) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (docx) {
+            docx.write(out);
+        }
+        return out.toByteArray();
+    }
+
+    // A main document whose body is padded with 20 MB of whitespace
+    private static byte[] bomb(String paragraph) {
+        return ("<w:document xmlns:w=\"" + WORD_NAMESPACE + "\"><w:body>" + paragraph
+                + " ".repeat(20 * 1024 * 1024) + "</w:body></w:document>").getBytes(StandardCharsets.UTF_8);
+    }
+
+    // The package with one entry replaced, or added if it has none of the name
+    private static byte[] withEntry(byte[] docx, String name, byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        boolean replaced = false;
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(docx));
+             ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                zip.putNextEntry(new ZipEntry(entry.getName()));
+                if (entry.getName().equals(name)) {
+                    zip.write(content);
+                    replaced = true;
+                } else {
+                    in.transferTo(zip);
+                }
+                zip.closeEntry();
+            }
+            if (!replaced) {
+                zip.putNextEntry(new ZipEntry(name));
+                zip.write(content);
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -1,9 +1,13 @@
 package com.example.workflow;
 
+import com.example.messaging.MessagingConfig;
+import com.example.sqlite.SqliteDataSourceConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 
 @SpringBootApplication
+@Import({SqliteDataSourceConfig.class, MessagingConfig.class})
 public class WorkflowApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,77 @@
+package com.example.workflow.config;
+
+import com.example.events.DocumentEvent;
+import com.example.events.codec.EventCodecs;
+import com.example.messaging.EventEnvelope;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.JacksonUtils;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads consumed event values by their {@link EventEnvelope} headers: binary values with the shared
+ * {@link EventCodecs}, JSON values into the event class of their type and version. Documents sends JSON when
+ * configured to, and did before the binary form and the type headers existed; version 1 document events carried the
+ * whole document, whose content is skipped. A value that cannot be read fails, which sends it straight to the
+ * dead-letter topic behind an {@code ErrorHandlingDeserializer}.
+ */
+public class EventDeserializer implements Deserializer<Object> {
+
+    // JSON forms by type and version, e.g. "Document:2"
+    private static final Map<String, Class<?>> JSON_EVENTS = Map.of(
+            "Document:1", DocumentEvent.class,
+            "Document:2", DocumentEvent.class);
+
+    private final Map<String, ObjectReader> jsonReaders = new HashMap<>();
+    private final ObjectReader untypedReader;
+
+    public EventDeserializer() {
+        ObjectMapper objectMapper = JacksonUtils.enhancedObjectMapper();
+        JSON_EVENTS.forEach((type, eventClass) -> jsonReaders.put(type, objectMapper.readerFor(eventClass)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .with(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_AS_NULL)));
+        untypedReader = jsonReaders.get("Document:1");
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        return deserialize(topic, new RecordHeaders(), data);
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        String type = EventEnvelope.header(headers, EventEnvelope.EVENT_TYPE_HEADER);
+        String version = EventEnvelope.header(headers, EventEnvelope.EVENT_VERSION_HEADER);
+        if (version == null) {
+            version = "1";
+        }
+        if (EventEnvelope.BINARY_FORMAT.equals(EventEnvelope.header(headers, EventEnvelope.EVENT_FORMAT_HEADER))) {
+            try {
+                return EventCodecs.decode(type, Integer.parseInt(version), data);
+            } catch (IllegalArgumentException e) {
+                throw new SerializationException("Unreadable binary " + type + " event version " + version + " on "
+                        + topic + ": " + e.getMessage(), e);
+            }
+        }
+        ObjectReader reader = type != null ? jsonReaders.get(type + ":" + version) : untypedReader;
+        if (reader == null) {
+            throw new SerializationException("Unknown " + type + " event version " + version + " on " + topic);
+        }
+        try {
+            return reader.readValue(data);
+        } catch (IOException e) {
+            throw new SerializationException("Unreadable " + type + " event on " + topic + ": " + e.getMessage(), e);
+        }
+    }
+}
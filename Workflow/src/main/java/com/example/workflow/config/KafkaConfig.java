@@ -1,22 +1,44 @@
 package com.example.workflow.config;
 
+import com.example.messaging.idempotency.ProcessedEventStore;
+import com.example.messaging.listener.IdempotentMessageListener;
+import com.example.messaging.listener.KeyOrderedExecutor;
+import com.example.messaging.listener.KeyOrderedMessageListener;
+import com.example.messaging.retry.RetryTopicDelayListener;
+import com.example.messaging.retry.RetryTopicRecoverer;
+import com.example.messaging.retry.RetryTopics;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.KafkaException;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.ListenerContainerPauseService;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.backoff.FixedBackOff;
 
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @Configuration
+@RequiredArgsConstructor
 public class KafkaConfig {
 
     @Value("${spring.kafka.bootstrap-servers}")
@@ -25,28 +47,142 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
-    // Consumer configuration
+    // Consumer threads per listener; each partition is consumed by one thread, and document events are keyed by
+    // document ID, so the events of one document are still handled in order
+    @Value("${workflow.kafka.consumer-concurrency:1}")
+    private int concurrency;
+
+    // Worker lanes shared by all listeners; 0 handles records on the consumer threads
+    @Value("${workflow.kafka.listener.lanes:0}")
+    private int lanes;
+
+    @Value("${workflow.kafka.listener.lane-capacity:100}")
+    private int laneCapacity;
+
+    @Value("${workflow.kafka.listener.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${workflow.kafka.listener.retry-backoff:200ms}")
+    private Duration retryBackoff;
+
+    @Value("${workflow.kafka.listener.drain-timeout:10s}")
+    private Duration drainTimeout;
+
+    // Skip records whose event ID header names an event that was already processed
+    @Value("${idempotency.enabled:true}")
+    private boolean idempotencyEnabled;
+
+    private final ProcessedEventStore processedEventStore;
+
+    // Topics consumed by the service; records failing on them move through retry topics to a dead-letter topic
+    private static final List<String> RETRIED_TOPICS = List.of("document-created", "document-uploaded");
+
+    // Number of retry topics per topic, and the delay of the first; each further one waits multiplier times longer
+    @Value("${workflow.kafka.retry.topics:3}")
+    private int retryTopicCount;
+
+    @Value("${workflow.kafka.retry.delay:5s}")
+    private Duration retryDelay;
+
+    @Value("${workflow.kafka.retry.multiplier:4}")
+    private double retryMultiplier;
+
+    @Value("${workflow.kafka.retry.max-delay:10m}")
+    private Duration retryMaxDelay;
+
+    @Value("${workflow.kafka.retry.partitions:3}")
+    private int retryPartitions;
+
+    @Bean
+    public RetryTopics retryTopics() {
+        return new RetryTopics(RETRIED_TOPICS, retryTopicCount, retryDelay, retryMultiplier, retryMaxDelay);
+    }
+
+    @Bean
+    public KafkaAdmin.NewTopics retryTopicDeclarations() {
+        return new KafkaAdmin.NewTopics(retryTopics().topology().stream()
+                .map(topic -> TopicBuilder.name(topic).partitions(retryPartitions).replicas(1).build())
+                .toArray(NewTopic[]::new));
+    }
+
+    // Consumer configuration: values are read into the shared event classes by EventDeserializer;
+    // one that cannot be read reaches the error handler instead of failing every poll
     @Bean
     public ConsumerFactory<String, Object> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
-        props.put(ErrorHandlingDeserializer.KEY_DESERIALIZER_CLASS, StringDeserializer.class);
-        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
-        props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
-        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "com.example.documents.dto.DocumentDTO");
-        props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
-        return new DefaultKafkaConsumerFactory<>(props);
+        return new DefaultKafkaConsumerFactory<>(props, new ErrorHandlingDeserializer<>(new StringDeserializer()),
+                new ErrorHandlingDeserializer<>(new EventDeserializer()));
     }
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(concurrency);
+        if (lanes > 0) {
+            // Records run on the lanes and offsets are acknowledged by KeyOrderedMessageListener
+            factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        }
+        factory.setContainerCustomizer(container -> {
+            // Records that fail max-attempts times move on to a retry topic
+            DefaultErrorHandler errorHandler = new DefaultErrorHandler(retryTopicRecoverer(),
+                    new FixedBackOff(retryBackoff.toMillis(), Math.max(0, maxAttempts - 1)));
+            // Records the error handler skips must not commit past records still running on the lanes
+            errorHandler.setAckAfterHandle(lanes <= 0);
+            // Records held back on retry topics come back through the error handler; failures are logged on moves
+            errorHandler.setLogLevel(KafkaException.Level.DEBUG);
+            container.setCommonErrorHandler(errorHandler);
+            // Redelivered events are skipped on the lanes, after same-key records before them finished
+            if (idempotencyEnabled) {
+                IdempotentMessageListener.install(container, processedEventStore);
+            }
+            if (lanes > 0) {
+                KeyOrderedMessageListener.install(container, listenerLanes(), maxAttempts, retryBackoff, drainTimeout,
+                        RetryTopicRecoverer::isRetryable, retryTopicRecoverer());
+            }
+            RetryTopicDelayListener.install(container, retryTopics(), retryTopicPauses());
+        });
         return factory;
     }
+
+    @Bean(destroyMethod = "close")
+    public KeyOrderedExecutor listenerLanes() {
+        return new KeyOrderedExecutor("kafka-lane", lanes, laneCapacity);
+    }
+
+    @Bean
+    public RetryTopicRecoverer retryTopicRecoverer() {
+        return new RetryTopicRecoverer(retryKafkaTemplate(), retryTopics());
+    }
+
+    // Resumes retry topic partitions once their records are due
+    @Bean
+    public ListenerContainerPauseService retryTopicPauses() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("retry-topic-resume-");
+        scheduler.setDaemon(true);
+        scheduler.initialize();
+        return new ListenerContainerPauseService(null, scheduler);
+    }
+
+    // Republishes failed records as they were consumed: raw bytes of unreadable values, strings, or objects as JSON
+    @Bean
+    public KafkaTemplate<Object, Object> retryKafkaTemplate() {
+        Map<Class<?>, Serializer<?>> serializers = new LinkedHashMap<>();
+        serializers.put(byte[].class, new ByteArraySerializer());
+        serializers.put(String.class, new StringSerializer());
+        JsonSerializer<Object> jsonSerializer = new JsonSerializer<>();
+        jsonSerializer.setAddTypeInfo(false);
+        serializers.put(Object.class, jsonSerializer);
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(props,
+                new DelegatingByTypeSerializer(serializers, true), new DelegatingByTypeSerializer(serializers, true)));
+    }
     
     // Producer configuration
     @Bean
@@ -62,4 +198,28 @@ public class KafkaConfig {
     public KafkaTemplate<String, Object> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
+
+    // Producer for the outbox relay: values are already serialized, sent in large compressed batches.
+    // Idempotence keeps retried batches from being written twice or out of order.
+    @Bean
+    public ProducerFactory<String, byte[]> outboxProducerFactory(
+            @Value("${outbox.producer.linger:10ms}") Duration linger,
+            @Value("${outbox.producer.batch-size:65536}") int batchSize,
+            @Value("${outbox.producer.compression:lz4}") String compression) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.LINGER_MS_CONFIG, (int) linger.toMillis());
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compression);
+        return new DefaultKafkaProducerFactory<>(props);
+    }
+
+    @Bean
+    public KafkaTemplate<String, byte[]> outboxKafkaTemplate(ProducerFactory<String, byte[]> outboxProducerFactory) {
+        return new KafkaTemplate<>(outboxProducerFactory);
+    }
 }
\ No newline at end of file
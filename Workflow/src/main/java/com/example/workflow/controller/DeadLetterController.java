@@ -0,0 +1,44 @@
+package com.example.workflow.controller;
+
+import com.example.messaging.retry.DeadLetterDTO;
+import com.example.messaging.retry.DeadLetterService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/dead-letters")
+@RequiredArgsConstructor
+public class DeadLetterController {
+
+    private final DeadLetterService deadLetterService;
+
+    /**
+     * Records of a consumed topic that failed every retry and were not replayed yet, oldest first
+     */
+    @GetMapping("/{topic}")
+    public ResponseEntity<List<DeadLetterDTO>> getDeadLetters(
+            @PathVariable String topic,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (!deadLetterService.hasDeadLetterTopic(topic)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(deadLetterService.list(topic, limit));
+    }
+
+    /**
+     * Publish the oldest dead letters of a topic to the topic again, e.g. once the cause of their failure is fixed
+     */
+    @PostMapping("/{topic}/replay")
+    public ResponseEntity<Map<String, Integer>> replayDeadLetters(
+            @PathVariable String topic,
+            @RequestParam(defaultValue = "1000") int limit) {
+        if (!deadLetterService.hasDeadLetterTopic(topic)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of("replayed", deadLetterService.replay(topic, limit)));
+    }
+}
@@ -6,11 +6,14 @@ import com.example.workflow.model.WorkflowStatus;
 import com.example.workflow.service.KafkaProducerService;
 import com.example.workflow.service.WorkflowService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -23,9 +26,16 @@ public class WorkflowController {
     private final KafkaProducerService kafkaProducerService;
     
     @GetMapping("/document/{documentId}")
-    public ResponseEntity<WorkflowInstanceDTO> getWorkflowByDocumentId(@PathVariable UUID documentId) {
+    public ResponseEntity<WorkflowInstanceDTO> getWorkflowByDocumentId(
+            @PathVariable UUID documentId,
+            WebRequest webRequest) {
+        Optional<String> eTag = workflowService.getWorkflowETag(documentId);
+        if (eTag.isPresent() && webRequest.checkNotModified(eTag.get())) {
+            return null;
+        }
+        
         return workflowService.getWorkflowByDocumentId(documentId)
-                .map(workflow -> ResponseEntity.ok(workflowService.convertToDTO(workflow)))
+                .map(workflow -> conditional(eTag).body(workflowService.convertToDTO(workflow)))
                 .orElse(ResponseEntity.notFound().build());
     }
     
@@ -88,7 +98,15 @@ public class WorkflowController {
      * Get information about the current step and what's next in the workflow
      */
     @GetMapping("/document/{documentId}/workflow-info")
-    public ResponseEntity<WorkflowInfoResponse> getWorkflowInfo(@PathVariable UUID documentId) {
+    public ResponseEntity<WorkflowInfoResponse> getWorkflowInfo(
+            @PathVariable UUID documentId,
+            WebRequest webRequest) {
+        // Polling clients get a 304 from the updatedAt lookup alone while the workflow is unchanged
+        Optional<String> eTag = workflowService.getWorkflowETag(documentId);
+        if (eTag.isPresent() && webRequest.checkNotModified(eTag.get())) {
+            return null;
+        }
+        
         return workflowService.getWorkflowByDocumentId(documentId)
                 .map(workflow -> {
                     var status = workflow.getCurrentStatus();
@@ -101,11 +119,20 @@ public class WorkflowController {
                         status == WorkflowStatus.PUBLISHED
                     );
                     
-                    return ResponseEntity.ok(response);
+                    return conditional(eTag).body(response);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    /**
+     * Start a 200 response carrying the ETag, which browsers must revalidate before reuse
+     */
+    private ResponseEntity.BodyBuilder conditional(Optional<String> eTag) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        eTag.ifPresent(builder::eTag);
+        return builder;
+    }
+    
     /**
      * Helper method to determine the next action description based on current status
      */
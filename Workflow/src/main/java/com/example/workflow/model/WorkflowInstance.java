@@ -9,7 +9,9 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "workflow_instances")
+@Table(name = "workflow_instances", indexes = {
+    @Index(name = "idx_workflow_instances_document_id", columnList = "documentId")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
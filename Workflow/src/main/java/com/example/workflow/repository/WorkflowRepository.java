@@ -3,8 +3,11 @@ package com.example.workflow.repository;
 import com.example.workflow.model.WorkflowInstance;
 import com.example.workflow.model.WorkflowStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,6 +17,10 @@ public interface WorkflowRepository extends JpaRepository<WorkflowInstance, UUID
     
     Optional<WorkflowInstance> findByDocumentId(UUID documentId);
     
+    // Read only the modification timestamp, for ETag checks
+    @Query("select w.updatedAt from WorkflowInstance w where w.documentId = :documentId")
+    Optional<LocalDateTime> findUpdatedAtByDocumentId(@Param("documentId") UUID documentId);
+    
     List<WorkflowInstance> findByCurrentStatus(WorkflowStatus status);
     
     List<WorkflowInstance> findByDocumentIdIn(List<UUID> documentIds);
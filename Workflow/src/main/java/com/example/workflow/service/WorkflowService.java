@@ -11,12 +11,37 @@ import java.util.UUID;
 
 public interface WorkflowService {
     
+    /**
+     * Create the workflow of a document, or return the one it already has; a document has at most one
+     */
     WorkflowInstance createWorkflow(UUID documentId, WorkflowType workflowType);
     
+    /**
+     * Start the workflow of a document created directly, which is valid as it is. The workflow and the validated
+     * event are written in one transaction; a document that already has a workflow is left as it is.
+     * @return The document's workflow
+     */
+    WorkflowInstance startCreationWorkflow(UUID documentId);
+    
+    /**
+     * Record the fields extracted from an uploaded document: its workflow is created unless it exists, moved on to
+     * validation and the fields are published, all in one transaction. A workflow already past field extraction is
+     * left as it is.
+     * @return The document's workflow
+     */
+    WorkflowInstance completeFieldExtraction(UUID documentId, String extractedData);
+    
     WorkflowInstance updateWorkflowStatus(UUID workflowId, WorkflowStatus newStatus);
     
     Optional<WorkflowInstance> getWorkflowByDocumentId(UUID documentId);
     
+    /**
+     * Compute a strong ETag for the workflow of a document without loading the workflow itself
+     * @param documentId The ID of the document
+     * @return Quoted entity tag that changes whenever the workflow does, or empty if there is no workflow
+     */
+    Optional<String> getWorkflowETag(UUID documentId);
+    
     List<WorkflowInstance> getWorkflowsByStatus(WorkflowStatus status);
     
     WorkflowInstanceDTO convertToDTO(WorkflowInstance workflow);
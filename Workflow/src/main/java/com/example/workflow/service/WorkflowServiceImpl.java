@@ -10,7 +10,9 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -26,6 +28,11 @@ public class WorkflowServiceImpl implements WorkflowService {
     @Override
     @Transactional
     public WorkflowInstance createWorkflow(UUID documentId, WorkflowType workflowType) {
+        Optional<WorkflowInstance> existing = workflowRepository.findByDocumentId(documentId);
+        if (existing.isPresent()) {
+            log.info("Document ID: {} already has workflow {}", documentId, existing.get().getId());
+            return existing.get();
+        }
         WorkflowInstance workflow = new WorkflowInstance();
         workflow.setDocumentId(documentId);
         workflow.setWorkflowType(workflowType);
@@ -40,6 +47,33 @@ public class WorkflowServiceImpl implements WorkflowService {
         return workflowRepository.save(workflow);
     }
 
+    @Override
+    @Transactional
+    public WorkflowInstance startCreationWorkflow(UUID documentId) {
+        Optional<WorkflowInstance> existing = workflowRepository.findByDocumentId(documentId);
+        if (existing.isPresent()) {
+            log.info("Document ID: {} already has workflow {}, nothing to start", documentId, existing.get().getId());
+            return existing.get();
+        }
+        WorkflowInstance workflow = createWorkflow(documentId, WorkflowType.DOCUMENT_CREATION);
+        // For created documents, they are automatically published and valid
+        kafkaProducerService.publishDocumentValidated(documentId, "{}");
+        return workflow;
+    }
+
+    @Override
+    @Transactional
+    public WorkflowInstance completeFieldExtraction(UUID documentId, String extractedData) {
+        WorkflowInstance workflow = createWorkflow(documentId, WorkflowType.DOCUMENT_UPLOAD);
+        if (workflow.getCurrentStatus() != WorkflowStatus.FIELD_EXTRACTION_PENDING) {
+            log.info("Document ID: {} is already past field extraction with status {}", documentId,
+                    workflow.getCurrentStatus());
+            return workflow;
+        }
+        // Publishes the extracted fields with the move to validation
+        return processNextStep(documentId, extractedData);
+    }
+
     @Override
     @Transactional
     public WorkflowInstance updateWorkflowStatus(UUID workflowId, WorkflowStatus newStatus) {
@@ -79,6 +113,14 @@ public class WorkflowServiceImpl implements WorkflowService {
         return workflowRepository.findByDocumentId(documentId);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<String> getWorkflowETag(UUID documentId) {
+        return workflowRepository.findUpdatedAtByDocumentId(documentId)
+                .map(updatedAt -> documentId + "|" + updatedAt)
+                .map(tag -> "\"" + DigestUtils.md5DigestAsHex(tag.getBytes(StandardCharsets.UTF_8)) + "\"");
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<WorkflowInstance> getWorkflowsByStatus(WorkflowStatus status) {
@@ -0,0 +1,127 @@
+package com.example.events.codec;
+
+import com.example.events.DocumentEvent;
+import com.example.events.DocumentStatus;
+import com.example.events.DocumentStatusEvent;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes and reads the two events sent most, a document event and a workflow status event, as JSON the way the
+ * services used to (Jackson with the Java time module, as configured by Spring Kafka) and in the binary form.
+ * The payload sizes are printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventCodecBenchmark {
+
+    private DocumentEvent document;
+    private DocumentStatusEvent status;
+    private ObjectWriter jsonWriter;
+    private ObjectReader documentReader;
+    private ObjectReader statusReader;
+    private byte[] documentJson;
+    private byte[] documentBinary;
+    private byte[] statusJson;
+    private byte[] statusBinary;
+
+    @Setup
+    public void setUp() throws Exception {
+        UUID id = UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now();
+        document = DocumentEvent.builder()
+                .id(id)
+                .title("Discharge summary after laparoscopic cholecystectomy")
+                .patientId("P-000123456")
+                .diagnosis("Acute calculous cholecystitis")
+                .documentType("DISCHARGE_SUMMARY")
+                .department("General Surgery")
+                .createdAt(now.minusDays(2))
+                .updatedAt(now)
+                .statusUpdatedAt(now.minusHours(3))
+                .procedureDate(now.minusDays(3))
+                .doctorIds("D-1001,D-1042")
+                .status(DocumentStatus.PENDING)
+                .contentLength(18342)
+                .contentUrl("/api/v1/documents/" + id + "/content")
+                .build();
+        status = new DocumentStatusEvent(id, "VALIDATED", "{}");
+
+        ObjectMapper mapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        jsonWriter = mapper.writer();
+        documentReader = mapper.readerFor(DocumentEvent.class);
+        statusReader = mapper.readerFor(DocumentStatusEvent.class);
+
+        documentJson = jsonWriter.writeValueAsBytes(document);
+        documentBinary = EventCodecs.encode(document);
+        statusJson = jsonWriter.writeValueAsBytes(status);
+        statusBinary = EventCodecs.encode(status);
+        System.out.printf("%nDocument event: %d bytes as JSON, %d binary; status event: %d bytes as JSON, %d binary%n",
+                documentJson.length, documentBinary.length, statusJson.length, statusBinary.length);
+    }
+
+    @Benchmark
+    public byte[] documentWriteJson() throws Exception {
+        return jsonWriter.writeValueAsBytes(document);
+    }
+
+    @Benchmark
+    public byte[] documentWriteBinary() {
+        return EventCodecs.encode(document);
+    }
+
+    @Benchmark
+    public Object documentReadJson() throws Exception {
+        return documentReader.readValue(documentJson);
+    }
+
+    @Benchmark
+    public Object documentReadBinary() {
+        return EventCodecs.decode("Document", 2, documentBinary);
+    }
+
+    @Benchmark
+    public byte[] statusWriteJson() throws Exception {
+        return jsonWriter.writeValueAsBytes(status);
+    }
+
+    @Benchmark
+    public byte[] statusWriteBinary() {
+        return EventCodecs.encode(status);
+    }
+
+    @Benchmark
+    public Object statusReadJson() throws Exception {
+        return statusReader.readValue(statusJson);
+    }
+
+    @Benchmark
+    public Object statusReadBinary() {
+        return EventCodecs.decode("DocumentStatus", 1, statusBinary);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.events;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A document as announced on the document topics: its attributes without the content, which can be large.
+ * Consumers that need the content fetch it from {@code contentUrl}; {@code updatedAt} is the version it belongs to.
+ * Version 1 of this event was the whole document as returned by the Documents API, content included.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@KafkaEvent(type = "Document", version = 2)
+public class DocumentEvent {
+    private UUID id;
+    private String title;
+    private String patientId;
+    private String diagnosis;
+    private String documentType;
+    private String department;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime statusUpdatedAt;
+    private LocalDateTime procedureDate;
+    private String doctorIds; // Comma-separated list of doctor IDs
+    private DocumentStatus status;
+    private Integer contentLength; // Characters of content, 0 if the document has none
+    private String contentUrl; // Path of the content on the Documents service, null once the document is deleted
+}
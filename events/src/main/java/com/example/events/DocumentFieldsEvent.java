@@ -1,16 +1,19 @@
-package com.example.documents.dto.workflow;
+package com.example.events;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.UUID;
+
 /**
- * Data Transfer Object for receiving document field extraction events from the Workflow service
+ * Fields the Workflow service extracted from a document, as a JSON string
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@KafkaEvent(type = "DocumentFields")
 public class DocumentFieldsEvent {
-    private Long documentId;
+    private UUID documentId;
     private String extractedFields;
 }
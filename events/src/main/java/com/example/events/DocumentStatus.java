@@ -0,0 +1,61 @@
+package com.example.events;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Review status of a document, both as the Documents service stores it and as document events announce it.
+ * Statuses may be added but not renamed: events carry them by name, and a consumer that does not know a status yet
+ * reads it as null.
+ */
+public enum DocumentStatus {
+    /**
+     * Document is waiting for validation by an authorized user
+     */
+    PENDING,
+
+    /**
+     * Document has been validated and approved
+     */
+    VALIDATED,
+
+    /**
+     * Document has been rejected and requires revision
+     */
+    REJECTED;
+
+    /**
+     * Check if a document in this status may move to the given one; staying in the same status is always allowed
+     */
+    public boolean canTransitionTo(DocumentStatus next) {
+        if (this == next) {
+            return true;
+        }
+        switch (this) {
+            case PENDING:
+                // From PENDING, can move to VALIDATED or REJECTED
+                return next == VALIDATED || next == REJECTED;
+            case VALIDATED:
+                // From VALIDATED, can move to REJECTED if needed
+                return next == REJECTED;
+            case REJECTED:
+                // From REJECTED, can move back to PENDING for reconsideration
+                return next == PENDING;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Every status a document may move to the given one from, including the target itself
+     */
+    public static Set<DocumentStatus> sourcesOf(DocumentStatus target) {
+        Set<DocumentStatus> sources = EnumSet.noneOf(DocumentStatus.class);
+        for (DocumentStatus status : values()) {
+            if (status.canTransitionTo(target)) {
+                sources.add(status);
+            }
+        }
+        return sources;
+    }
+}
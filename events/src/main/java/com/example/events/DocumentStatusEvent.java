@@ -0,0 +1,21 @@
+package com.example.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * A workflow decision about a document, published by the Workflow service on the validated, rejected and published
+ * topics. The status names the decision, e.g. {@code PUBLISHED}, so it is not limited to {@link DocumentStatus}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@KafkaEvent(type = "DocumentStatus")
+public class DocumentStatusEvent {
+    private UUID documentId;
+    private String status;
+    private String data;
+}
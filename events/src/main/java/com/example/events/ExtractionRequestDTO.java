@@ -0,0 +1,23 @@
+package com.example.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Data Transfer Object for document extraction requests.
+ * The extractor fetches the content from {@code contentUrl}; version 1 carried the content itself.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@KafkaEvent(type = "ExtractionRequest", version = 2)
+public class ExtractionRequestDTO {
+    private UUID documentId;
+    private Integer contentLength;
+    private String contentUrl;
+}
@@ -0,0 +1,24 @@
+package com.example.events;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class as the payload of a Kafka event.
+ * The type and version are sent as record headers, so consumers know how to read the value before parsing it.
+ * Raise the version whenever the payload changes incompatibly, see {@link com.example.events.codec.EventCodec},
+ * and keep reading the old version until no producer sends it any more.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface KafkaEvent {
+
+    /**
+     * Event type, e.g. {@code DocumentStatus}; the same for all versions of the payload
+     */
+    String type();
+
+    int version() default 1;
+}
@@ -1,8 +1,9 @@
-package com.example.documents.dto.workflow;
+package com.example.events;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+
 import java.util.UUID;
 
 /**
@@ -12,8 +13,9 @@ import java.util.UUID;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@KafkaEvent(type = "WorkflowEvent")
 public class WorkflowEventDTO {
     private UUID documentId;
     private String eventType;
     private String data;
-}
\ No newline at end of file
+}
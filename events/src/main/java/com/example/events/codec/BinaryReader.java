@@ -0,0 +1,127 @@
+package com.example.events.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Reads event fields written by {@link BinaryWriter}, in the order they were written.
+ * A malformed or truncated payload fails with {@link IllegalArgumentException}.
+ */
+public final class BinaryReader {
+
+    private final byte[] buffer;
+    private int position;
+
+    public BinaryReader(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Whether more fields follow; fields appended to an event after it was written are read only if this holds
+     */
+    public boolean hasRemaining() {
+        return position < buffer.length;
+    }
+
+    public int readVarInt() {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed number at byte " + position + " of event");
+    }
+
+    public long readVarLong() {
+        long zigzag = readUnsignedVarLong();
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private long readUnsignedVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed number at byte " + position + " of event");
+    }
+
+    public String readString() {
+        int length = readVarInt() - 1;
+        if (length < 0) {
+            return null;
+        }
+        require(length);
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    public UUID readUuid() {
+        if (readByte() == 0) {
+            return null;
+        }
+        require(16);
+        return new UUID(readLong(), readLong());
+    }
+
+    private long readLong() {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (buffer[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    public LocalDateTime readDateTime() {
+        int nano = readVarInt() - 1;
+        if (nano < 0) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(readVarLong(), nano, ZoneOffset.UTC);
+    }
+
+    public Integer readInteger() {
+        long zigzag = readUnsignedVarLong() - 1;
+        if (zigzag < 0) {
+            return null;
+        }
+        return (int) ((zigzag >>> 1) ^ -(zigzag & 1));
+    }
+
+    /**
+     * A constant by name, e.g. {@code readEnum(DocumentStatus.class)}. A constant this reader does not know, added
+     * by a newer writer, reads as null like a missing one, so the rest of the event can still be read.
+     */
+    public <E extends Enum<E>> E readEnum(Class<E> type) {
+        String name = readString();
+        if (name == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte readByte() {
+        require(1);
+        return buffer[position++];
+    }
+
+    private void require(int bytes) {
+        if (bytes > buffer.length - position) {
+            throw new IllegalArgumentException("Event ends at byte " + buffer.length + ", " + bytes
+                    + " more expected at byte " + position);
+        }
+    }
+}
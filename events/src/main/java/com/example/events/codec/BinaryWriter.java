@@ -0,0 +1,134 @@
+package com.example.events.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Writes event fields in the compact binary form read by {@link BinaryReader}.
+ * Numbers are variable-length, so small values take one byte; every value type can be null, which costs one byte.
+ */
+public final class BinaryWriter {
+
+    private byte[] buffer;
+    private int size;
+
+    public BinaryWriter() {
+        this(256);
+    }
+
+    public BinaryWriter(int capacity) {
+        buffer = new byte[Math.max(16, capacity)];
+    }
+
+    /**
+     * An unsigned number in 7-bit groups, lowest first; 1 byte up to 127, 5 bytes at most
+     */
+    public void writeVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    /**
+     * A signed number, zigzag encoded so small negative numbers stay short; 10 bytes at most
+     */
+    public void writeVarLong(long value) {
+        writeUnsignedVarLong((value << 1) ^ (value >> 63));
+    }
+
+    private void writeUnsignedVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    /**
+     * UTF-8 bytes after their length plus one; 0 is null
+     */
+    public void writeString(String value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length + 1);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    /**
+     * 0 for null, else 1 and the 16 bytes of the UUID
+     */
+    public void writeUuid(UUID value) {
+        ensureCapacity(17);
+        if (value == null) {
+            buffer[size++] = 0;
+            return;
+        }
+        buffer[size++] = 1;
+        writeLong(value.getMostSignificantBits());
+        writeLong(value.getLeastSignificantBits());
+    }
+
+    private void writeLong(long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    /**
+     * Nanoseconds plus one, 0 for null, then the seconds since the epoch; the local time is kept as is,
+     * the offset is only there to count the seconds
+     */
+    public void writeDateTime(LocalDateTime value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        writeVarInt(value.getNano() + 1);
+        writeVarLong(value.toEpochSecond(ZoneOffset.UTC));
+    }
+
+    /**
+     * The zigzag encoded number plus one, 0 for null
+     */
+    public void writeInteger(Integer value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        long zigzag = ((long) value << 1) ^ ((long) value >> 63);
+        writeUnsignedVarLong(zigzag + 1);
+    }
+
+    /**
+     * The constant's name, so constants can be reordered and added without breaking readers
+     */
+    public void writeEnum(Enum<?> value) {
+        writeString(value != null ? value.name() : null);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (size + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + bytes));
+        }
+    }
+}
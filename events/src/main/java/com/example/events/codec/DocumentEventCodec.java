@@ -0,0 +1,50 @@
+package com.example.events.codec;
+
+import com.example.events.DocumentEvent;
+import com.example.events.DocumentStatus;
+
+final class DocumentEventCodec implements EventCodec<DocumentEvent> {
+
+    @Override
+    public Class<DocumentEvent> eventClass() {
+        return DocumentEvent.class;
+    }
+
+    @Override
+    public void write(DocumentEvent event, BinaryWriter out) {
+        out.writeUuid(event.getId());
+        out.writeString(event.getTitle());
+        out.writeString(event.getPatientId());
+        out.writeString(event.getDiagnosis());
+        out.writeString(event.getDocumentType());
+        out.writeString(event.getDepartment());
+        out.writeDateTime(event.getCreatedAt());
+        out.writeDateTime(event.getUpdatedAt());
+        out.writeDateTime(event.getStatusUpdatedAt());
+        out.writeDateTime(event.getProcedureDate());
+        out.writeString(event.getDoctorIds());
+        out.writeEnum(event.getStatus());
+        out.writeInteger(event.getContentLength());
+        out.writeString(event.getContentUrl());
+    }
+
+    @Override
+    public DocumentEvent read(BinaryReader in) {
+        return DocumentEvent.builder()
+                .id(in.readUuid())
+                .title(in.readString())
+                .patientId(in.readString())
+                .diagnosis(in.readString())
+                .documentType(in.readString())
+                .department(in.readString())
+                .createdAt(in.readDateTime())
+                .updatedAt(in.readDateTime())
+                .statusUpdatedAt(in.readDateTime())
+                .procedureDate(in.readDateTime())
+                .doctorIds(in.readString())
+                .status(in.readEnum(DocumentStatus.class))
+                .contentLength(in.readInteger())
+                .contentUrl(in.readString())
+                .build();
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.events.codec;
+
+import com.example.events.DocumentFieldsEvent;
+
+final class DocumentFieldsEventCodec implements EventCodec<DocumentFieldsEvent> {
+
+    @Override
+    public Class<DocumentFieldsEvent> eventClass() {
+        return DocumentFieldsEvent.class;
+    }
+
+    @Override
+    public void write(DocumentFieldsEvent event, BinaryWriter out) {
+        out.writeUuid(event.getDocumentId());
+        out.writeString(event.getExtractedFields());
+    }
+
+    @Override
+    public DocumentFieldsEvent read(BinaryReader in) {
+        return new DocumentFieldsEvent(in.readUuid(), in.readString());
+    }
+}
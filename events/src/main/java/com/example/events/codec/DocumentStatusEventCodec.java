@@ -0,0 +1,23 @@
+package com.example.events.codec;
+
+import com.example.events.DocumentStatusEvent;
+
+final class DocumentStatusEventCodec implements EventCodec<DocumentStatusEvent> {
+
+    @Override
+    public Class<DocumentStatusEvent> eventClass() {
+        return DocumentStatusEvent.class;
+    }
+
+    @Override
+    public void write(DocumentStatusEvent event, BinaryWriter out) {
+        out.writeUuid(event.getDocumentId());
+        out.writeString(event.getStatus());
+        out.writeString(event.getData());
+    }
+
+    @Override
+    public DocumentStatusEvent read(BinaryReader in) {
+        return new DocumentStatusEvent(in.readUuid(), in.readString(), in.readString());
+    }
+}
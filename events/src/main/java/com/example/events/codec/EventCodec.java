@@ -0,0 +1,19 @@
+package com.example.events.codec;
+
+/**
+ * Writes and reads one version of an event in the binary form, field by field and without reflection.
+ * <p>
+ * Fields have no names or tags, only their position, so the codec of an event version may only change by appending
+ * fields at the end: readers check {@link BinaryReader#hasRemaining()} before reading an appended field and leave it
+ * unset for payloads written before it existed, and older readers never look past the fields they know. Producers and
+ * consumers can then be upgraded in any order. Removing, reordering or retyping a field needs a new event version,
+ * with a codec of its own next to the old one.
+ */
+public interface EventCodec<T> {
+
+    Class<T> eventClass();
+
+    void write(T event, BinaryWriter out);
+
+    T read(BinaryReader in);
+}
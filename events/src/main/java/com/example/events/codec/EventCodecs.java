@@ -0,0 +1,72 @@
+package com.example.events.codec;
+
+import com.example.events.KafkaEvent;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The binary codecs of all events, by event class and by the type and version of their {@link KafkaEvent}
+ * annotation, as sent in the record headers.
+ */
+public final class EventCodecs {
+
+    private static final List<EventCodec<?>> CODECS = List.of(
+            new DocumentEventCodec(), new DocumentStatusEventCodec(), new DocumentFieldsEventCodec(),
+            new ExtractionRequestCodec(), new WorkflowEventCodec());
+
+    private static final Map<Class<?>, EventCodec<?>> BY_CLASS = new HashMap<>();
+    // Codecs by type and version, e.g. "DocumentStatus:1"
+    private static final Map<String, EventCodec<?>> BY_TYPE = new HashMap<>();
+
+    static {
+        for (EventCodec<?> codec : CODECS) {
+            KafkaEvent type = codec.eventClass().getAnnotation(KafkaEvent.class);
+            BY_CLASS.put(codec.eventClass(), codec);
+            BY_TYPE.put(type.type() + ":" + type.version(), codec);
+        }
+    }
+
+    private EventCodecs() {
+    }
+
+    /**
+     * Whether events of a class can be written in the binary form
+     */
+    public static boolean supports(Class<?> eventClass) {
+        return BY_CLASS.containsKey(eventClass);
+    }
+
+    /**
+     * Whether events of a type and version can be read from the binary form
+     */
+    public static boolean supports(String type, int version) {
+        return BY_TYPE.containsKey(type + ":" + version);
+    }
+
+    /**
+     * @throws IllegalArgumentException If the event has no codec
+     */
+    @SuppressWarnings("unchecked")
+    public static byte[] encode(Object event) {
+        EventCodec<Object> codec = (EventCodec<Object>) BY_CLASS.get(event.getClass());
+        if (codec == null) {
+            throw new IllegalArgumentException("No binary codec for " + event.getClass().getName());
+        }
+        BinaryWriter out = new BinaryWriter();
+        codec.write(event, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException If the type and version have no codec, or the payload is malformed
+     */
+    public static Object decode(String type, int version, byte[] payload) {
+        EventCodec<?> codec = BY_TYPE.get(type + ":" + version);
+        if (codec == null) {
+            throw new IllegalArgumentException("No binary codec for " + type + " event version " + version);
+        }
+        return codec.read(new BinaryReader(payload));
+    }
+}
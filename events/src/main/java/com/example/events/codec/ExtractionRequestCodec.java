@@ -0,0 +1,23 @@
+package com.example.events.codec;
+
+import com.example.events.ExtractionRequestDTO;
+
+final class ExtractionRequestCodec implements EventCodec<ExtractionRequestDTO> {
+
+    @Override
+    public Class<ExtractionRequestDTO> eventClass() {
+        return ExtractionRequestDTO.class;
+    }
+
+    @Override
+    public void write(ExtractionRequestDTO event, BinaryWriter out) {
+        out.writeUuid(event.getDocumentId());
+        out.writeInteger(event.getContentLength());
+        out.writeString(event.getContentUrl());
+    }
+
+    @Override
+    public ExtractionRequestDTO read(BinaryReader in) {
+        return new ExtractionRequestDTO(in.readUuid(), in.readInteger(), in.readString());
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.events.codec;
+
+import com.example.events.WorkflowEventDTO;
+
+final class WorkflowEventCodec implements EventCodec<WorkflowEventDTO> {
+
+    @Override
+    public Class<WorkflowEventDTO> eventClass() {
+        return WorkflowEventDTO.class;
+    }
+
+    @Override
+    public void write(WorkflowEventDTO event, BinaryWriter out) {
+        out.writeUuid(event.getDocumentId());
+        out.writeString(event.getEventType());
+        out.writeString(event.getData());
+    }
+
+    @Override
+    public WorkflowEventDTO read(BinaryReader in) {
+        return new WorkflowEventDTO(in.readUuid(), in.readString(), in.readString());
+    }
+}
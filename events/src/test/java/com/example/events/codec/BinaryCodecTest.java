@@ -0,0 +1,163 @@
+package com.example.events.codec;
+
+import com.example.events.DocumentStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinaryCodecTest {
+
+    // A later version of DocumentStatus, with a constant readers may not know yet
+    private enum NewerDocumentStatus { PENDING, VALIDATED, REJECTED, ARCHIVED }
+
+    @Test
+    void varIntsRoundTrip() {
+        int[] values = {0, 1, 127, 128, 16_383, 16_384, 2_097_151, 2_097_152, Integer.MAX_VALUE, -1, Integer.MIN_VALUE};
+        BinaryWriter out = new BinaryWriter(1);
+        for (int value : values) {
+            out.writeVarInt(value);
+        }
+        BinaryReader in = new BinaryReader(out.toByteArray());
+        for (int value : values) {
+            assertEquals(value, in.readVarInt());
+        }
+        assertFalse(in.hasRemaining());
+    }
+
+    @Test
+    void varIntsTakeOneByteUpTo127() {
+        assertEquals(1, sizeOf(out -> out.writeVarInt(127)));
+        assertEquals(2, sizeOf(out -> out.writeVarInt(128)));
+        assertEquals(5, sizeOf(out -> out.writeVarInt(-1)));
+    }
+
+    @Test
+    void varLongsRoundTrip() {
+        long[] values = {0, 1, -1, 63, -64, 64, -65, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        BinaryWriter out = new BinaryWriter();
+        for (long value : values) {
+            out.writeVarLong(value);
+        }
+        BinaryReader in = new BinaryReader(out.toByteArray());
+        for (long value : values) {
+            assertEquals(value, in.readVarLong());
+        }
+        assertFalse(in.hasRemaining());
+        // Zigzag keeps small negative numbers short
+        assertEquals(1, sizeOf(out2 -> out2.writeVarLong(-64)));
+        assertEquals(10, sizeOf(out2 -> out2.writeVarLong(Long.MIN_VALUE)));
+    }
+
+    @Test
+    void nullableValuesRoundTrip() {
+        Integer[] integers = {null, 0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        String[] strings = {null, "", "Ärztlicher Befund", "🩺".repeat(100)};
+        UUID[] uuids = {null, new UUID(0, 0), UUID.randomUUID()};
+        LocalDateTime[] dateTimes = {null, LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_999_999),
+                LocalDateTime.of(2024, 2, 29, 12, 0), LocalDateTime.of(2024, 2, 29, 12, 0, 0, 1)};
+        DocumentStatus[] statuses = {null, DocumentStatus.PENDING, DocumentStatus.VALIDATED, DocumentStatus.REJECTED};
+
+        BinaryWriter out = new BinaryWriter(1);
+        for (Integer value : integers) {
+            out.writeInteger(value);
+        }
+        for (String value : strings) {
+            out.writeString(value);
+        }
+        for (UUID value : uuids) {
+            out.writeUuid(value);
+        }
+        for (LocalDateTime value : dateTimes) {
+            out.writeDateTime(value);
+        }
+        for (DocumentStatus value : statuses) {
+            out.writeEnum(value);
+        }
+
+        BinaryReader in = new BinaryReader(out.toByteArray());
+        for (Integer value : integers) {
+            assertEquals(value, in.readInteger());
+        }
+        for (String value : strings) {
+            assertEquals(value, in.readString());
+        }
+        for (UUID value : uuids) {
+            assertEquals(value, in.readUuid());
+        }
+        for (LocalDateTime value : dateTimes) {
+            assertEquals(value, in.readDateTime());
+        }
+        for (DocumentStatus value : statuses) {
+            assertEquals(value, in.readEnum(DocumentStatus.class));
+        }
+        assertFalse(in.hasRemaining());
+    }
+
+    @Test
+    void nullTakesOneByte() {
+        assertEquals(1, sizeOf(out -> out.writeInteger(null)));
+        assertEquals(1, sizeOf(out -> out.writeString(null)));
+        assertEquals(1, sizeOf(out -> out.writeUuid(null)));
+        assertEquals(1, sizeOf(out -> out.writeDateTime(null)));
+        assertEquals(1, sizeOf(out -> out.writeEnum(null)));
+    }
+
+    @Test
+    void unknownConstantReadsAsNullAndTheFieldsAfterItAreRead() {
+        BinaryWriter out = new BinaryWriter();
+        out.writeEnum(NewerDocumentStatus.ARCHIVED);
+        out.writeEnum(NewerDocumentStatus.VALIDATED);
+        out.writeInteger(42);
+
+        BinaryReader in = new BinaryReader(out.toByteArray());
+        assertNull(in.readEnum(DocumentStatus.class));
+        assertEquals(DocumentStatus.VALIDATED, in.readEnum(DocumentStatus.class));
+        assertEquals(42, in.readInteger());
+        assertFalse(in.hasRemaining());
+    }
+
+    @Test
+    void enumsAreWrittenByName() {
+        BinaryWriter byEnum = new BinaryWriter();
+        byEnum.writeEnum(DocumentStatus.REJECTED);
+        BinaryWriter byName = new BinaryWriter();
+        byName.writeString("REJECTED");
+        assertArrayEquals(byName.toByteArray(), byEnum.toByteArray());
+    }
+
+    @Test
+    void truncatedPayloadsAreRejected() {
+        BinaryWriter out = new BinaryWriter();
+        out.writeString("content");
+        out.writeUuid(UUID.randomUUID());
+        byte[] payload = out.toByteArray();
+        for (int length = 1; length < payload.length; length++) {
+            BinaryReader in = new BinaryReader(Arrays.copyOf(payload, length));
+            assertThrows(IllegalArgumentException.class, () -> {
+                in.readString();
+                in.readUuid();
+            });
+        }
+    }
+
+    @Test
+    void overlongVarIntIsRejected() {
+        byte[] payload = {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01};
+        assertThrows(IllegalArgumentException.class, () -> new BinaryReader(payload).readVarInt());
+    }
+
+    private static int sizeOf(Consumer<BinaryWriter> write) {
+        BinaryWriter out = new BinaryWriter();
+        write.accept(out);
+        return out.size();
+    }
+}
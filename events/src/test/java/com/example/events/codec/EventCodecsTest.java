@@ -0,0 +1,150 @@
+package com.example.events.codec;
+
+import com.example.events.DocumentEvent;
+import com.example.events.DocumentFieldsEvent;
+import com.example.events.DocumentStatus;
+import com.example.events.DocumentStatusEvent;
+import com.example.events.ExtractionRequestDTO;
+import com.example.events.KafkaEvent;
+import com.example.events.WorkflowEventDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventCodecsTest {
+
+    private static final UUID ID = UUID.fromString("3f2b8c1e-5d4a-4e6f-9a7b-0c1d2e3f4a5b");
+
+    // Payloads as written when the codecs were introduced; they must stay readable as long as the event version exists
+    private static final String DOCUMENT_PAYLOAD = "013f2b8c1e5d4a4e6f9a7b0c1d2e3f4a5b11446973636861726765206c657474657205"
+            + "702d3137064a31382e39074c45545445520b43617264696f6c6f677901b0808dde0cc1a9d33a84f197de0c000180def3dd0c0664"
+            + "312c64320a56414c494441544544a5133f2f6170692f76312f646f63756d656e74732f33663262386331652d356434612d3465"
+            + "36662d396137622d3063316432653366346135622f636f6e74656e74";
+    private static final String STATUS_PAYLOAD = "013f2b8c1e5d4a4e6f9a7b0c1d2e3f4a5b0a5055424c49534845440c7b226279223a"
+            + "226431227d";
+
+    @Test
+    void everyEventRoundTrips() {
+        List<Object> events = List.of(
+                document(),
+                new DocumentEvent(),
+                new DocumentStatusEvent(ID, "PUBLISHED", "{\"by\":\"d1\"}"),
+                new DocumentStatusEvent(),
+                new DocumentFieldsEvent(ID, "{\"diagnosis\":\"J18.9\"}"),
+                new DocumentFieldsEvent(),
+                new ExtractionRequestDTO(ID, 1234, "/api/v1/documents/" + ID + "/content"),
+                new ExtractionRequestDTO(),
+                new WorkflowEventDTO(ID, "VALIDATION_REQUESTED", "{}"),
+                new WorkflowEventDTO());
+        for (Object event : events) {
+            assertTrue(EventCodecs.supports(event.getClass()));
+            assertEquals(event, decode(event.getClass(), EventCodecs.encode(event)));
+        }
+    }
+
+    @Test
+    void payloadsOfEarlierReleasesStayReadable() {
+        assertEquals(document(), decode(DocumentEvent.class, HexFormat.of().parseHex(DOCUMENT_PAYLOAD)));
+        assertEquals(new DocumentStatusEvent(ID, "PUBLISHED", "{\"by\":\"d1\"}"),
+                decode(DocumentStatusEvent.class, HexFormat.of().parseHex(STATUS_PAYLOAD)));
+    }
+
+    @Test
+    void fieldsAreWrittenWhereEarlierReleasesExpectThem() {
+        assertEquals(DOCUMENT_PAYLOAD, HexFormat.of().formatHex(EventCodecs.encode(document())));
+        assertEquals(STATUS_PAYLOAD, HexFormat.of().formatHex(
+                EventCodecs.encode(new DocumentStatusEvent(ID, "PUBLISHED", "{\"by\":\"d1\"}"))));
+    }
+
+    @Test
+    void fieldsAppendedByNewerWritersAreSkipped() {
+        BinaryWriter out = new BinaryWriter();
+        new DocumentEventCodec().write(document(), out);
+        out.writeString("appended by a newer release");
+        out.writeInteger(7);
+
+        assertEquals(document(), decode(DocumentEvent.class, out.toByteArray()));
+    }
+
+    @Test
+    void appendedFieldsAreUnsetInOlderPayloads() {
+        AppendedFieldCodec newer = new AppendedFieldCodec();
+
+        BinaryWriter out = new BinaryWriter();
+        newer.write(new Appended(document(), "Dr. Meyer"), out);
+        assertEquals(new Appended(document(), "Dr. Meyer"), newer.read(new BinaryReader(out.toByteArray())));
+
+        Appended older = newer.read(new BinaryReader(HexFormat.of().parseHex(DOCUMENT_PAYLOAD)));
+        assertEquals(document(), older.document());
+        assertNull(older.reviewer());
+    }
+
+    @Test
+    void statusesAddedByNewerWritersReadAsNull() {
+        // The document payload with ARCHIVED, a status this release does not know, in place of VALIDATED
+        String payload = DOCUMENT_PAYLOAD.replace("0a56414c494441544544", "094152434849564544");
+
+        DocumentEvent event = (DocumentEvent) decode(DocumentEvent.class, HexFormat.of().parseHex(payload));
+        assertNull(event.getStatus());
+        // The fields after the status are still read
+        assertEquals(1234, event.getContentLength());
+        assertEquals(document().getContentUrl(), event.getContentUrl());
+    }
+
+    @Test
+    void unknownVersionsAndMalformedPayloadsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> EventCodecs.decode("Document", 99, new byte[0]));
+        byte[] truncated = HexFormat.of().parseHex(DOCUMENT_PAYLOAD.substring(0, 40));
+        assertThrows(IllegalArgumentException.class, () -> decode(DocumentEvent.class, truncated));
+    }
+
+    private static Object decode(Class<?> eventClass, byte[] payload) {
+        KafkaEvent type = eventClass.getAnnotation(KafkaEvent.class);
+        return EventCodecs.decode(type.type(), type.version(), payload);
+    }
+
+    private static DocumentEvent document() {
+        return DocumentEvent.builder()
+                .id(ID)
+                .title("Discharge letter")
+                .patientId("p-17")
+                .diagnosis("J18.9")
+                .documentType("LETTER")
+                .department("Cardiology")
+                .createdAt(LocalDateTime.of(2024, 3, 1, 9, 30))
+                .updatedAt(LocalDateTime.of(2024, 3, 2, 10, 15, 30, 123_000_000))
+                .procedureDate(LocalDateTime.of(2024, 2, 28, 0, 0))
+                .doctorIds("d1,d2")
+                .status(DocumentStatus.VALIDATED)
+                .contentLength(1234)
+                .contentUrl("/api/v1/documents/" + ID + "/content")
+                .build();
+    }
+
+    private record Appended(DocumentEvent document, String reviewer) {
+    }
+
+    // The document event codec as a later release would extend it, by one field at the end
+    private static final class AppendedFieldCodec {
+
+        private final DocumentEventCodec codec = new DocumentEventCodec();
+
+        void write(Appended event, BinaryWriter out) {
+            codec.write(event.document(), out);
+            out.writeString(event.reviewer());
+        }
+
+        Appended read(BinaryReader in) {
+            DocumentEvent document = codec.read(in);
+            return new Appended(document, in.hasRemaining() ? in.readString() : null);
+        }
+    }
+}
@@ -4,6 +4,8 @@ from fastapi import FastAPI, HTTPException
 from pydantic import BaseModel
 from google import genai
 import asyncio
+import uuid
+import urllib.request
 from aiokafka import AIOKafkaConsumer, AIOKafkaProducer
 
 class DocumentContent(BaseModel):
@@ -18,6 +20,9 @@ KAFKA_BOOTSTRAP_SERVERS = os.getenv("KAFKA_BOOTSTRAP_SERVERS", "kafka:9092")
 KAFKA_CONSUMER_TOPIC = "extraction"
 KAFKA_MEDICAL_CONSUMER_TOPIC = "medical-document-for-extraction"
 KAFKA_PRODUCER_TOPIC = "extraction_response"
+# Extraction requests reference the document content on the Documents service instead of carrying it
+DOCUMENTS_SERVICE_URL = os.getenv("DOCUMENTS_SERVICE_URL", "http://documents-service:8081")
+CONTENT_FETCH_TIMEOUT = float(os.getenv("CONTENT_FETCH_TIMEOUT", "30"))
 
 # Kafka consumer and producer
 producer = None
@@ -130,6 +135,34 @@ async def process_medical_document(doc: DocumentContent):
         print(f"Gemini API error: {e}")
         raise HTTPException(status_code=502, detail=f"Gemini API error: {e}")
 
+def read_content(url: str) -> str:
+    with urllib.request.urlopen(url, timeout=CONTENT_FETCH_TIMEOUT) as response:
+        charset = response.headers.get_content_charset() or "utf-8"
+        return response.read().decode(charset)
+
+async def request_content(data: dict) -> str:
+    """Content of an extraction request: embedded in requests of version 1, fetched from the
+    Documents service for later ones, which only carry a contentUrl"""
+    if "content" in data:
+        return data.get("content") or ""
+    content_url = data.get("contentUrl")
+    if not content_url or not data.get("contentLength"):
+        return ""
+    # Blocking read in a worker thread, so the consumer loop keeps running
+    return await asyncio.to_thread(read_content, DOCUMENTS_SERVICE_URL.rstrip("/") + content_url)
+
+EVENT_ID_HEADER = "eventId"
+# Type and version of the response, so the Documents service picks its reader without inspecting the value
+RESPONSE_TYPE_HEADERS = [("eventType", b"ExtractionResponse"), ("eventVersion", b"1")]
+
+def response_event_id(msg) -> bytes:
+    """Event ID of the response to a request: derived from the request's ID, so a redelivered request
+    produces a response the Documents service recognizes as already processed"""
+    for name, value in msg.headers or []:
+        if name == EVENT_ID_HEADER and value:
+            return value + b":response"
+    return str(uuid.uuid4()).encode()
+
 async def consume_messages():
     """Consume messages from standard extraction Kafka topic"""
     global consumer
@@ -158,7 +191,9 @@ async def consume_messages():
                 # Send result back to Kafka
                 await producer.send_and_wait(
                     KAFKA_PRODUCER_TOPIC,
-                    json.dumps(result).encode()
+                    json.dumps(result).encode(),
+                    key=doc.document_id.encode(),  # Keyed by document so its responses stay in order
+                    headers=[(EVENT_ID_HEADER, response_event_id(msg))] + RESPONSE_TYPE_HEADERS
                 )
                 print(f"Processed and sent response for document: {doc.document_id}")
                 
@@ -189,7 +224,7 @@ async def consume_medical_documents():
                 print(f"Received medical document for extraction: {data.get('documentId', 'unknown')}")
                 
                 doc = DocumentContent(
-                    content=data.get("content", ""),
+                    content=await request_content(data),
                     document_id=str(data.get("documentId", ""))
                 )
                 
@@ -198,7 +233,9 @@ async def consume_medical_documents():
                 # Send result back to Kafka
                 await producer.send_and_wait(
                     KAFKA_PRODUCER_TOPIC,
-                    json.dumps(result).encode()
+                    json.dumps(result).encode(),
+                    key=doc.document_id.encode(),  # Keyed by document so its responses stay in order
+                    headers=[(EVENT_ID_HEADER, response_event_id(msg))] + RESPONSE_TYPE_HEADERS
                 )
                 print(f"Processed and sent response for medical document: {doc.document_id}")
                 
@@ -0,0 +1,62 @@
+package com.example.messaging;
+
+import com.example.events.KafkaEvent;
+import com.example.events.codec.EventCodecs;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The record headers that travel with every event value: a unique event ID, the event type and the version of the
+ * type's payload, the format of the payload if it is not JSON, and the service that produced it. Producers take type
+ * and version from the payload's {@link KafkaEvent} annotation, and name themselves by {@code spring.application.name}.
+ */
+public final class EventEnvelope {
+
+    public static final String EVENT_ID_HEADER = "eventId";
+    public static final String EVENT_TYPE_HEADER = "eventType";
+    public static final String EVENT_VERSION_HEADER = "eventVersion";
+    public static final String EVENT_FORMAT_HEADER = "eventFormat";
+    public static final String EVENT_ORIGIN_HEADER = "eventOrigin";
+
+    // Value of the format header for payloads written by the shared event codecs, see EventCodecs
+    public static final String BINARY_FORMAT = "binary";
+
+    private EventEnvelope() {
+    }
+
+    /**
+     * The event annotation of a payload class, or null if it is not an event
+     */
+    public static KafkaEvent typeOf(Class<?> payloadClass) {
+        return payloadClass.getAnnotation(KafkaEvent.class);
+    }
+
+    /**
+     * Whether a record's value was written by {@link EventCodecs} rather than as JSON
+     */
+    public static boolean isBinary(ConsumerRecord<?, ?> record) {
+        return BINARY_FORMAT.equals(header(record, EVENT_FORMAT_HEADER));
+    }
+
+    /**
+     * Whether a record was produced by the named service; records published before the origin header existed are not
+     */
+    public static boolean isFrom(ConsumerRecord<?, ?> record, String origin) {
+        return origin.equals(header(record, EVENT_ORIGIN_HEADER));
+    }
+
+    /**
+     * The last value of a header as text, or null if the record does not have it
+     */
+    public static String header(ConsumerRecord<?, ?> record, String name) {
+        return header(record.headers(), name);
+    }
+
+    public static String header(Headers headers, String name) {
+        Header header = headers.lastHeader(name);
+        return header != null && header.value() != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.messaging;
+
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The Kafka infrastructure shared by the services: the transactional outbox and its relay, the processed event store,
+ * retry topics with dead-letter replay, and the listener wrappers the services install on their containers.
+ * Services import it from their application class.
+ */
+@Configuration
+@ComponentScan
+public class MessagingConfig {
+}
@@ -0,0 +1,94 @@
+package com.example.messaging.idempotency;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * IDs of the Kafka events this service has handled, kept for a retention window to recognize redeliveries.
+ * An ID is claimed at the end of the transaction that writes the work it stands for, so either both commit or neither
+ * does.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProcessedEventRepository {
+
+    private static final String CLAIM = "INSERT INTO processed_events(event_id, processed_at) VALUES (?, ?) "
+            + "ON CONFLICT(event_id) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void createSchema() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS processed_events ("
+                + "event_id TEXT PRIMARY KEY, processed_at INTEGER NOT NULL) WITHOUT ROWID");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_processed_events_processed_at "
+                + "ON processed_events(processed_at)");
+    }
+
+    /**
+     * Record events as processed, in the caller's transaction if there is one
+     * @return Per event, whether it was claimed now; false if it had been processed before
+     */
+    @Transactional
+    public boolean[] claim(List<String> eventIds, long processedAt) {
+        int[] counts = jdbcTemplate.batchUpdate(CLAIM, eventIds.stream()
+                .map(eventId -> new Object[] {eventId, processedAt})
+                .toList());
+        boolean[] claimed = new boolean[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            claimed[i] = counts[i] != 0;
+        }
+        return claimed;
+    }
+
+    @Transactional(readOnly = true)
+    public boolean exists(String eventId) {
+        return !jdbcTemplate.queryForList("SELECT 1 FROM processed_events WHERE event_id = ?", Integer.class, eventId)
+                .isEmpty();
+    }
+
+    /**
+     * Pass every event ID processed at or after the given time to the consumer, without holding them all in memory
+     */
+    @Transactional(readOnly = true)
+    public void forEachSince(long processedAt, Consumer<String> consumer) {
+        jdbcTemplate.query("SELECT event_id FROM processed_events WHERE processed_at >= ?",
+                rs -> {
+                    consumer.accept(rs.getString(1));
+                },
+                processedAt);
+    }
+
+    /**
+     * Forget a single event, so it is processed again when it is redelivered
+     */
+    @Transactional
+    public void delete(String eventId) {
+        jdbcTemplate.update("DELETE FROM processed_events WHERE event_id = ?", eventId);
+    }
+
+    /**
+     * Forget events whose work failed after they were claimed
+     */
+    @Transactional
+    public void deleteAll(Collection<String> eventIds) {
+        jdbcTemplate.batchUpdate("DELETE FROM processed_events WHERE event_id = ?",
+                eventIds.stream().map(eventId -> new Object[] {eventId}).toList());
+    }
+
+    /**
+     * Forget events processed before the given time
+     * @return Number of event IDs removed
+     */
+    @Transactional
+    public int deleteBefore(long processedAt) {
+        return jdbcTemplate.update("DELETE FROM processed_events WHERE processed_at < ?", processedAt);
+    }
+}
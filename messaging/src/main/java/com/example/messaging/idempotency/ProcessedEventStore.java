@@ -0,0 +1,298 @@
+package com.example.messaging.idempotency;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs the work for each Kafka event at most once per retention window, recognizing events by their event ID.
+ * <p>
+ * The processed IDs of the window live in the processed_events table. Two Bloom filters in front of it, each covering
+ * one retention period, answer "never seen" for almost every new event without touching the database, so memory
+ * stays fixed however many events arrive. Only when a filter reports a possible match is the table asked, and only
+ * an ID found there is dropped as a duplicate.
+ * <p>
+ * The work runs without a transaction of its own. New IDs are claimed right before the first write transaction the
+ * work begins commits, so the claim commits or rolls back with the work's writes while holding the SQLite writer no
+ * longer than the work itself does. Work that writes nothing gets its IDs claimed in a short transaction afterwards.
+ * If another instance already claimed an ID, e.g. before a rebalance moved the partition, that transaction rolls back
+ * and the work is run again without the item. If the work fails after its claiming transaction committed, e.g. in a
+ * later transaction, the claims are given up so the event's next copy is processed.
+ */
+@Service
+@Slf4j
+public class ProcessedEventStore implements SmartInitializingSingleton {
+
+    // The IDs the work running on this thread has yet to claim
+    private static final ThreadLocal<PendingClaim> PENDING = new ThreadLocal<>();
+
+    private final ProcessedEventRepository processedEventRepository;
+    private final Duration retention;
+    private final Duration pruneInterval;
+    private final long expectedEvents;
+    private final double falsePositiveRate;
+
+    private final ScheduledExecutorService pruner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "processed-events-pruner");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+    private volatile long currentSince;
+
+    public ProcessedEventStore(ProcessedEventRepository processedEventRepository,
+            @Value("${idempotency.retention:24h}") Duration retention,
+            @Value("${idempotency.prune-interval:10m}") Duration pruneInterval,
+            @Value("${idempotency.expected-events:5000000}") long expectedEvents,
+            @Value("${idempotency.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.processedEventRepository = processedEventRepository;
+        this.retention = retention;
+        this.pruneInterval = pruneInterval;
+        this.expectedEvents = expectedEvents;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * Fill the filter with the IDs still in the window, so redeliveries after a restart are recognized.
+     * Runs once the transaction manager, which notifies {@link ClaimOnCommit}, is available.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        long now = System.currentTimeMillis();
+        current = new BloomFilter(expectedEvents, falsePositiveRate);
+        previous = new BloomFilter(1, falsePositiveRate);
+        currentSince = now;
+        processedEventRepository.deleteBefore(now - retention.toMillis());
+        long[] loaded = {0};
+        processedEventRepository.forEachSince(now - retention.toMillis(), eventId -> {
+            current.put(eventId);
+            loaded[0]++;
+        });
+        log.info("Loaded {} processed event IDs into a {} KB filter", loaded[0], current.sizeInBytes() / 1024);
+        pruner.scheduleWithFixedDelay(this::prune, pruneInterval.toMillis(), pruneInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        pruner.shutdownNow();
+    }
+
+    /**
+     * Whether an event was processed within the retention window
+     */
+    public boolean isProcessed(String eventId) {
+        if (!current.mightContain(eventId) && !previous.mightContain(eventId)) {
+            return false;
+        }
+        return processedEventRepository.exists(eventId);
+    }
+
+    /**
+     * Run work for the items whose events were not processed yet, claiming their IDs in the work's first write
+     * transaction. Items without an event ID are always included.
+     * @param items Records to process, in order
+     * @param eventIdOf Event ID of an item, or null if it has none
+     * @param work Processing of the remaining items; an exception gives up the claims as well
+     * @return The items that were passed to the work, empty if all were duplicates
+     */
+    public <T> List<T> process(List<T> items, Function<T, String> eventIdOf, Consumer<List<T>> work) {
+        while (true) {
+            List<T> fresh = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            Set<String> eventIds = new LinkedHashSet<>();
+            for (T item : items) {
+                String eventId = eventIdOf.apply(item);
+                if (eventId == null) {
+                    fresh.add(item);
+                } else if (seen.add(eventId) && !isProcessed(eventId)) {
+                    fresh.add(item);
+                    eventIds.add(eventId);
+                }
+            }
+            if (fresh.isEmpty()) {
+                return fresh;
+            }
+            try {
+                run(new PendingClaim(this, eventIds), fresh, work);
+                return fresh;
+            } catch (RuntimeException e) {
+                if (!isClaimedElsewhere(e)) {
+                    throw e;
+                }
+                // Work for the remaining items runs again, the items claimed elsewhere are skipped
+                log.info("Event IDs were claimed by another consumer meanwhile: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Give up the claim of an event that was handed on instead of processed, e.g. to a retry or dead-letter topic,
+     * so its copy is processed when it comes back. Called from the work, before its claims are written.
+     * The ID stays in the filters, which only costs a table lookup when it comes back.
+     */
+    public void release(String eventId) {
+        if (eventId == null) {
+            return;
+        }
+        PendingClaim pending = PENDING.get();
+        if (pending == null || !pending.eventIds.remove(eventId)) {
+            processedEventRepository.delete(eventId);
+        }
+    }
+
+    private <T> void run(PendingClaim claim, List<T> fresh, Consumer<List<T>> work) {
+        PendingClaim outer = PENDING.get();
+        PENDING.set(claim);
+        try {
+            work.accept(fresh);
+        } catch (RuntimeException e) {
+            if (claim.committed) {
+                processedEventRepository.deleteAll(claim.eventIds);
+            }
+            throw e;
+        } finally {
+            PENDING.set(outer);
+        }
+        if (!claim.committed && !claim.eventIds.isEmpty()) {
+            // The work wrote nothing, or only in transactions that rolled back
+            boolean[] claimed = processedEventRepository.claim(List.copyOf(claim.eventIds),
+                    System.currentTimeMillis());
+            claim.claimed(claimed);
+        }
+    }
+
+    private static boolean isClaimedElsewhere(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ClaimedElsewhereException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Start a new filter once the current one covers a whole retention period, and forget IDs older than the window.
+     * The two filters together always cover at least the window, so every ID still in the table is in one of them.
+     */
+    private void prune() {
+        try {
+            long now = System.currentTimeMillis();
+            if (now - currentSince >= retention.toMillis()) {
+                previous = current;
+                current = new BloomFilter(expectedEvents, falsePositiveRate);
+                currentSince = now;
+            }
+            int removed = processedEventRepository.deleteBefore(now - retention.toMillis());
+            if (removed > 0) {
+                log.debug("Removed {} processed event IDs older than {}", removed, retention);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not prune processed event IDs", e);
+        }
+    }
+
+    /**
+     * Attaches the claims of the work running on a thread to the first write transaction it begins.
+     * Spring Boot registers it with the transaction manager.
+     */
+    @Component
+    static class ClaimOnCommit implements TransactionExecutionListener {
+
+        @Override
+        public void afterBegin(TransactionExecution transaction, Throwable beginFailure) {
+            PendingClaim pending = PENDING.get();
+            if (pending == null || beginFailure != null || transaction.isReadOnly() || pending.attached
+                    || pending.committed || !TransactionSynchronizationManager.isSynchronizationActive()) {
+                return;
+            }
+            pending.attached = true;
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+    }
+
+    /**
+     * IDs to claim for one run of the work, written as the last thing before its transaction commits
+     */
+    private static final class PendingClaim implements TransactionSynchronization {
+
+        private final ProcessedEventStore store;
+        private final Set<String> eventIds;
+        private boolean attached;
+        private boolean committed;
+
+        PendingClaim(ProcessedEventStore store, Set<String> eventIds) {
+            this.store = store;
+            this.eventIds = eventIds;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (eventIds.isEmpty()) {
+                return;
+            }
+            List<String> ids = List.copyOf(eventIds);
+            boolean[] claimed = store.processedEventRepository.claim(ids, System.currentTimeMillis());
+            Set<String> elsewhere = new HashSet<>();
+            for (int i = 0; i < claimed.length; i++) {
+                if (!claimed[i]) {
+                    elsewhere.add(ids.get(i));
+                }
+            }
+            if (!elsewhere.isEmpty()) {
+                // Roll the work back; it runs again without these items, which the filter now lets through to the table
+                elsewhere.forEach(store.current::put);
+                throw new ClaimedElsewhereException(elsewhere);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            attached = false;
+            if (status == STATUS_COMMITTED) {
+                committed = true;
+                eventIds.forEach(store.current::put);
+            }
+        }
+
+        void claimed(boolean[] claimed) {
+            List<String> ids = List.copyOf(eventIds);
+            for (int i = 0; i < claimed.length; i++) {
+                if (claimed[i]) {
+                    store.current.put(ids.get(i));
+                } else {
+                    log.warn("Event {} was processed here and by another consumer", ids.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Thrown to roll back work whose events another consumer claimed first
+     */
+    private static final class ClaimedElsewhereException extends RuntimeException {
+        ClaimedElsewhereException(Set<String> eventIds) {
+            super("Already claimed: " + eventIds);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.messaging.listener;
+
+import com.example.messaging.EventEnvelope;
+import com.example.messaging.idempotency.ProcessedEventStore;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.AcknowledgingConsumerAwareMessageListener;
+import org.springframework.kafka.listener.BatchAcknowledgingConsumerAwareMessageListener;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.List;
+
+/**
+ * Skips records whose {@value EventEnvelope#EVENT_ID_HEADER} header names an event this service already processed.
+ * The event ID is claimed in the listener's own write transaction, see {@link ProcessedEventStore}.
+ * Records without the header are always passed on.
+ */
+@Slf4j
+public class IdempotentMessageListener<K, V> implements AcknowledgingConsumerAwareMessageListener<K, V> {
+
+    private final AcknowledgingConsumerAwareMessageListener<K, V> delegate;
+    private final ProcessedEventStore processedEventStore;
+
+    public IdempotentMessageListener(AcknowledgingConsumerAwareMessageListener<K, V> delegate,
+            ProcessedEventStore processedEventStore) {
+        this.delegate = delegate;
+        this.processedEventStore = processedEventStore;
+    }
+
+    /**
+     * Wrap the record or batch listener of a container created by a listener container factory.
+     * Install before {@link KeyOrderedMessageListener} so the check runs on the lanes, in key order.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> void install(AbstractMessageListenerContainer<K, V> container,
+            ProcessedEventStore processedEventStore) {
+        Object listener = container.getContainerProperties().getMessageListener();
+        if (listener instanceof AcknowledgingConsumerAwareMessageListener) {
+            container.setupMessageListener(new IdempotentMessageListener<>(
+                    (AcknowledgingConsumerAwareMessageListener<K, V>) listener, processedEventStore));
+        } else if (listener instanceof BatchAcknowledgingConsumerAwareMessageListener) {
+            container.setupMessageListener(new Batch<>(
+                    (BatchAcknowledgingConsumerAwareMessageListener<K, V>) listener, processedEventStore));
+        } else {
+            throw new IllegalStateException("Cannot skip processed events for listener " + listener);
+        }
+    }
+
+    @Override
+    public void onMessage(ConsumerRecord<K, V> record, Acknowledgment acknowledgment, Consumer<?, ?> consumer) {
+        List<ConsumerRecord<K, V>> processed = processedEventStore.process(List.of(record),
+                IdempotentMessageListener::eventId, records -> delegate.onMessage(record, acknowledgment, consumer));
+        if (processed.isEmpty()) {
+            log.info("Skipping already processed event {} at {}-{}@{}", eventId(record), record.topic(),
+                    record.partition(), record.offset());
+        }
+    }
+
+    static String eventId(ConsumerRecord<?, ?> record) {
+        return EventEnvelope.header(record, EventEnvelope.EVENT_ID_HEADER);
+    }
+
+    /**
+     * The same for batch listeners: duplicates are removed from the batch before it is handed on
+     */
+    public static class Batch<K, V> implements BatchAcknowledgingConsumerAwareMessageListener<K, V> {
+
+        private final BatchAcknowledgingConsumerAwareMessageListener<K, V> delegate;
+        private final ProcessedEventStore processedEventStore;
+
+        public Batch(BatchAcknowledgingConsumerAwareMessageListener<K, V> delegate,
+                ProcessedEventStore processedEventStore) {
+            this.delegate = delegate;
+            this.processedEventStore = processedEventStore;
+        }
+
+        @Override
+        public void onMessage(List<ConsumerRecord<K, V>> records, Acknowledgment acknowledgment, Consumer<?, ?> consumer) {
+            List<ConsumerRecord<K, V>> processed = processedEventStore.process(records,
+                    IdempotentMessageListener::eventId, fresh -> delegate.onMessage(fresh, acknowledgment, consumer));
+            if (processed.size() < records.size()) {
+                log.info("Skipped {} of {} records of already processed events", records.size() - processed.size(),
+                        records.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.messaging.listener;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed number of worker lanes, each a single thread with a bounded queue.
+ * Tasks with equal keys always go to the same lane, so they run one at a time in submission order; tasks with
+ * different keys usually run in parallel. Submitting to a full lane blocks, which slows down the submitter instead
+ * of queueing without limit.
+ */
+@Slf4j
+public class KeyOrderedExecutor implements AutoCloseable {
+
+    private static final Runnable STOP = () -> {
+    };
+
+    private final BlockingQueue<Runnable>[] queues;
+    private final Thread[] lanes;
+
+    @SuppressWarnings("unchecked")
+    public KeyOrderedExecutor(String name, int laneCount, int laneCapacity) {
+        this.queues = new BlockingQueue[laneCount];
+        this.lanes = new Thread[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(laneCapacity);
+            queues[i] = queue;
+            lanes[i] = new Thread(() -> runLane(queue), name + "-" + i);
+            lanes[i].setDaemon(true);
+            lanes[i].start();
+        }
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Queue a task on the lane of its key, waiting while that lane is full
+     */
+    public void execute(Object key, Runnable task) throws InterruptedException {
+        queues[Math.floorMod(key.hashCode(), queues.length)].put(task);
+    }
+
+    /**
+     * Let every lane finish its queued tasks, for at most 10 seconds in total
+     */
+    @Override
+    public void close() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        try {
+            for (BlockingQueue<Runnable> queue : queues) {
+                queue.put(STOP);
+            }
+            for (Thread lane : lanes) {
+                lane.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+                lane.interrupt();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void runLane(BlockingQueue<Runnable> queue) {
+        while (true) {
+            Runnable task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (task == STOP) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Unhandled error in listener lane", e);
+            }
+        }
+    }
+}
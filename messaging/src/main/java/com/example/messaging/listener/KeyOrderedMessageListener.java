@@ -0,0 +1,224 @@
+package com.example.messaging.listener;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.AcknowledgingConsumerAwareMessageListener;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Runs a record listener on the lanes of a {@link KeyOrderedExecutor} instead of the consumer thread.
+ * <p>
+ * Records are assigned to a lane by key, falling back to their partition, so records with the same key are handled
+ * one at a time in offset order while a slow record only holds up the keys sharing its lane. Each partition's offset
+ * is acknowledged only up to the lowest record still queued or running, so a restart redelivers unfinished records
+ * and never skips one. The container must use {@code AckMode.MANUAL}.
+ * <p>
+ * A record that still fails after {@code maxAttempts}, or fails in a way retrying cannot fix, is passed to the
+ * recoverer, which moves it to a retry topic; without a recoverer it is logged and skipped. If the recoverer fails,
+ * the container is stopped: no later offset of the partition could be acknowledged, so the record is redelivered
+ * to the partition's next owner instead. A record interrupted between attempts, when the lanes shut down, is left
+ * unacknowledged as well.
+ * When partitions are revoked, their in-flight records get up to {@code drainTimeout} to finish before the final
+ * commit; anything still running after that is redelivered to the new owner.
+ */
+@Slf4j
+public class KeyOrderedMessageListener<K, V>
+        implements AcknowledgingConsumerAwareMessageListener<K, V>, ConsumerAwareRebalanceListener {
+
+    private final AbstractMessageListenerContainer<K, V> container;
+    private final AcknowledgingConsumerAwareMessageListener<K, V> delegate;
+    private final KeyOrderedExecutor lanes;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration drainTimeout;
+    private final Predicate<Throwable> retryable;
+    private final ConsumerRecordRecoverer recoverer;
+    private final Map<TopicPartition, PartitionProgress> progress = new ConcurrentHashMap<>();
+
+    public KeyOrderedMessageListener(AbstractMessageListenerContainer<K, V> container,
+            AcknowledgingConsumerAwareMessageListener<K, V> delegate, KeyOrderedExecutor lanes, int maxAttempts,
+            Duration retryBackoff, Duration drainTimeout, Predicate<Throwable> retryable,
+            ConsumerRecordRecoverer recoverer) {
+        this.container = container;
+        this.delegate = delegate;
+        this.lanes = lanes;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.drainTimeout = drainTimeout;
+        this.retryable = retryable;
+        this.recoverer = recoverer;
+    }
+
+    /**
+     * Wrap the record listener of a container created by a listener container factory
+     * @param retryable Whether another attempt could fix a failure
+     * @param recoverer Handles records that failed every attempt; null to log and skip them
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> void install(AbstractMessageListenerContainer<K, V> container, KeyOrderedExecutor lanes,
+            int maxAttempts, Duration retryBackoff, Duration drainTimeout, Predicate<Throwable> retryable,
+            ConsumerRecordRecoverer recoverer) {
+        Object listener = container.getContainerProperties().getMessageListener();
+        if (!(listener instanceof AcknowledgingConsumerAwareMessageListener)) {
+            throw new IllegalStateException("Key ordered lanes need a record listener, got " + listener);
+        }
+        KeyOrderedMessageListener<K, V> keyOrdered = new KeyOrderedMessageListener<>(container,
+                (AcknowledgingConsumerAwareMessageListener<K, V>) listener, lanes, maxAttempts, retryBackoff, drainTimeout,
+                retryable, recoverer);
+        container.setupMessageListener(keyOrdered);
+        container.getContainerProperties().setConsumerRebalanceListener(keyOrdered);
+    }
+
+    @Override
+    public void onMessage(ConsumerRecord<K, V> record, Acknowledgment acknowledgment, Consumer<?, ?> consumer) {
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        PartitionProgress partitionProgress = progress.computeIfAbsent(partition, p -> new PartitionProgress());
+        partitionProgress.started(record.offset(), acknowledgment);
+        try {
+            lanes.execute(record.key() != null ? record.key() : partition, () -> {
+                try {
+                    handle(record);
+                } catch (InterruptedException e) {
+                    // The lanes are shutting down; the record is redelivered
+                    Thread.currentThread().interrupt();
+                    log.info("Record {}@{} was interrupted and is left unacknowledged", partition, record.offset());
+                    return;
+                } catch (RuntimeException e) {
+                    stopContainer(partition, record.offset(), e);
+                    return;
+                }
+                partitionProgress.finished(record.offset());
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing record " + partition + "@" + record.offset(), e);
+        }
+    }
+
+    /**
+     * Run the record through the delegate until it succeeds or the recoverer takes it
+     * @throws InterruptedException If interrupted while waiting for the next attempt
+     * @throws RuntimeException If the recoverer could not take the record
+     */
+    private void handle(ConsumerRecord<K, V> record) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                // The consumer belongs to the consumer thread and the offset is acknowledged by this class
+                delegate.onMessage(record, null, null);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !retryable.test(e)) {
+                    recover(record, attempt, e);
+                    return;
+                }
+                log.warn("Attempt {} of {} failed for record {}-{}@{}: {}", attempt, maxAttempts, record.topic(),
+                        record.partition(), record.offset(), e.getMessage());
+                Thread.sleep(retryBackoff.toMillis());
+            }
+        }
+    }
+
+    private void recover(ConsumerRecord<K, V> record, int attempts, RuntimeException e) {
+        if (recoverer == null) {
+            log.error("Skipping record {}-{}@{} after {} attempts", record.topic(), record.partition(),
+                    record.offset(), attempts, e);
+            return;
+        }
+        // Throws if the record cannot be moved on
+        recoverer.accept(record, e);
+    }
+
+    /**
+     * Stop consuming after a record could be neither finished nor moved on. Its offset would hold back every later
+     * acknowledgement of the partition, so the partition's next owner gets it again from there.
+     */
+    private void stopContainer(TopicPartition partition, long offset, RuntimeException e) {
+        log.error("Could not move record {}@{} on; stopping listener container {} so it is redelivered",
+                partition, offset, container.getListenerId(), e);
+        if (container.isRunning()) {
+            // Asynchronous: stopping waits up to drainTimeout for the partition to drain, which this record never will
+            container.stop(() -> log.warn("Stopped listener container {}", container.getListenerId()));
+        }
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        for (TopicPartition partition : partitions) {
+            PartitionProgress partitionProgress = progress.remove(partition);
+            if (partitionProgress != null && !partitionProgress.awaitDrained(deadline)) {
+                log.warn("Records of {} were still running when it was revoked; they will be redelivered", partition);
+            }
+        }
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        partitions.forEach(progress::remove);
+    }
+
+    /**
+     * Offsets of a partition that were handed to the lanes and not acknowledged yet
+     */
+    private static final class PartitionProgress {
+
+        // Offset -> whether the record is finished, in offset order
+        private final TreeMap<Long, Boolean> inFlight = new TreeMap<>();
+        private final Map<Long, Acknowledgment> acknowledgments = new TreeMap<>();
+
+        synchronized void started(long offset, Acknowledgment acknowledgment) {
+            inFlight.put(offset, false);
+            acknowledgments.put(offset, acknowledgment);
+        }
+
+        /**
+         * Mark a record finished and acknowledge the finished records that no unfinished record precedes
+         */
+        synchronized void finished(long offset) {
+            if (!inFlight.containsKey(offset)) {
+                return;
+            }
+            inFlight.put(offset, true);
+            Acknowledgment last = null;
+            while (!inFlight.isEmpty() && inFlight.firstEntry().getValue()) {
+                last = acknowledgments.remove(inFlight.pollFirstEntry().getKey());
+            }
+            if (last != null) {
+                last.acknowledge();
+                if (inFlight.isEmpty()) {
+                    notifyAll();
+                }
+            }
+        }
+
+        synchronized boolean awaitDrained(long deadline) {
+            long remaining;
+            while (!inFlight.isEmpty() && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            boolean drained = inFlight.isEmpty();
+            // Late completions must not acknowledge offsets of a partition this consumer no longer owns
+            inFlight.clear();
+            acknowledgments.clear();
+            return drained;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.messaging.outbox;
+
+/**
+ * Chooses what decides the Kafka partition of a published event.
+ * Events with the same partition key land on the same partition and are consumed in the order they were published.
+ * Without one, events are partitioned by their record key.
+ */
+public interface EventPartitioner {
+
+    /**
+     * @param topic Topic the event is published to
+     * @param key Record key, the document ID for document events
+     * @param event The event before serialization
+     * @return The partition key, or the record key to use Kafka's default partitioning
+     */
+    String partitionKey(String topic, String key, Object event);
+}
@@ -0,0 +1,183 @@
+package com.example.messaging.outbox;
+
+import com.example.messaging.EventEnvelope;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the events stored in the outbox table to Kafka, oldest first, and removes them once acknowledged.
+ * <p>
+ * A single thread drains the table in batches: every record of a batch is handed to the producer before waiting
+ * for any acknowledgement, so the producer packs them into compressed batches per partition. The thread is woken
+ * when a transaction that wrote events commits, and polls the table otherwise so events left over by a crash or a
+ * broker outage are sent as well.
+ * <p>
+ * Each record carries the {@link EventEnvelope} headers: its outbox event id, the event type and version when the
+ * payload has them, the format of binary payloads, and this service as their origin. An event is only sent again if
+ * the service stops between the acknowledgement and the delete; consumers can recognise the copy by that id.
+ */
+@Component
+@Slf4j
+public class OutboxRelay implements SmartLifecycle {
+
+    private final OutboxRepository outboxRepository;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration maxDelay;
+    private final Duration sendTimeout;
+    private final byte[] origin;
+
+    private final Semaphore wakeUps = new Semaphore(0);
+    private volatile boolean running;
+    private Thread relay;
+
+    public OutboxRelay(OutboxRepository outboxRepository,
+            @Qualifier("outboxKafkaTemplate") KafkaTemplate<String, byte[]> kafkaTemplate,
+            @Value("${outbox.batch-size:500}") int batchSize,
+            @Value("${outbox.poll-interval:1s}") Duration pollInterval,
+            @Value("${outbox.max-delay:10ms}") Duration maxDelay,
+            @Value("${outbox.send-timeout:30s}") Duration sendTimeout,
+            @Value("${spring.application.name}") String origin) {
+        this.outboxRepository = outboxRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.maxDelay = maxDelay;
+        this.sendTimeout = sendTimeout;
+        this.origin = origin.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Drain the outbox now instead of at the next poll
+     */
+    public void wakeUp() {
+        wakeUps.release();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        relay = new Thread(this::relayEvents, "outbox-relay");
+        relay.setDaemon(true);
+        relay.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        relay.interrupt();
+        try {
+            relay.join(sendTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void relayEvents() {
+        long pending = outboxRepository.count();
+        if (pending > 0) {
+            log.info("Relaying {} events left in the outbox", pending);
+        }
+        while (running) {
+            try {
+                // A full batch suggests more are waiting, so only sleep once the table is drained
+                if (relayBatch() < batchSize
+                        && wakeUps.tryAcquire(pollInterval.toMillis(), TimeUnit.MILLISECONDS)) {
+                    // Let the transactions committing right after this one join the same batch
+                    Thread.sleep(maxDelay.toMillis());
+                    wakeUps.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("Could not relay outbox events, retrying in {}: {}", pollInterval, e.getMessage());
+                try {
+                    Thread.sleep(pollInterval.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Send one batch and delete the events acknowledged in order, up to the first failure
+     * @return Number of events read from the outbox
+     */
+    private int relayBatch() throws Exception {
+        List<OutboxRepository.OutboxRecord> batch = outboxRepository.findBatch(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<CompletableFuture<SendResult<String, byte[]>>> sends = new ArrayList<>(batch.size());
+        for (OutboxRepository.OutboxRecord record : batch) {
+            ProducerRecord<String, byte[]> producerRecord =
+                    new ProducerRecord<>(record.topic(), partition(record), record.key(), record.payload());
+            producerRecord.headers().add(EventEnvelope.EVENT_ID_HEADER,
+                    record.eventId().getBytes(StandardCharsets.UTF_8));
+            if (record.eventType() != null) {
+                producerRecord.headers().add(EventEnvelope.EVENT_TYPE_HEADER,
+                        record.eventType().getBytes(StandardCharsets.UTF_8));
+                producerRecord.headers().add(EventEnvelope.EVENT_VERSION_HEADER,
+                        String.valueOf(record.eventVersion()).getBytes(StandardCharsets.UTF_8));
+            }
+            producerRecord.headers().add(EventEnvelope.EVENT_ORIGIN_HEADER, origin);
+            if (record.format() != null) {
+                producerRecord.headers().add(EventEnvelope.EVENT_FORMAT_HEADER,
+                        record.format().getBytes(StandardCharsets.UTF_8));
+            }
+            sends.add(kafkaTemplate.send(producerRecord));
+        }
+        // The whole batch is queued, so there is nothing left to linger for
+        kafkaTemplate.flush();
+
+        List<Long> sent = new ArrayList<>(batch.size());
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                sends.get(i).get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                sent.add(batch.get(i).id());
+            }
+        } finally {
+            if (!sent.isEmpty()) {
+                outboxRepository.delete(sent);
+            }
+        }
+        log.debug("Relayed {} outbox events", sent.size());
+        return batch.size();
+    }
+
+    /**
+     * Partition for an event with its own partition key, hashed the way Kafka hashes record keys;
+     * null lets the producer partition by record key
+     */
+    private Integer partition(OutboxRepository.OutboxRecord record) {
+        if (record.partitionKey() == null) {
+            return null;
+        }
+        int partitions = kafkaTemplate.partitionsFor(record.topic()).size();
+        return Utils.toPositive(Utils.murmur2(record.partitionKey().getBytes(StandardCharsets.UTF_8))) % partitions;
+    }
+}
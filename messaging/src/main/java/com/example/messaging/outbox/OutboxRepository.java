@@ -0,0 +1,94 @@
+package com.example.messaging.outbox;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Kafka events waiting to be published, written in the same transaction as the change they announce.
+ * Ids only grow, so reading in id order replays events in commit order.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OutboxRepository {
+
+    private static final String INSERT = "INSERT INTO outbox_events(event_id, topic, event_key, partition_key, "
+            + "event_type, event_version, event_format, payload, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * An event as stored in the outbox; the payload is the serialized value, JSON unless a format is given.
+     * The partition key is only set when the partition is chosen by something other than the record key.
+     * Event type and version are null for payloads that are not annotated as events.
+     */
+    public record OutboxRecord(long id, String eventId, String topic, String key, String partitionKey,
+            String eventType, Integer eventVersion, String format, byte[] payload, long createdAt) {
+    }
+
+    @PostConstruct
+    public void createSchema() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS outbox_events ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT, event_id TEXT NOT NULL, topic TEXT NOT NULL, "
+                + "event_key TEXT, partition_key TEXT, payload BLOB NOT NULL, created_at INTEGER NOT NULL)");
+        // Outboxes created before events had a partition key, type, version and format. Their payload column is
+        // TEXT, which holds binary payloads as they are, since SQLite only converts numbers to text.
+        List<String> columns = jdbcTemplate.queryForList("SELECT name FROM pragma_table_info('outbox_events')",
+                String.class);
+        if (!columns.contains("partition_key")) {
+            jdbcTemplate.execute("ALTER TABLE outbox_events ADD COLUMN partition_key TEXT");
+        }
+        if (!columns.contains("event_type")) {
+            jdbcTemplate.execute("ALTER TABLE outbox_events ADD COLUMN event_type TEXT");
+            jdbcTemplate.execute("ALTER TABLE outbox_events ADD COLUMN event_version INTEGER");
+        }
+        if (!columns.contains("event_format")) {
+            jdbcTemplate.execute("ALTER TABLE outbox_events ADD COLUMN event_format TEXT");
+        }
+    }
+
+    /**
+     * Append events in the caller's transaction
+     */
+    public void append(List<OutboxRecord> records) {
+        jdbcTemplate.batchUpdate(INSERT, records.stream()
+                .map(record -> new Object[] {record.eventId(), record.topic(), record.key(), record.partitionKey(),
+                        record.eventType(), record.eventVersion(), record.format(), record.payload(),
+                        record.createdAt()})
+                .toList());
+    }
+
+    /**
+     * The oldest pending events, in the order they were written
+     */
+    @Transactional(readOnly = true)
+    public List<OutboxRecord> findBatch(int limit) {
+        return jdbcTemplate.query("SELECT id, event_id, topic, event_key, partition_key, event_type, event_version, "
+                        + "event_format, payload, created_at FROM outbox_events ORDER BY id LIMIT ?",
+                (rs, rowNum) -> new OutboxRecord(rs.getLong("id"), rs.getString("event_id"), rs.getString("topic"),
+                        rs.getString("event_key"), rs.getString("partition_key"), rs.getString("event_type"),
+                        rs.getObject("event_version", Integer.class), rs.getString("event_format"),
+                        rs.getBytes("payload"), rs.getLong("created_at")),
+                limit);
+    }
+
+    /**
+     * Remove events once the broker has acknowledged them
+     */
+    @Transactional
+    public void delete(Collection<Long> ids) {
+        jdbcTemplate.batchUpdate("DELETE FROM outbox_events WHERE id = ?",
+                ids.stream().map(id -> new Object[] {id}).toList());
+    }
+
+    @Transactional(readOnly = true)
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events", Long.class);
+        return count != null ? count : 0;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.messaging.outbox;
+
+import com.example.events.KafkaEvent;
+import com.example.events.codec.EventCodecs;
+import com.example.messaging.EventEnvelope;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.JacksonUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Publishes Kafka events through the outbox table.
+ * Events are stored in the caller's transaction, so they exist exactly when the change they describe was committed;
+ * {@link OutboxRelay} sends them once the transaction commits.
+ * <p>
+ * Events with a shared codec are written in its binary form, see {@link EventCodecs}, others as JSON. Topics read by
+ * consumers that only understand JSON, listed in {@code events.json-topics}, stay JSON.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    // Same mapper as the JsonSerializer used to send events directly, so the payloads are unchanged on the wire
+    private static final ObjectMapper EVENT_MAPPER = JacksonUtils.enhancedObjectMapper();
+
+    private final OutboxRepository outboxRepository;
+    private final OutboxRelay outboxRelay;
+    // Optional; events are partitioned by record key without one
+    private final ObjectProvider<EventPartitioner> eventPartitioner;
+
+    // binary, or json to write every event as JSON, e.g. until all consumers read the binary form
+    @Value("${events.format:binary}")
+    private String format;
+
+    @Value("${events.json-topics:}")
+    private Set<String> jsonTopics;
+
+    /**
+     * An event to publish: topic, optional record key and the value to serialize
+     */
+    public record Event(String topic, String key, Object value) {
+    }
+
+    @Transactional
+    public void publish(String topic, String key, Object value) {
+        publishAll(List.of(new Event(topic, key, value)));
+    }
+
+    /**
+     * Store the events in the caller's transaction; they are published in the given order
+     */
+    @Transactional
+    public void publishAll(List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        outboxRepository.append(events.stream()
+                .map(event -> {
+                    KafkaEvent type = EventEnvelope.typeOf(event.value().getClass());
+                    boolean binary = isBinary(event);
+                    return new OutboxRepository.OutboxRecord(0, UUID.randomUUID().toString(), event.topic(),
+                            event.key(), partitionKey(event), type != null ? type.type() : null,
+                            type != null ? type.version() : null, binary ? EventEnvelope.BINARY_FORMAT : null,
+                            binary ? EventCodecs.encode(event.value()) : serialize(event.value()), now);
+                })
+                .toList());
+        wakeRelayAfterCommit();
+    }
+
+    private boolean isBinary(Event event) {
+        return EventEnvelope.BINARY_FORMAT.equals(format) && !jsonTopics.contains(event.topic())
+                && EventCodecs.supports(event.value().getClass());
+    }
+
+    /**
+     * The partition key if the partitioner picks something other than the record key, which Kafka uses by default
+     */
+    private String partitionKey(Event event) {
+        EventPartitioner partitioner = eventPartitioner.getIfAvailable();
+        if (partitioner == null) {
+            return null;
+        }
+        String partitionKey = partitioner.partitionKey(event.topic(), event.key(), event.value());
+        return Objects.equals(partitionKey, event.key()) ? null : partitionKey;
+    }
+
+    private void wakeRelayAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            outboxRelay.wakeUp();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outboxRelay.wakeUp();
+            }
+        });
+    }
+
+    private static byte[] serialize(Object value) {
+        try {
+            return EVENT_MAPPER.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Event cannot be serialized: " + value.getClass().getName(), e);
+        }
+    }
+}
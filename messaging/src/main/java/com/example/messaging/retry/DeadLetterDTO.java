@@ -0,0 +1,28 @@
+package com.example.messaging.retry;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A record on a dead-letter topic that was not replayed yet, with the failure that put it there
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeadLetterDTO {
+    private String topic;
+    private int partition;
+    private long offset;
+    private String key;
+    private String eventId;
+    private LocalDateTime deadLetteredAt;
+    private String failedTopic; // The topic, or retry topic, of the last failed attempt
+    private String exception;
+    private String exceptionMessage;
+    private String value; // Binary event values are shown decoded, as JSON
+}
@@ -0,0 +1,225 @@
+package com.example.messaging.retry;
+
+import com.example.events.codec.EventCodecs;
+import com.example.messaging.EventEnvelope;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Lists and replays the dead-letter topics of the topics this service consumes, see {@link RetryTopics}.
+ * <p>
+ * A replayed record is published to its original topic again, with its key, value and headers but without the
+ * dead-letter headers, so it goes through the whole retry chain once more. The offsets of replayed records are then
+ * committed for a replay consumer group, so every record is replayed once and listing shows only those still waiting.
+ * <p>
+ * Uses the service's {@code retryTopics} bean and its {@code retryKafkaTemplate}, which republishes values as they
+ * were consumed.
+ */
+@Service
+@Slf4j
+public class DeadLetterService {
+
+    private static final String DEAD_LETTER_HEADER_PREFIX = "kafka_dlt-";
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final Duration READ_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String bootstrapServers;
+    private final String replayGroupId;
+    private final RetryTopics retryTopics;
+    private final KafkaTemplate<Object, Object> retryKafkaTemplate;
+    private final ObjectMapper objectMapper;
+
+    public DeadLetterService(@Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
+            @Value("${spring.kafka.consumer.group-id}") String groupId, RetryTopics retryTopics,
+            @Qualifier("retryKafkaTemplate") KafkaTemplate<Object, Object> retryKafkaTemplate,
+            ObjectMapper objectMapper) {
+        this.bootstrapServers = bootstrapServers;
+        this.replayGroupId = groupId + "-dlt-replay";
+        this.retryTopics = retryTopics;
+        this.retryKafkaTemplate = retryKafkaTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * The oldest records of a topic's dead-letter topic that were not replayed yet
+     * @param topic A topic this service consumes
+     * @throws IllegalArgumentException If the topic has no dead-letter topic
+     */
+    public List<DeadLetterDTO> list(String topic, int limit) {
+        try (KafkaConsumer<byte[], byte[]> consumer = createConsumer()) {
+            return pending(consumer, deadLetterTopicOf(topic), limit).stream()
+                    .map(this::toDTO)
+                    .toList();
+        }
+    }
+
+    /**
+     * Publish the oldest records of a topic's dead-letter topic that were not replayed yet to the topic again
+     * @param topic A topic this service consumes
+     * @return Number of records replayed
+     * @throws IllegalArgumentException If the topic has no dead-letter topic
+     */
+    public synchronized int replay(String topic, int limit) {
+        String deadLetterTopic = deadLetterTopicOf(topic);
+        try (KafkaConsumer<byte[], byte[]> consumer = createConsumer()) {
+            List<ConsumerRecord<byte[], byte[]>> records = pending(consumer, deadLetterTopic, limit);
+            if (records.isEmpty()) {
+                return 0;
+            }
+            List<CompletableFuture<?>> sends = new ArrayList<>(records.size());
+            Map<TopicPartition, OffsetAndMetadata> replayed = new HashMap<>();
+            for (ConsumerRecord<byte[], byte[]> record : records) {
+                sends.add(retryKafkaTemplate.send(new ProducerRecord<>(topic, null, record.key(), record.value(),
+                        withoutDeadLetterHeaders(record))));
+                replayed.put(new TopicPartition(record.topic(), record.partition()),
+                        new OffsetAndMetadata(record.offset() + 1));
+            }
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(READ_TIMEOUT.toMillis(),
+                    TimeUnit.MILLISECONDS);
+            consumer.commitSync(replayed);
+            log.info("Replayed {} records from {} to {}", records.size(), deadLetterTopic, topic);
+            return records.size();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while replaying " + deadLetterTopic, e);
+        } catch (ExecutionException | TimeoutException e) {
+            // Nothing was committed, so the records stay on the dead-letter topic and a replay may send them twice
+            throw new IllegalStateException("Could not replay " + deadLetterTopic + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Whether a topic has a dead-letter topic
+     */
+    public boolean hasDeadLetterTopic(String topic) {
+        return retryTopics.isRetried(topic);
+    }
+
+    private String deadLetterTopicOf(String topic) {
+        if (!hasDeadLetterTopic(topic)) {
+            throw new IllegalArgumentException("No dead-letter topic for " + topic + ", expected one of "
+                    + retryTopics.topics());
+        }
+        return RetryTopics.deadLetterTopic(topic);
+    }
+
+    /**
+     * Read from the replay group's committed offsets up to the end of each partition as of now
+     */
+    private List<ConsumerRecord<byte[], byte[]>> pending(KafkaConsumer<byte[], byte[]> consumer,
+            String deadLetterTopic, int limit) {
+        List<TopicPartition> partitions = consumer.partitionsFor(deadLetterTopic).stream()
+                .map(info -> new TopicPartition(deadLetterTopic, info.partition()))
+                .toList();
+        consumer.assign(partitions);
+        Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+        for (TopicPartition partition : partitions) {
+            OffsetAndMetadata offset = committed.get(partition);
+            if (offset != null) {
+                consumer.seek(partition, offset.offset());
+            } else {
+                consumer.seekToBeginning(List.of(partition));
+            }
+        }
+
+        List<ConsumerRecord<byte[], byte[]>> records = new ArrayList<>();
+        long deadline = System.nanoTime() + READ_TIMEOUT.toNanos();
+        while (records.size() < limit && System.nanoTime() < deadline
+                && partitions.stream().anyMatch(partition -> consumer.position(partition) < endOffsets.get(partition))) {
+            for (ConsumerRecord<byte[], byte[]> record : consumer.poll(POLL_TIMEOUT)) {
+                // Records of a partition come in offset order, so the ones taken are a prefix of each partition
+                if (records.size() < limit
+                        && record.offset() < endOffsets.get(new TopicPartition(record.topic(), record.partition()))) {
+                    records.add(record);
+                }
+            }
+        }
+        return records;
+    }
+
+    private KafkaConsumer<byte[], byte[]> createConsumer() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, replayGroupId);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        return new KafkaConsumer<>(props, new ByteArrayDeserializer(), new ByteArrayDeserializer());
+    }
+
+    private static RecordHeaders withoutDeadLetterHeaders(ConsumerRecord<byte[], byte[]> record) {
+        RecordHeaders headers = new RecordHeaders();
+        for (Header header : record.headers()) {
+            if (!header.key().startsWith(DEAD_LETTER_HEADER_PREFIX)) {
+                headers.add(header);
+            }
+        }
+        return headers;
+    }
+
+    private DeadLetterDTO toDTO(ConsumerRecord<byte[], byte[]> record) {
+        return DeadLetterDTO.builder()
+                .topic(record.topic())
+                .partition(record.partition())
+                .offset(record.offset())
+                .key(text(record.key()))
+                .eventId(EventEnvelope.header(record, EventEnvelope.EVENT_ID_HEADER))
+                .deadLetteredAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timestamp()), ZoneId.systemDefault()))
+                .failedTopic(EventEnvelope.header(record, KafkaHeaders.DLT_ORIGINAL_TOPIC))
+                .exception(EventEnvelope.header(record, KafkaHeaders.DLT_EXCEPTION_FQCN))
+                .exceptionMessage(EventEnvelope.header(record, KafkaHeaders.DLT_EXCEPTION_MESSAGE))
+                .value(valueText(record))
+                .build();
+    }
+
+    /**
+     * JSON values as they are, binary ones decoded and shown as JSON, or in Base64 if they cannot be decoded
+     */
+    private String valueText(ConsumerRecord<byte[], byte[]> record) {
+        if (record.value() == null || !EventEnvelope.isBinary(record)) {
+            return text(record.value());
+        }
+        try {
+            return objectMapper.writeValueAsString(EventCodecs.decode(
+                    EventEnvelope.header(record, EventEnvelope.EVENT_TYPE_HEADER),
+                    Integer.parseInt(EventEnvelope.header(record, EventEnvelope.EVENT_VERSION_HEADER)),
+                    record.value()));
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            return Base64.getEncoder().encodeToString(record.value());
+        }
+    }
+
+    private static String text(byte[] bytes) {
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.messaging.retry;
+
+import com.example.messaging.listener.KeyOrderedMessageListener;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.AcknowledgingConsumerAwareMessageListener;
+import org.springframework.kafka.listener.KafkaBackoffException;
+import org.springframework.kafka.listener.ListenerContainerPauseService;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+
+/**
+ * Holds back the records of retry topics until their topic's delay since they were published has passed, see
+ * {@link RetryTopics}. It runs on the consumer thread: a record that is not due pauses its partition until it is and
+ * is handed to the error handler as a {@link KafkaBackoffException}, which seeks back to it without counting an
+ * attempt. Records of a retry topic partition are published in order with the same delay, so the ones behind it are
+ * not due either. All other partitions keep being consumed.
+ */
+public class RetryTopicDelayListener<K, V> implements AcknowledgingConsumerAwareMessageListener<K, V> {
+
+    private final AcknowledgingConsumerAwareMessageListener<K, V> delegate;
+    private final AbstractMessageListenerContainer<K, V> container;
+    private final RetryTopics retryTopics;
+    private final ListenerContainerPauseService pauseService;
+
+    public RetryTopicDelayListener(AcknowledgingConsumerAwareMessageListener<K, V> delegate,
+            AbstractMessageListenerContainer<K, V> container, RetryTopics retryTopics,
+            ListenerContainerPauseService pauseService) {
+        this.delegate = delegate;
+        this.container = container;
+        this.retryTopics = retryTopics;
+        this.pauseService = pauseService;
+    }
+
+    /**
+     * Wrap the record listener of a container created by a listener container factory.
+     * Install last, around {@link KeyOrderedMessageListener}, so records are held back before they reach the lanes.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> void install(AbstractMessageListenerContainer<K, V> container, RetryTopics retryTopics,
+            ListenerContainerPauseService pauseService) {
+        Object listener = container.getContainerProperties().getMessageListener();
+        if (!(listener instanceof AcknowledgingConsumerAwareMessageListener)) {
+            throw new IllegalStateException("Retry topics need a record listener, got " + listener);
+        }
+        container.setupMessageListener(new RetryTopicDelayListener<>(
+                (AcknowledgingConsumerAwareMessageListener<K, V>) listener, container, retryTopics, pauseService));
+    }
+
+    @Override
+    public void onMessage(ConsumerRecord<K, V> record, Acknowledgment acknowledgment, Consumer<?, ?> consumer) {
+        long due = record.timestamp() + retryTopics.delayOf(record.topic()).toMillis();
+        long wait = due - System.currentTimeMillis();
+        if (wait > 0) {
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            pauseService.pausePartition(container, partition, Duration.ofMillis(wait));
+            throw new KafkaBackoffException("Record " + partition + "@" + record.offset() + " is due in " + wait + " ms",
+                    partition, container.getListenerId(), due);
+        }
+        delegate.onMessage(record, acknowledgment, consumer);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.messaging.retry;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.SeekUtils;
+import org.springframework.kafka.support.converter.ConversionException;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.messaging.converter.MessageConversionException;
+
+import java.util.List;
+
+/**
+ * Moves a record that failed all its attempts to the next topic of its {@link RetryTopics} chain, so the records
+ * behind it on the partition go on. Records that can never succeed, like values that cannot be read, go straight to
+ * the dead-letter topic. The record keeps its key, value and headers, so it is retried on the same terms.
+ * <p>
+ * Throws if the record cannot be published; the error handler then seeks back to it, and on the lanes it is never
+ * acknowledged, so it is not lost either way.
+ */
+@Slf4j
+public class RetryTopicRecoverer implements ConsumerRecordRecoverer {
+
+    // The exceptions the default error handler does not retry either
+    private static final List<Class<? extends Throwable>> NOT_RETRYABLE = List.of(DeserializationException.class,
+            MessageConversionException.class, ConversionException.class, ClassCastException.class);
+
+    private final RetryTopics retryTopics;
+    private final DeadLetterPublishingRecoverer publisher;
+
+    public RetryTopicRecoverer(KafkaOperations<?, ?> template, RetryTopics retryTopics) {
+        this.retryTopics = retryTopics;
+        // A negative partition leaves it to the producer, so the record key picks it as for the original
+        this.publisher = new DeadLetterPublishingRecoverer(template,
+                (record, exception) -> new TopicPartition(destination(record, exception), -1));
+    }
+
+    @Override
+    public void accept(ConsumerRecord<?, ?> record, Exception exception) {
+        // A retry record that is not due yet did not fail; the error handler seeks back to it
+        if (SeekUtils.isBackoffException(exception)) {
+            throw exception instanceof RuntimeException runtime ? runtime : new KafkaException("Backoff", exception);
+        }
+        publisher.accept(record, exception);
+        log.warn("Moved record {}-{}@{} to {}: {}", record.topic(), record.partition(), record.offset(),
+                destination(record, exception), rootMessage(exception));
+    }
+
+    /**
+     * Whether a failure may go away when the record is handled again
+     */
+    public static boolean isRetryable(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            for (Class<? extends Throwable> notRetryable : NOT_RETRYABLE) {
+                if (notRetryable.isInstance(cause)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private String destination(ConsumerRecord<?, ?> record, Exception exception) {
+        return isRetryable(exception) ? retryTopics.nextTopic(record.topic()) : RetryTopics.deadLetterTopic(record.topic());
+    }
+
+    private static String rootMessage(Throwable exception) {
+        Throwable root = exception;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.messaging.retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Retry topology of the consumed topics. A record that fails on {@code <topic>} moves on to
+ * {@code <topic>-retry-0}, {@code <topic>-retry-1} and so on, each of which holds it back for a longer delay, and
+ * finally to {@code <topic>-dlt}, which nothing consumes until its records are replayed.
+ * <p>
+ * Each service defines one as the {@code retryTopics} bean, naming the topics it consumes this way.
+ */
+public class RetryTopics {
+
+    public static final String RETRY_SUFFIX = "-retry-";
+    public static final String DEAD_LETTER_SUFFIX = "-dlt";
+
+    private final List<String> topics;
+    private final List<Duration> delays = new ArrayList<>();
+
+    /**
+     * @param topics The consumed topics whose failed records take this path
+     * @param attempts Number of retry topics
+     * @param delay Delay of the first retry topic
+     * @param multiplier Factor between the delays of consecutive retry topics
+     * @param maxDelay Longest delay of any retry topic
+     */
+    public RetryTopics(List<String> topics, int attempts, Duration delay, double multiplier, Duration maxDelay) {
+        this.topics = List.copyOf(topics);
+        double millis = delay.toMillis();
+        for (int i = 0; i < attempts; i++) {
+            delays.add(Duration.ofMillis(Math.min((long) millis, maxDelay.toMillis())));
+            millis *= multiplier;
+        }
+    }
+
+    /**
+     * The retry topics of the given topics, for the listeners that consume them
+     */
+    public String[] retryTopicsOf(String... topics) {
+        List<String> retryTopics = new ArrayList<>();
+        for (String topic : topics) {
+            for (int i = 0; i < delays.size(); i++) {
+                retryTopics.add(topic + RETRY_SUFFIX + i);
+            }
+        }
+        return retryTopics.toArray(String[]::new);
+    }
+
+    /**
+     * The consumed topics whose failed records take this path
+     */
+    public List<String> topics() {
+        return topics;
+    }
+
+    /**
+     * Whether failed records of a consumed topic take this path, i.e. whether it has a dead-letter topic
+     */
+    public boolean isRetried(String topic) {
+        return topics.contains(topic);
+    }
+
+    /**
+     * Retry and dead-letter topics of the consumed topics, to create them with the service
+     */
+    public List<String> topology() {
+        List<String> topology = new ArrayList<>(List.of(retryTopicsOf(topics.toArray(String[]::new))));
+        topics.forEach(topic -> topology.add(deadLetterTopic(topic)));
+        return topology;
+    }
+
+    /**
+     * The topic a record failing on the given topic goes to: the next retry topic, or the dead-letter topic after
+     * the last one
+     */
+    public String nextTopic(String topic) {
+        int next = retryIndex(topic) + 1;
+        return next < delays.size() ? baseTopic(topic) + RETRY_SUFFIX + next : deadLetterTopic(topic);
+    }
+
+    /**
+     * How long a record waits on the given topic before it is handled; zero for other than retry topics
+     */
+    public Duration delayOf(String topic) {
+        int index = retryIndex(topic);
+        return index >= 0 && index < delays.size() ? delays.get(index) : Duration.ZERO;
+    }
+
+    /**
+     * The topic a retry or dead-letter topic belongs to; other topics are returned as they are
+     */
+    public static String baseTopic(String topic) {
+        if (topic.endsWith(DEAD_LETTER_SUFFIX)) {
+            return topic.substring(0, topic.length() - DEAD_LETTER_SUFFIX.length());
+        }
+        int suffix = topic.lastIndexOf(RETRY_SUFFIX);
+        return suffix >= 0 && retryIndex(topic) >= 0 ? topic.substring(0, suffix) : topic;
+    }
+
+    public static String deadLetterTopic(String topic) {
+        return baseTopic(topic) + DEAD_LETTER_SUFFIX;
+    }
+
+    // Index of a retry topic, -1 for any other topic
+    private static int retryIndex(String topic) {
+        int suffix = topic.lastIndexOf(RETRY_SUFFIX);
+        if (suffix < 0 || suffix + RETRY_SUFFIX.length() == topic.length()) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = suffix + RETRY_SUFFIX.length(); i < topic.length(); i++) {
+            int digit = Character.digit(topic.charAt(i), 10);
+            if (digit < 0) {
+                return -1;
+            }
+            index = index * 10 + digit;
+        }
+        return index;
+    }
+}
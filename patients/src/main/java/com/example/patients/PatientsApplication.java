@@ -1,12 +1,15 @@
 package com.example.patients;
 
+import com.example.sqlite.SqliteDataSourceConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @SpringBootApplication
+@Import(SqliteDataSourceConfig.class)
 public class PatientsApplication {
 
 	public static void main(String[] args) {
@@ -1,9 +1,12 @@
 package com.example.patients.controller;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -11,10 +14,13 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.example.patients.model.Patient;
 import com.example.patients.repository.PatientRepository;
+import com.example.patients.repository.PatientRepositoryCustom;
 
 @RestController
 @RequestMapping("/patients")
@@ -23,9 +29,13 @@ public class PatientController {
     @Autowired
     private PatientRepository patientRepository;
 
+    /**
+     * List patients with only the requested columns, e.g. ?fields=firstName,lastName.
+     * Without fields the summary view is returned, which leaves out medicalNotes and img.
+     */
     @GetMapping
-    public List<Patient> getAllPatients() {
-        return patientRepository.findAll();
+    public List<Map<String, Object>> getAllPatients(@RequestParam(required = false) String fields) {
+        return patientRepository.findAllProjected(parseFields(fields));
     }
 
     @GetMapping("/{id}")
@@ -60,4 +70,22 @@ public class PatientController {
     public void deletePatient(@PathVariable Long id) {
         patientRepository.deleteById(id);
     }
+
+    private List<String> parseFields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return PatientRepositoryCustom.SUMMARY_FIELDS;
+        }
+        List<String> selected = new ArrayList<>(List.of("id"));
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty() || selected.contains(name)) {
+                continue;
+            }
+            if (!PatientRepositoryCustom.ALL_FIELDS.contains(name)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown patient field: " + name);
+            }
+            selected.add(name);
+        }
+        return selected;
+    }
 }
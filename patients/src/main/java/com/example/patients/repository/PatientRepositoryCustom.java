@@ -0,0 +1,21 @@
+package com.example.patients.repository;
+
+import java.util.List;
+import java.util.Map;
+
+public interface PatientRepositoryCustom {
+
+    // Every column a client can ask for through ?fields=
+    List<String> ALL_FIELDS = List.of(
+            "id", "firstName", "lastName", "dob", "email", "phone", "address", "medicalNotes", "condition", "img");
+
+    // Default list view: leaves out the free-text notes and the image
+    List<String> SUMMARY_FIELDS = List.of(
+            "id", "firstName", "lastName", "dob", "email", "phone", "address", "condition");
+
+    /**
+     * Select only the given columns of every patient.
+     * Each row is returned as a map keyed by field name, in the order the fields were given.
+     */
+    List<Map<String, Object>> findAllProjected(List<String> fields);
+}
@@ -0,0 +1,370 @@
+package com.example.sqlite;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The single SQLite write connection, shared by every write transaction.
+ * <p>
+ * Transactions take turns on the connection in arrival order, each inside its own savepoint, so a rollback only
+ * undoes that transaction. Released savepoints are committed together by a dedicated writer thread: one COMMIT,
+ * and one WAL sync, per group of transactions instead of one per transaction. A transaction's {@code commit()}
+ * returns once its group is durable, or throws if the group could not be committed.
+ * <p>
+ * A group is committed once {@code maxGroupSize} transactions have joined it, once the oldest one has waited
+ * {@code maxDelay}, or as soon as no other transaction is waiting for the connection, so a lone writer is never delayed.
+ * <p>
+ * Only the COMMIT runs on the writer thread: a transaction holds the connection, and every other writer waits, from
+ * its first statement until its commit. Write transactions must therefore be short, with slow work such as parsing
+ * files or calling other services done before their first statement or after their commit. Both sides are bounded:
+ * a transaction waits at most {@code lockTimeout} for the connection, and once {@link #limitTransactionTime} is set,
+ * one that has held the connection for longer is rolled back at its next statement or commit.
+ */
+@Slf4j
+public class GroupCommitDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private final Connection connection;
+    private final long maxDelayNanos;
+    private final int maxGroupSize;
+    private final long lockTimeoutNanos;
+    // Until set, e.g. during startup, a transaction may hold the connection as long as it needs
+    private volatile long maxTransactionNanos = Long.MAX_VALUE;
+
+    // Fair so transactions get the connection in the order they asked for it
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition groupJoined = lock.newCondition();
+    private final Thread writer;
+
+    // Guarded by lock
+    private boolean transactionOpen;
+    private Group group = new Group();
+    private long savepointSequence;
+    private volatile boolean running = true;
+
+    public GroupCommitDataSource(Connection connection, Duration maxDelay, int maxGroupSize, Duration lockTimeout) {
+        this.connection = connection;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.maxGroupSize = maxGroupSize;
+        this.lockTimeoutNanos = lockTimeout.toNanos();
+        this.writer = new Thread(this::commitGroups, "sqlite-group-commit");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public Connection getConnection() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, new LogicalConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) {
+        return getConnection();
+    }
+
+    /**
+     * From now on, roll back transactions that hold the connection for longer than {@code maxTransactionTime}
+     */
+    public void limitTransactionTime(Duration maxTransactionTime) {
+        maxTransactionNanos = maxTransactionTime.toNanos();
+    }
+
+    /**
+     * Commit whatever is pending and close the connection
+     */
+    @Override
+    public void close() throws SQLException {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            commitGroup();
+            connection.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writer thread: wait for released transactions, give queued ones a chance to join, then commit them together
+     */
+    private void commitGroups() {
+        while (running) {
+            lock.lock();
+            try {
+                while (group.size == 0) {
+                    groupJoined.await();
+                }
+                long deadline = group.openedAt + maxDelayNanos;
+                long remaining;
+                while (group.size < maxGroupSize && lock.hasQueuedThreads()
+                        && (remaining = deadline - System.nanoTime()) > 0) {
+                    groupJoined.awaitNanos(remaining);
+                }
+                commitGroup();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("SQLite group commit failed", e);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Caller holds lock
+    private void commitGroup() {
+        if (!transactionOpen) {
+            return;
+        }
+        Group committed = group;
+        group = new Group();
+        try {
+            execute("COMMIT");
+            transactionOpen = false;
+            committed.result.complete(null);
+        } catch (SQLException e) {
+            abortTransaction();
+            committed.result.completeExceptionally(e);
+        }
+    }
+
+    // Caller holds lock; the physical transaction is gone, so everyone waiting on the current group has lost their work
+    private void failGroup(SQLException cause) {
+        Group failed = group;
+        group = new Group();
+        abortTransaction();
+        failed.result.completeExceptionally(cause);
+    }
+
+    private void abortTransaction() {
+        try {
+            execute("ROLLBACK");
+        } catch (SQLException e) {
+            // SQLite may already have rolled the transaction back itself
+            log.debug("Rollback after failed group commit: {}", e.getMessage());
+        }
+        transactionOpen = false;
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    /**
+     * Transactions released since the last commit, all completed by the same COMMIT
+     */
+    private static final class Group {
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private int size;
+        private long openedAt;
+    }
+
+    /**
+     * The connection handed to JPA and JdbcTemplate for one unit of work.
+     * Holds the physical connection, inside a savepoint, from its first statement until commit or rollback.
+     */
+    private final class LogicalConnection implements InvocationHandler {
+
+        private boolean autoCommit = true;
+        private boolean readOnly;
+        private int transactionIsolation = Connection.TRANSACTION_SERIALIZABLE;
+        private boolean closed;
+        private String savepoint;
+        private long heldSince;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getAutoCommit":
+                    return autoCommit;
+                case "setAutoCommit":
+                    boolean enable = (Boolean) args[0];
+                    // Per JDBC, switching auto-commit on commits the current transaction
+                    if (enable && !autoCommit && savepoint != null) {
+                        commit();
+                    }
+                    autoCommit = enable;
+                    return null;
+                case "commit":
+                    commit();
+                    return null;
+                case "rollback":
+                    if (args == null) {
+                        rollback();
+                        return null;
+                    }
+                    break;
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        // Statements run in auto-commit mode are committed when the connection is handed back
+                        if (autoCommit) {
+                            commit();
+                        } else {
+                            rollback();
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "isValid":
+                    return !closed;
+                case "isReadOnly":
+                    return readOnly;
+                case "setReadOnly":
+                    readOnly = (Boolean) args[0];
+                    return null;
+                case "getTransactionIsolation":
+                    return transactionIsolation;
+                case "setTransactionIsolation":
+                    transactionIsolation = (Integer) args[0];
+                    return null;
+                case "getWarnings":
+                    return null;
+                case "clearWarnings":
+                    return null;
+                case "toString":
+                    return "GroupCommitConnection@" + Integer.toHexString(System.identityHashCode(proxy));
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+            begin();
+            checkTransactionTime();
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+
+        /**
+         * Take the physical connection and open this transaction's savepoint, unless already done
+         */
+        private void begin() throws SQLException {
+            if (savepoint != null) {
+                return;
+            }
+            if (lock.isHeldByCurrentThread()) {
+                // The outer transaction could never commit while this one waits for its group
+                throw new SQLException("Nested write transactions are not supported on the SQLite writer connection");
+            }
+            try {
+                if (!lock.tryLock(lockTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                    throw new SQLException("Timed out after " + Duration.ofNanos(lockTimeoutNanos).toMillis()
+                            + " ms waiting for the SQLite writer connection");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for the SQLite writer connection", e);
+            }
+            heldSince = System.nanoTime();
+            try {
+                if (!transactionOpen) {
+                    execute("BEGIN IMMEDIATE");
+                    transactionOpen = true;
+                }
+                String name = "tx" + (++savepointSequence);
+                execute("SAVEPOINT " + name);
+                savepoint = name;
+            } catch (SQLException e) {
+                lock.unlock();
+                throw e;
+            }
+        }
+
+        /**
+         * Roll back this transaction if it has kept every other writer waiting for too long
+         */
+        private void checkTransactionTime() throws SQLException {
+            long held = System.nanoTime() - heldSince;
+            if (held <= maxTransactionNanos) {
+                return;
+            }
+            rollback();
+            throw new SQLException("Write transaction held the SQLite writer connection for "
+                    + TimeUnit.NANOSECONDS.toMillis(held) + " ms, longer than the "
+                    + TimeUnit.NANOSECONDS.toMillis(maxTransactionNanos) + " ms allowed; "
+                    + "do slow work before the first statement or after the commit");
+        }
+
+        private void commit() throws SQLException {
+            if (savepoint == null) {
+                return;
+            }
+            checkTransactionTime();
+            Group joined;
+            try {
+                execute("RELEASE " + savepoint);
+                joined = group;
+                if (joined.size++ == 0) {
+                    joined.openedAt = System.nanoTime();
+                }
+                groupJoined.signal();
+            } catch (SQLException e) {
+                failGroup(e);
+                throw e;
+            } finally {
+                savepoint = null;
+                lock.unlock();
+            }
+            try {
+                joined.result.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof SQLException sqlException
+                        ? sqlException
+                        : new SQLException("Group commit failed", e.getCause());
+            }
+        }
+
+        private void rollback() throws SQLException {
+            if (savepoint == null) {
+                return;
+            }
+            try {
+                execute("ROLLBACK TO " + savepoint);
+                execute("RELEASE " + savepoint);
+                if (group.size == 0) {
+                    // Nothing else is waiting to be committed, so end the empty transaction now
+                    execute("ROLLBACK");
+                    transactionOpen = false;
+                }
+            } catch (SQLException e) {
+                failGroup(e);
+                throw e;
+            } finally {
+                savepoint = null;
+                lock.unlock();
+            }
+        }
+    }
+}
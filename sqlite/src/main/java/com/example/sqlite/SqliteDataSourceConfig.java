@@ -0,0 +1,113 @@
+package com.example.sqlite;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * SQLite in WAL mode behind two data sources: one group-committing write connection and a pool of read-only
+ * connections. Read-only transactions are routed to the pool, so reads never wait behind writes.
+ * <p>
+ * Shared by the services, which import it from their application class and configure it with {@code sqlite.*}
+ * properties. Write transactions are held to {@code sqlite.max-write-transaction} once the application is ready,
+ * so schema updates and startup backfills are not limited.
+ */
+@Slf4j
+@Configuration
+public class SqliteDataSourceConfig {
+
+    private static final String URL_PREFIX = "jdbc:sqlite:";
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${sqlite.busy-timeout:5s}")
+    private Duration busyTimeout;
+
+    @Value("${sqlite.max-write-transaction:2s}")
+    private Duration maxWriteTransaction;
+
+    @Bean(destroyMethod = "close")
+    public GroupCommitDataSource writeDataSource(
+            @Value("${sqlite.group-commit.max-delay:5ms}") Duration maxDelay,
+            @Value("${sqlite.group-commit.max-size:64}") int maxGroupSize) throws SQLException {
+        createParentDirectories();
+        SQLiteConfig config = new SQLiteConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        config.setBusyTimeout((int) busyTimeout.toMillis());
+        log.info("Opening SQLite writer for {} (group commit: max delay {}, max size {})", url, maxDelay, maxGroupSize);
+        return new GroupCommitDataSource(config.createConnection(url), maxDelay, maxGroupSize, busyTimeout);
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource readDataSource(
+            @Value("${sqlite.reader-pool-size:8}") int poolSize,
+            @Qualifier("writeDataSource") GroupCommitDataSource writeDataSource) {
+        // Depends on the writer so the database file exists and is already in WAL mode
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(true);
+        config.setBusyTimeout((int) busyTimeout.toMillis());
+        SQLiteDataSource reader = new SQLiteDataSource(config);
+        reader.setUrl(url);
+
+        HikariConfig pool = new HikariConfig();
+        pool.setPoolName("sqlite-readers");
+        pool.setDataSource(reader);
+        pool.setMaximumPoolSize(poolSize);
+        pool.setReadOnly(true);
+        return new HikariDataSource(pool);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("writeDataSource") GroupCommitDataSource writeDataSource,
+                                 @Qualifier("readDataSource") HikariDataSource readDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(writeDataSource);
+        dataSource.setReadOnlyDataSource(readDataSource);
+        return dataSource;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void limitWriteTransactions(ApplicationReadyEvent event) {
+        log.info("Limiting SQLite write transactions to {}", maxWriteTransaction);
+        event.getApplicationContext().getBean("writeDataSource", GroupCommitDataSource.class)
+                .limitTransactionTime(maxWriteTransaction);
+    }
+
+    private void createParentDirectories() {
+        if (!url.startsWith(URL_PREFIX)) {
+            return;
+        }
+        String file = url.substring(URL_PREFIX.length());
+        int query = file.indexOf('?');
+        if (query >= 0) {
+            file = file.substring(0, query);
+        }
+        if (file.isEmpty() || file.startsWith(":memory:") || file.startsWith("file:")) {
+            return;
+        }
+        Path parent = Path.of(file).toAbsolutePath().getParent();
+        try {
+            Files.createDirectories(parent);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create directory for SQLite database " + file, e);
+        }
+    }
+}